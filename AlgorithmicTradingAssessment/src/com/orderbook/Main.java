@@ -62,7 +62,7 @@ public class Main {
         // Change the quantity of the first order (order1)
         orderBook.modifyOrder(order1.getId(), 15);
 
-        // Print the order book after modification, order1 should have a new timestamp
+        // Print the order book after modification, order1 was reduced so it keeps its timestamp and priority
         System.out.println("Order book after modifying order1 (Buy order at R90 for 10 units) (new quantity: 15):");
         System.out.println(orderBook);
         
@@ -0,0 +1,47 @@
+package com.orderbook.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The CancelOrderMessage class is a flyweight over the body of a cancel order message.
+ * 
+ * Layout (little endian, 8 bytes):
+ * - 0: order Id
+ */
+public final class CancelOrderMessage {
+	public static final int TEMPLATE_ID = 3;
+	public static final int BLOCK_LENGTH = 8;
+	
+	private static final int ORDER_ID_OFFSET = 0;
+	
+	private ByteBuffer buffer;
+	private int offset;
+	
+	/**
+	 * Point this flyweight at a message body in a buffer, see NewOrderMessage.wrap
+	 */
+	public CancelOrderMessage wrap(ByteBuffer buffer, int offset) {
+		this.buffer = MessageHeader.checkByteOrder(buffer);
+		this.offset = offset;
+		return this;
+	}
+	
+	/**
+	 * Write the header of a cancel order message and point this flyweight at its body, see NewOrderMessage.wrapAndApplyHeader
+	 */
+	public CancelOrderMessage wrapAndApplyHeader(ByteBuffer buffer, int offset, MessageHeader header) {
+		header.wrap(buffer, offset).encode(TEMPLATE_ID, BLOCK_LENGTH);
+		return wrap(buffer, offset + MessageHeader.ENCODED_LENGTH);
+	}
+	
+	/**
+	 * Getter and setter for the field of the message, each reads or writes the buffer in place.
+	 */
+	public long getOrderId() {
+		return buffer.getLong(offset + ORDER_ID_OFFSET);
+	}
+	
+	public void setOrderId(long orderId) {
+		buffer.putLong(offset + ORDER_ID_OFFSET, orderId);
+	}
+}
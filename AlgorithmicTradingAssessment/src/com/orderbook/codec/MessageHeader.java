@@ -0,0 +1,94 @@
+package com.orderbook.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The MessageHeader class is a flyweight over the fixed 8 byte header in front of every order entry message.
+ * 
+ * Layout (little endian):
+ * - 0: block length, the length of the message body that follows the header
+ * - 2: template Id, which message the body is (see NewOrderMessage, ModifyOrderMessage and CancelOrderMessage)
+ * - 4: schema Id
+ * - 6: schema version
+ * 
+ * A flyweight holds no message data of its own, it reads and writes the fields in place in the buffer it wraps,
+ * so one instance is reused for every message and decoding allocates nothing.
+ */
+public final class MessageHeader {
+	public static final int ENCODED_LENGTH = 8;
+	public static final int SCHEMA_ID = 0x4F42; // "OB"
+	public static final int SCHEMA_VERSION = 1;
+	
+	private static final int BLOCK_LENGTH_OFFSET = 0;
+	private static final int TEMPLATE_ID_OFFSET = 2;
+	private static final int SCHEMA_ID_OFFSET = 4;
+	private static final int VERSION_OFFSET = 6;
+	
+	private ByteBuffer buffer;
+	private int offset;
+	
+	/**
+	 * Point this flyweight at a header in a buffer
+	 * 
+	 * @param buffer A little endian buffer
+	 * @param offset The offset of the header in the buffer
+	 * @return This flyweight
+	 * @throws IllegalArgumentException If the buffer is not little endian
+	 */
+	public MessageHeader wrap(ByteBuffer buffer, int offset) {
+		this.buffer = checkByteOrder(buffer);
+		this.offset = offset;
+		return this;
+	}
+	
+	/**
+	 * Write a whole header for a message body
+	 * 
+	 * @param templateId The template Id of the message
+	 * @param blockLength The length of the message body
+	 */
+	public void encode(int templateId, int blockLength) {
+		setBlockLength(blockLength);
+		setTemplateId(templateId);
+		buffer.putShort(offset + SCHEMA_ID_OFFSET, (short) SCHEMA_ID);
+		buffer.putShort(offset + VERSION_OFFSET, (short) SCHEMA_VERSION);
+	}
+	
+	/**
+	 * Getters and setters for the fields of the header, the unsigned 16 bit fields are read as ints.
+	 */
+	public int getBlockLength() {
+		return Short.toUnsignedInt(buffer.getShort(offset + BLOCK_LENGTH_OFFSET));
+	}
+	
+	public void setBlockLength(int blockLength) {
+		buffer.putShort(offset + BLOCK_LENGTH_OFFSET, (short) blockLength);
+	}
+	
+	public int getTemplateId() {
+		return Short.toUnsignedInt(buffer.getShort(offset + TEMPLATE_ID_OFFSET));
+	}
+	
+	public void setTemplateId(int templateId) {
+		buffer.putShort(offset + TEMPLATE_ID_OFFSET, (short) templateId);
+	}
+	
+	public int getSchemaId() {
+		return Short.toUnsignedInt(buffer.getShort(offset + SCHEMA_ID_OFFSET));
+	}
+	
+	public int getVersion() {
+		return Short.toUnsignedInt(buffer.getShort(offset + VERSION_OFFSET));
+	}
+	
+	/**
+	 * Check a buffer is little endian, which is the byte order of every message
+	 */
+	static ByteBuffer checkByteOrder(ByteBuffer buffer) {
+		if (buffer.order() != ByteOrder.LITTLE_ENDIAN) {
+			throw new IllegalArgumentException("Order entry buffers must be little endian");
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,57 @@
+package com.orderbook.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The ModifyOrderMessage class is a flyweight over the body of a modify order message.
+ * 
+ * Layout (little endian, 16 bytes):
+ * - 0: order Id
+ * - 8: new quantity in lots
+ */
+public final class ModifyOrderMessage {
+	public static final int TEMPLATE_ID = 2;
+	public static final int BLOCK_LENGTH = 16;
+	
+	private static final int ORDER_ID_OFFSET = 0;
+	private static final int QUANTITY_OFFSET = 8;
+	
+	private ByteBuffer buffer;
+	private int offset;
+	
+	/**
+	 * Point this flyweight at a message body in a buffer, see NewOrderMessage.wrap
+	 */
+	public ModifyOrderMessage wrap(ByteBuffer buffer, int offset) {
+		this.buffer = MessageHeader.checkByteOrder(buffer);
+		this.offset = offset;
+		return this;
+	}
+	
+	/**
+	 * Write the header of a modify order message and point this flyweight at its body, see NewOrderMessage.wrapAndApplyHeader
+	 */
+	public ModifyOrderMessage wrapAndApplyHeader(ByteBuffer buffer, int offset, MessageHeader header) {
+		header.wrap(buffer, offset).encode(TEMPLATE_ID, BLOCK_LENGTH);
+		return wrap(buffer, offset + MessageHeader.ENCODED_LENGTH);
+	}
+	
+	/**
+	 * Getters and setters for the fields of the message, each reads or writes the buffer in place.
+	 */
+	public long getOrderId() {
+		return buffer.getLong(offset + ORDER_ID_OFFSET);
+	}
+	
+	public void setOrderId(long orderId) {
+		buffer.putLong(offset + ORDER_ID_OFFSET, orderId);
+	}
+	
+	public long getQuantity() {
+		return buffer.getLong(offset + QUANTITY_OFFSET);
+	}
+	
+	public void setQuantity(long quantity) {
+		buffer.putLong(offset + QUANTITY_OFFSET, quantity);
+	}
+}
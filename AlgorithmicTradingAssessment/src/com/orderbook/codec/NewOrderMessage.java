@@ -0,0 +1,154 @@
+package com.orderbook.codec;
+
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import java.nio.ByteBuffer;
+
+/**
+ * The NewOrderMessage class is a flyweight over the body of a new order message.
+ * 
+ * Layout (little endian, 48 bytes):
+ * - 0: price in ticks (the trigger price of a stop order, ignored for a market order)
+ * - 8: quantity in lots
+ * - 16: side (see OrderSide)
+ * - 17: order type (see OrderType)
+ * - 18: padding
+ * - 24: client order Id, up to 24 ASCII characters padded with zero bytes, all zero if the order has none
+ */
+public final class NewOrderMessage {
+	public static final int TEMPLATE_ID = 1;
+	public static final int BLOCK_LENGTH = 48;
+	public static final int CLIENT_ORDER_ID_LENGTH = 24;
+	
+	private static final int PRICE_OFFSET = 0;
+	private static final int QUANTITY_OFFSET = 8;
+	private static final int SIDE_OFFSET = 16;
+	private static final int ORDER_TYPE_OFFSET = 17;
+	private static final int CLIENT_ORDER_ID_OFFSET = 24;
+	
+	private static final OrderSide[] SIDES = OrderSide.values();
+	private static final OrderType[] ORDER_TYPES = OrderType.values();
+	
+	private ByteBuffer buffer;
+	private int offset;
+	
+	/**
+	 * Point this flyweight at a message body in a buffer
+	 * 
+	 * @param buffer A little endian buffer
+	 * @param offset The offset of the body in the buffer, just after its header
+	 * @return This flyweight
+	 * @throws IllegalArgumentException If the buffer is not little endian
+	 */
+	public NewOrderMessage wrap(ByteBuffer buffer, int offset) {
+		this.buffer = MessageHeader.checkByteOrder(buffer);
+		this.offset = offset;
+		return this;
+	}
+	
+	/**
+	 * Write the header of a new order message and point this flyweight at its body, ready for the setters
+	 * 
+	 * @param buffer A little endian buffer
+	 * @param offset The offset of the header in the buffer
+	 * @param header The header flyweight to write the header with
+	 * @return This flyweight
+	 */
+	public NewOrderMessage wrapAndApplyHeader(ByteBuffer buffer, int offset, MessageHeader header) {
+		header.wrap(buffer, offset).encode(TEMPLATE_ID, BLOCK_LENGTH);
+		return wrap(buffer, offset + MessageHeader.ENCODED_LENGTH);
+	}
+	
+	/**
+	 * Getters and setters for the fields of the message, each reads or writes the buffer in place.
+	 */
+	public long getPrice() {
+		return buffer.getLong(offset + PRICE_OFFSET);
+	}
+	
+	public void setPrice(long price) {
+		buffer.putLong(offset + PRICE_OFFSET, price);
+	}
+	
+	public long getQuantity() {
+		return buffer.getLong(offset + QUANTITY_OFFSET);
+	}
+	
+	public void setQuantity(long quantity) {
+		buffer.putLong(offset + QUANTITY_OFFSET, quantity);
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the side byte is not an OrderSide
+	 */
+	public OrderSide getSide() {
+		int side = buffer.get(offset + SIDE_OFFSET);
+		if (side < 0 || side >= SIDES.length) {
+			throw new IllegalArgumentException("Unknown order side " + side + " in new order message at offset " + offset);
+		}
+		return SIDES[side];
+	}
+	
+	public void setSide(OrderSide side) {
+		buffer.put(offset + SIDE_OFFSET, (byte) side.ordinal());
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the order type byte is not an OrderType
+	 */
+	public OrderType getOrderType() {
+		int orderType = buffer.get(offset + ORDER_TYPE_OFFSET);
+		if (orderType < 0 || orderType >= ORDER_TYPES.length) {
+			throw new IllegalArgumentException("Unknown order type " + orderType + " in new order message at offset " + offset);
+		}
+		return ORDER_TYPES[orderType];
+	}
+	
+	public void setOrderType(OrderType orderType) {
+		buffer.put(offset + ORDER_TYPE_OFFSET, (byte) orderType.ordinal());
+	}
+	
+	/**
+	 * @return The number of characters in the client order Id, 0 if the order has none
+	 */
+	public int getClientOrderIdLength() {
+		int length = 0;
+		while (length < CLIENT_ORDER_ID_LENGTH && buffer.get(offset + CLIENT_ORDER_ID_OFFSET + length) != 0) {
+			length++;
+		}
+		return length;
+	}
+	
+	/**
+	 * Get the client order Id, this is the only getter that allocates, and only if the order has a client order Id
+	 * 
+	 * @return The client order Id, or null if the order has none
+	 */
+	public String getClientOrderId() {
+		int length = getClientOrderIdLength();
+		if (length == 0) {
+			return null;
+		}
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) buffer.get(offset + CLIENT_ORDER_ID_OFFSET + i);
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Set the client order Id
+	 * 
+	 * @param clientOrderId Up to CLIENT_ORDER_ID_LENGTH ASCII characters, or null
+	 * @throws IllegalArgumentException If the client order Id is too long
+	 */
+	public void setClientOrderId(String clientOrderId) {
+		int length = clientOrderId == null ? 0 : clientOrderId.length();
+		if (length > CLIENT_ORDER_ID_LENGTH) {
+			throw new IllegalArgumentException("Client order Id is longer than " + CLIENT_ORDER_ID_LENGTH + " characters: " + clientOrderId);
+		}
+		for (int i = 0; i < CLIENT_ORDER_ID_LENGTH; i++) {
+			buffer.put(offset + CLIENT_ORDER_ID_OFFSET + i, i < length ? (byte) clientOrderId.charAt(i) : 0);
+		}
+	}
+}
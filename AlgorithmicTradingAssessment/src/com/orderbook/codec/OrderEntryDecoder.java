@@ -0,0 +1,118 @@
+package com.orderbook.codec;
+
+import com.orderbook.model.OrderPool;
+import com.orderbook.service.MatchingEngine;
+import java.nio.ByteBuffer;
+
+/**
+ * The OrderEntryDecoder class applies binary order entry messages straight from a buffer to a matching engine.
+ * 
+ * 1. Read the message header in place, check its schema and version, and check the body it describes fits in the buffer
+ * 2. Point the flyweight of the message's template at its body
+ * 3. Read the fields in place and call the matching engine: a new order is taken from the order pool and processed,
+ *    a modify or cancel is applied by order Id
+ * 
+ * The flyweights are created once and reused, so no message objects are created. The only allocation is the client order Id
+ * String of a new order that has one, as the order book indexes orders by it.
+ * Like the matching engine, a decoder must only be used by the thread that owns the engine.
+ */
+public final class OrderEntryDecoder {
+	private final MatchingEngine engine;
+	private final OrderPool pool;
+	private final MessageHeader header = new MessageHeader();
+	private final NewOrderMessage newOrder = new NewOrderMessage();
+	private final ModifyOrderMessage modifyOrder = new ModifyOrderMessage();
+	private final CancelOrderMessage cancelOrder = new CancelOrderMessage();
+	
+	/**
+	 * 
+	 * @param engine The matching engine the messages are applied to
+	 * @param pool The pool new orders are taken from, with the tick size of the engine's order book
+	 */
+	public OrderEntryDecoder(MatchingEngine engine, OrderPool pool) {
+		this.engine = engine;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Apply one message to the matching engine
+	 * 
+	 * This onMessage method is O(1) complexity plus the cost of the matching engine operation
+	 * 
+	 * @param buffer A little endian buffer holding the message
+	 * @param offset The offset of the message header in the buffer
+	 * @return The Id of the new order, the Id of the modified order, the Id of the cancelled order or 0 if it was not in the book
+	 * @throws IllegalArgumentException If the message has an unknown schema, version, template, side or order type,
+	 *         or its body is shorter than its template or runs past the end of the buffer. Nothing is applied.
+	 */
+	public long onMessage(ByteBuffer buffer, int offset) {
+		header.wrap(buffer, offset);
+		if (header.getSchemaId() != MessageHeader.SCHEMA_ID) {
+			throw new IllegalArgumentException("Unknown message schema " + header.getSchemaId() + " at offset " + offset);
+		}
+		if (header.getVersion() == 0 || header.getVersion() > MessageHeader.SCHEMA_VERSION) {
+			throw new IllegalArgumentException("Unsupported message schema version " + header.getVersion() + " at offset " + offset);
+		}
+		int body = offset + MessageHeader.ENCODED_LENGTH;
+		if (body + header.getBlockLength() > buffer.limit()) {
+			throw new IllegalArgumentException("Message at offset " + offset + " runs past the end of the buffer");
+		}
+		switch (header.getTemplateId()) {
+			case NewOrderMessage.TEMPLATE_ID:
+				checkBlockLength(NewOrderMessage.BLOCK_LENGTH, offset);
+				newOrder.wrap(buffer, body);
+				return engine.processOrder(pool.acquire(newOrder.getOrderType(), newOrder.getSide(), newOrder.getPrice(),
+						newOrder.getQuantity(), newOrder.getClientOrderId()));
+			case ModifyOrderMessage.TEMPLATE_ID:
+				checkBlockLength(ModifyOrderMessage.BLOCK_LENGTH, offset);
+				modifyOrder.wrap(buffer, body);
+				long modifyId = modifyOrder.getOrderId();
+				return engine.modifyOrder(modifyId, modifyOrder.getQuantity()) ? modifyId : 0;
+			case CancelOrderMessage.TEMPLATE_ID:
+				checkBlockLength(CancelOrderMessage.BLOCK_LENGTH, offset);
+				cancelOrder.wrap(buffer, body);
+				long cancelId = cancelOrder.getOrderId();
+				return engine.cancelOrder(cancelId) ? cancelId : 0;
+			default:
+				throw new IllegalArgumentException("Unknown message template " + header.getTemplateId() + " at offset " + offset);
+		}
+	}
+	
+	/**
+	 * Check the body of the current message holds every field of its template, a longer body has fields appended by the sender
+	 */
+	private void checkBlockLength(int templateLength, int offset) {
+		if (header.getBlockLength() < templateLength) {
+			throw new IllegalArgumentException("Message body of " + header.getBlockLength() + " bytes at offset " + offset
+					+ " is shorter than its template's " + templateLength + " bytes");
+		}
+	}
+	
+	/**
+	 * Apply every message in a range of a buffer to the matching engine, in order
+	 * 
+	 * Each message's length is taken from the block length in its header, so a sender can append fields to a message
+	 * body without breaking this decoder.
+	 * 
+	 * @param buffer A little endian buffer holding the messages back to back
+	 * @param offset The offset of the first message header
+	 * @param length The number of bytes of messages
+	 * @return The number of messages applied
+	 * @throws IllegalArgumentException If a message is malformed (see onMessage) or runs past the end of the range,
+	 *         the messages before it have been applied
+	 */
+	public int onMessages(ByteBuffer buffer, int offset, int length) {
+		int end = offset + length;
+		int count = 0;
+		while (offset + MessageHeader.ENCODED_LENGTH <= end) {
+			int blockLength = header.wrap(buffer, offset).getBlockLength();
+			if (offset + MessageHeader.ENCODED_LENGTH + blockLength > end) {
+				throw new IllegalArgumentException("Message at offset " + offset + " runs past the end of the range at " + end);
+			}
+			onMessage(buffer, offset);
+			offset += MessageHeader.ENCODED_LENGTH + blockLength;
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,12 @@
+/**
+ * This package contains the fixed-layout binary order entry codec.
+ * <p>
+ * Every message is an 8 byte header followed by a fixed-length little endian body, read and written in place through flyweights.
+ * - {@link com.orderbook.codec.MessageHeader} is the header with the block length, template Id and schema of a message.
+ * - {@link com.orderbook.codec.NewOrderMessage} is a new limit, market or stop order.
+ * - {@link com.orderbook.codec.ModifyOrderMessage} changes the quantity of a resting order.
+ * - {@link com.orderbook.codec.CancelOrderMessage} cancels a resting order.
+ * - {@link com.orderbook.codec.OrderEntryDecoder} applies messages straight from a buffer to a matching engine.
+ * </p>
+ */
+package com.orderbook.codec;
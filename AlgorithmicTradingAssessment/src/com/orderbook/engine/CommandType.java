@@ -0,0 +1,19 @@
+package com.orderbook.engine;
+
+/**
+ * Enum that represents the type of a command sent to a matching engine.
+ * ADD adds an order to the order book without matching it.
+ * PROCESS matches an order and rests any remaining quantity (see MatchingEngine.processOrder).
+ * MODIFY changes the quantity of a resting order.
+ * CANCEL removes a resting order from the order book.
+ * BEGIN_AUCTION switches the matching engine to call auction mode, where orders rest without matching.
+ * UNCROSS executes the auction at its equilibrium price and returns the matching engine to continuous matching.
+ */
+public enum CommandType {
+	ADD,
+	PROCESS,
+	MODIFY,
+	CANCEL,
+	BEGIN_AUCTION,
+	UNCROSS;
+}
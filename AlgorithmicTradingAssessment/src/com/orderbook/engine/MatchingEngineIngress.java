@@ -0,0 +1,149 @@
+package com.orderbook.engine;
+
+import com.orderbook.service.MatchingEngine;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+
+/**
+ * The MatchingEngineIngress class lets many gateway threads feed a matching engine that is not thread-safe.
+ * 
+ * 1. Gateway threads submit commands to a lock-free multi-producer single-consumer queue
+ * 2. A dedicated matcher thread drains the queue in batches and applies each command in queue order
+ * 3. When the queue is empty the matcher thread waits according to its WaitStrategy
+ * 4. A command the matching engine throws on is counted, passed to the RejectedCommandHandler (if any) and skipped,
+ *    so one bad command never stops the matcher thread and leaves the gateways spinning on a full queue
+ * 
+ * Only the matcher thread ever touches the matching engine and its order book, so they need no locks.
+ */
+public final class MatchingEngineIngress implements Runnable {
+	private final MatchingEngine engine; // The default engine for commands that have not been routed, may be null
+	private final MpscCommandQueue commands;
+	private final int batchSize;
+	private final WaitStrategy waitStrategy;
+	private final RejectedCommandHandler rejectedCommands; // May be null if rejected commands are only counted
+	private final Thread thread;
+	private final BiConsumer<OrderCommand, MatchingEngine> applyCommand = this::apply; // Created once so draining allocates nothing
+	private volatile boolean running = true;
+	private volatile long rejectedCount; // Only written by the matcher thread
+	
+	/**
+	 * 
+	 * @param engine The matching engine the commands are applied to, or null if every command is routed to its engine first
+	 * @param capacity The maximum number of queued commands, which must be a power of two
+	 * @param batchSize The maximum number of commands applied per drain of the queue
+	 * @param waitStrategy What the matcher thread does while the queue is empty
+	 * @param threadFactory Creates the matcher thread
+	 */
+	public MatchingEngineIngress(MatchingEngine engine, int capacity, int batchSize, WaitStrategy waitStrategy, ThreadFactory threadFactory) {
+		this(engine, capacity, batchSize, waitStrategy, threadFactory, null);
+	}
+	
+	/**
+	 * 
+	 * @param engine The matching engine the commands are applied to, or null if every command is routed to its engine first
+	 * @param capacity The maximum number of queued commands, which must be a power of two
+	 * @param batchSize The maximum number of commands applied per drain of the queue
+	 * @param waitStrategy What the matcher thread does while the queue is empty
+	 * @param threadFactory Creates the matcher thread
+	 * @param rejectedCommands Told about every command the matching engine refused, or null
+	 */
+	public MatchingEngineIngress(MatchingEngine engine, int capacity, int batchSize, WaitStrategy waitStrategy, ThreadFactory threadFactory,
+			RejectedCommandHandler rejectedCommands) {
+		this.engine = engine;
+		this.commands = new MpscCommandQueue(capacity);
+		this.batchSize = batchSize;
+		this.waitStrategy = waitStrategy;
+		this.rejectedCommands = rejectedCommands;
+		this.thread = threadFactory.newThread(this);
+	}
+	
+	/**
+	 * Start the matcher thread
+	 */
+	public void start() {
+		thread.start();
+	}
+	
+	/**
+	 * Try to queue a command for the matcher thread, this can be called from any thread
+	 * 
+	 * @param command The command to apply
+	 * @return True if the command was queued, false if the queue is full
+	 */
+	public boolean offer(OrderCommand command) {
+		return commands.offer(command, null);
+	}
+	
+	/**
+	 * Queue a command for the matcher thread, yielding while the queue is full
+	 * 
+	 * @param command The command to apply
+	 */
+	public void submit(OrderCommand command) {
+		submit(command, null);
+	}
+	
+	/**
+	 * Queue a command for another matching engine owned by the matcher thread, yielding while the queue is full
+	 * The route is kept in the queue slot, the command itself is not modified and can be reused.
+	 * 
+	 * @param command The command to apply
+	 * @param target The matching engine to apply the command to, or null for this ingress' engine
+	 */
+	void submit(OrderCommand command, MatchingEngine target) {
+		while (!commands.offer(command, target)) {
+			Thread.yield(); // Back pressure, let the matcher thread catch up
+		}
+	}
+	
+	/**
+	 * Stop the matcher thread once every command already queued has been applied, and wait for it to finish
+	 */
+	public void stop() throws InterruptedException {
+		running = false;
+		thread.join();
+	}
+	
+	/**
+	 * The matcher loop:
+	 * 1. Drain up to a batch of commands and apply them in order
+	 * 2. If the queue was empty, wait according to the wait strategy
+	 * 3. Once stopped, drain whatever is left on the queue before exiting
+	 */
+	@Override
+	public void run() {
+		int idleCount = 0;
+		while (running) {
+			if (commands.drain(applyCommand, batchSize) == 0) {
+				idleCount = waitStrategy.idle(idleCount);
+			} else {
+				idleCount = 0;
+			}
+		}
+		while (commands.drain(applyCommand, batchSize) > 0) {
+			// Keep draining until the queue is empty
+		}
+	}
+	
+	/**
+	 * @return The number of commands the matching engine refused, this can be read from any thread
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+	
+	/**
+	 * Apply one command to the engine it was routed to, or to this ingress' engine
+	 * A command the engine throws on is counted and reported, and the matcher thread carries on with the next command.
+	 */
+	private void apply(OrderCommand command, MatchingEngine target) {
+		try {
+			command.applyTo(target != null ? target : engine);
+		} catch (RuntimeException e) {
+			rejectedCount++;
+			if (rejectedCommands != null) {
+				rejectedCommands.onRejected(command, e);
+			}
+		}
+	}
+}
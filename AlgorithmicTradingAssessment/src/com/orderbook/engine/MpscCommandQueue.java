@@ -0,0 +1,111 @@
+package com.orderbook.engine;
+
+import com.orderbook.service.MatchingEngine;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+/**
+ * The MpscCommandQueue class is a bounded, lock-free, multi-producer single-consumer queue of commands.
+ * 
+ * 1. The buffer is an array of preallocated slots, so offering and draining commands allocates nothing
+ * 2. Producers claim a slot with a single compare-and-set on the tail, there is no lock for producers to convoy on
+ * 3. Each slot has a sequence number that tells the consumer when the producer has finished writing it
+ * 4. The single consumer drains commands in batches and only writes plain fields and ordered slot sequences
+ * 5. Each slot also holds the matching engine its command was routed to, so routing never writes to the caller's command
+ * 
+ * This is the bounded queue design described by Dmitry Vyukov, specialised for a single consumer.
+ */
+final class MpscCommandQueue {
+	private final OrderCommand[] buffer;
+	private final MatchingEngine[] targets; // The engine each slot's command was routed to, or null
+	private final AtomicLongArray sequences; // The sequence each slot is ready for, see offer and drain
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong(); // The next position a producer will claim
+	private long head; // The next position the consumer will read, only used by the consumer thread
+	
+	/**
+	 * 
+	 * @param capacity The maximum number of queued commands, which must be a power of two
+	 */
+	MpscCommandQueue(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Queue capacity must be a power of two: " + capacity);
+		}
+		buffer = new OrderCommand[capacity];
+		targets = new MatchingEngine[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i); // Slot i is free for the producer that claims position i
+		}
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Add a command to the queue, this can be called from any thread
+	 * 
+	 * 1. Read the tail and the sequence of its slot
+	 * 2. If the slot is free for this position, claim the position with a compare-and-set on the tail
+	 * 3. Write the command and its target and publish them by setting the slot's sequence to the position + 1
+	 * 4. If the slot still holds a command from one lap ago the queue is full
+	 * 
+	 * @param command The command to add
+	 * @param target The matching engine the command was routed to, or null
+	 * @return True if the command was queued, false if the queue is full
+	 */
+	boolean offer(OrderCommand command, MatchingEngine target) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					buffer[index] = command;
+					targets[index] = target;
+					sequences.lazySet(index, position + 1); // Ordered write, the command is visible before the sequence
+					return true;
+				}
+			} else if (difference < 0) {
+				return false; // The consumer hasn't freed this slot yet
+			}
+			// Another producer claimed this position first, try the next one
+		}
+	}
+	
+	/**
+	 * Hand up to limit queued commands to the handler in queue order, only the consumer thread may call this
+	 * 
+	 * @param handler The handler to call with each command and the engine it was routed to
+	 * @param limit The maximum number of commands to drain in this batch
+	 * @return The number of commands drained, 0 if the queue was empty
+	 */
+	int drain(BiConsumer<OrderCommand, MatchingEngine> handler, int limit) {
+		int count = 0;
+		while (count < limit) {
+			int index = (int) head & mask;
+			if (sequences.get(index) != head + 1) {
+				break; // The next command hasn't been published yet
+			}
+			OrderCommand command = buffer[index];
+			MatchingEngine target = targets[index];
+			buffer[index] = null;
+			targets[index] = null;
+			sequences.lazySet(index, head + buffer.length); // Free the slot for the producer one lap ahead
+			head++;
+			handler.accept(command, target);
+			count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Check whether the queue is empty, only the consumer thread may call this
+	 */
+	boolean isEmpty() {
+		return sequences.get((int) head & mask) != head + 1;
+	}
+	
+	int capacity() {
+		return buffer.length;
+	}
+}
@@ -0,0 +1,141 @@
+package com.orderbook.engine;
+
+import com.orderbook.model.Order;
+import com.orderbook.service.MatchingEngine;
+
+/**
+ * The OrderCommand class is a single add, process, modify or cancel request, or an auction request, for one instrument.
+ * Commands are created on gateway threads and applied on the thread that owns the instrument's matching engine.
+ * Resting orders can be referred to by their order Id or, as order Ids are assigned asynchronously, by their client order Id.
+ * A command is immutable, routing it does not change it, so it can be submitted again or to another engine.
+ */
+public final class OrderCommand {
+	private final CommandType type;
+	private final String symbol;
+	private final Order order; // The order to add or process, null for modify and cancel
+	private final long orderId; // The order Id to modify or cancel, 0 if the client order Id is used
+	private final String clientOrderId; // The client order Id to modify or cancel, or null
+	private final long quantity; // The new quantity for a modify
+	
+	private OrderCommand(CommandType type, String symbol, Order order, long orderId, String clientOrderId, long quantity) {
+		this.type = type;
+		this.symbol = symbol;
+		this.order = order;
+		this.orderId = orderId;
+		this.clientOrderId = clientOrderId;
+		this.quantity = quantity;
+	}
+	
+	/**
+	 * Factory methods for each type of command.
+	 */
+	public static OrderCommand add(String symbol, Order order) {
+		return new OrderCommand(CommandType.ADD, symbol, order, 0, null, 0);
+	}
+	
+	public static OrderCommand process(String symbol, Order order) {
+		return new OrderCommand(CommandType.PROCESS, symbol, order, 0, null, 0);
+	}
+	
+	public static OrderCommand modify(String symbol, long orderId, long newQuantity) {
+		return new OrderCommand(CommandType.MODIFY, symbol, null, orderId, null, newQuantity);
+	}
+	
+	public static OrderCommand modify(String symbol, String clientOrderId, long newQuantity) {
+		return new OrderCommand(CommandType.MODIFY, symbol, null, 0, clientOrderId, newQuantity);
+	}
+	
+	public static OrderCommand cancel(String symbol, long orderId) {
+		return new OrderCommand(CommandType.CANCEL, symbol, null, orderId, null, 0);
+	}
+	
+	public static OrderCommand cancel(String symbol, String clientOrderId) {
+		return new OrderCommand(CommandType.CANCEL, symbol, null, 0, clientOrderId, 0);
+	}
+	
+	public static OrderCommand beginAuction(String symbol) {
+		return new OrderCommand(CommandType.BEGIN_AUCTION, symbol, null, 0, null, 0);
+	}
+	
+	public static OrderCommand uncross(String symbol) {
+		return new OrderCommand(CommandType.UNCROSS, symbol, null, 0, null, 0);
+	}
+	
+	/**
+	 * Apply this command to a matching engine, this must be called on the thread that owns the engine
+	 * 
+	 * @param engine The matching engine of the command's instrument
+	 */
+	public void applyTo(MatchingEngine engine) {
+		switch (type) {
+			case ADD:
+				engine.addOrder(order);
+				break;
+			case PROCESS:
+				engine.processOrder(order);
+				break;
+			case MODIFY:
+				long modifyId = resolveOrderId(engine);
+				if (modifyId != 0) {
+					engine.modifyOrder(modifyId, quantity);
+				}
+				break;
+			case CANCEL:
+				long cancelId = resolveOrderId(engine);
+				if (cancelId != 0) {
+					engine.cancelOrder(cancelId);
+				}
+				break;
+			case BEGIN_AUCTION:
+				engine.beginAuction();
+				break;
+			case UNCROSS:
+				engine.uncross();
+				break;
+		}
+	}
+	
+	/**
+	 * Find the order Id of the resting order this command refers to, 0 if it is not in the book
+	 */
+	private long resolveOrderId(MatchingEngine engine) {
+		if (clientOrderId == null) {
+			return orderId;
+		}
+		Order resting = engine.getOrderBook().getOrder(clientOrderId);
+		return resting == null ? 0 : resting.getId();
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public CommandType getType() {
+		return type;
+	}
+	
+	public String getSymbol() {
+		return symbol;
+	}
+	
+	public Order getOrder() {
+		return order;
+	}
+	
+	public long getOrderId() {
+		return orderId;
+	}
+	
+	public String getClientOrderId() {
+		return clientOrderId;
+	}
+	
+	public long getQuantity() {
+		return quantity;
+	}
+	
+	@Override
+	public String toString() {
+		return "OrderCommand{type=" + type + ", symbol=" + symbol + ", order=" + order + ", orderId=" + orderId
+				+ ", clientOrderId=" + clientOrderId + ", quantity=" + quantity + "}";
+	}
+}
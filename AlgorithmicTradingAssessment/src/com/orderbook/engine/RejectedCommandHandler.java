@@ -0,0 +1,16 @@
+package com.orderbook.engine;
+
+/**
+ * Callback interface told about a command the matching engine refused, e.g. a modify to a quantity of 0 or an add of a market order.
+ * It is called on the matcher thread that applied the command, which then goes on to the next command, so it must not block or throw.
+ */
+@FunctionalInterface
+public interface RejectedCommandHandler {
+	
+	/**
+	 * 
+	 * @param command The command that was refused, which is not applied
+	 * @param error The exception the matching engine threw for it
+	 */
+	void onRejected(OrderCommand command, RuntimeException error);
+}
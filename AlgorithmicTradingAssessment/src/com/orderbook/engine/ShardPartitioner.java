@@ -0,0 +1,26 @@
+package com.orderbook.engine;
+
+/**
+ * Strategy interface that decides which shard (worker thread) owns an instrument.
+ * The partitioner is only called once per instrument, when the instrument is added to the engine.
+ */
+@FunctionalInterface
+public interface ShardPartitioner {
+	
+	/**
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @param shardCount The number of shards in the engine
+	 * @return The index of the shard that will own the instrument, from 0 to shardCount - 1
+	 */
+	int shardFor(String symbol, int shardCount);
+	
+	/**
+	 * Partition instruments by the hash code of their symbol
+	 * 
+	 * @return A partitioner that spreads symbols evenly when there are many of them
+	 */
+	static ShardPartitioner hashing() {
+		return (symbol, shardCount) -> Math.floorMod(symbol.hashCode(), shardCount);
+	}
+}
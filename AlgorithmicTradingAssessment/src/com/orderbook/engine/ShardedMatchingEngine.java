@@ -0,0 +1,207 @@
+package com.orderbook.engine;
+
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.metrics.EngineMetrics;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The ShardedMatchingEngine class runs the order books of many instruments across a fixed number of worker threads.
+ * 
+ * 1. Each instrument has its own OrderBook and MatchingEngine
+ * 2. Each instrument is assigned to one shard by the ShardPartitioner when it is added, and stays on that shard
+ * 3. Each shard is a single-writer worker thread, so order books are only ever touched by one thread and need no locks
+ * 4. Commands are routed by symbol to the instrument's shard over a lock-free queue (see MatchingEngineIngress)
+ * 
+ * Throughput scales with the number of shards as long as the busy instruments are spread across them.
+ * Java cannot bind a thread to a CPU core itself, a ThreadFactory can be given to apply an affinity library or naming scheme.
+ */
+public class ShardedMatchingEngine {
+	private static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+	private static final int DEFAULT_BATCH_SIZE = 256;
+	
+	private final MatchingEngineIngress[] shards;
+	private final ShardPartitioner partitioner;
+	private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+	
+	/**
+	 * The shard and matching engine that own an instrument
+	 */
+	private static final class Route {
+		private final int shard;
+		private final MatchingEngine engine;
+		
+		private Route(int shard, MatchingEngine engine) {
+			this.shard = shard;
+			this.engine = engine;
+		}
+	}
+	
+	/**
+	 * Create an engine that partitions instruments by symbol hash
+	 * 
+	 * @param shardCount The number of worker threads, usually no more than the number of free cores
+	 */
+	public ShardedMatchingEngine(int shardCount) {
+		this(shardCount, ShardPartitioner.hashing(), defaultThreadFactory());
+	}
+	
+	/**
+	 * 
+	 * @param shardCount The number of worker threads, usually no more than the number of free cores
+	 * @param partitioner Decides which shard owns each instrument
+	 * @param threadFactory Creates the worker thread of each shard
+	 */
+	public ShardedMatchingEngine(int shardCount, ShardPartitioner partitioner, ThreadFactory threadFactory) {
+		this(shardCount, partitioner, threadFactory, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, WaitStrategy.yielding());
+	}
+	
+	/**
+	 * 
+	 * @param shardCount The number of worker threads, usually no more than the number of free cores
+	 * @param partitioner Decides which shard owns each instrument
+	 * @param threadFactory Creates the worker thread of each shard
+	 * @param queueCapacity The command queue capacity of each shard, which must be a power of two
+	 * @param batchSize The maximum number of commands a shard applies per drain of its queue
+	 * @param waitStrategy What a shard's worker thread does while its queue is empty
+	 */
+	public ShardedMatchingEngine(int shardCount, ShardPartitioner partitioner, ThreadFactory threadFactory,
+			int queueCapacity, int batchSize, WaitStrategy waitStrategy) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+		}
+		this.partitioner = partitioner;
+		this.shards = new MatchingEngineIngress[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new MatchingEngineIngress(null, queueCapacity, batchSize, waitStrategy, threadFactory);
+		}
+	}
+	
+	private static ThreadFactory defaultThreadFactory() {
+		int[] count = { 0 };
+		return runnable -> new Thread(runnable, "engine-shard-" + count[0]++);
+	}
+	
+	/**
+	 * Add an instrument to the engine using the default tick size, see addInstrument(String, TickSize, ExecutionReportRingBuffer)
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @return The index of the shard that owns the instrument
+	 */
+	public int addInstrument(String symbol) {
+		return addInstrument(symbol, TickSize.DEFAULT, null);
+	}
+	
+	/**
+	 * Add an instrument to the engine:
+	 * 1. Create the instrument's order book and matching engine
+	 * 2. Ask the partitioner which shard owns the instrument, and check the shard exists
+	 * 3. Store the route so commands for the symbol go to that shard
+	 * 
+	 * The execution report ring buffer has a single producer, so a ring buffer can only be shared by instruments on the same shard.
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @param tickSize The tick size of the instrument
+	 * @param executionReports The ring buffer the instrument's execution reports are published to, or null
+	 * @return The index of the shard that owns the instrument
+	 */
+	public int addInstrument(String symbol, TickSize tickSize, ExecutionReportRingBuffer executionReports) {
+		return addInstrument(symbol, tickSize, executionReports, null);
+	}
+	
+	/**
+	 * Add an instrument to the engine with metrics, see addInstrument(String, TickSize, ExecutionReportRingBuffer)
+	 * 
+	 * The metrics are recorded by the instrument's shard thread, so each instrument needs its own EngineMetrics.
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @param tickSize The tick size of the instrument
+	 * @param executionReports The ring buffer the instrument's execution reports are published to, or null
+	 * @param metrics The metrics the instrument's matching engine records into, or null
+	 * @return The index of the shard that owns the instrument
+	 * @throws IllegalArgumentException If the instrument was already added, or the partitioner returned a shard outside 0 to shardCount - 1
+	 */
+	public int addInstrument(String symbol, TickSize tickSize, ExecutionReportRingBuffer executionReports, EngineMetrics metrics) {
+		int shard = partitioner.shardFor(symbol, shards.length);
+		if (shard < 0 || shard >= shards.length) {
+			throw new IllegalArgumentException("Partitioner returned shard " + shard + " for " + symbol + ", expected 0 to " + (shards.length - 1));
+		}
+		MatchingEngine engine = new MatchingEngine(new OrderBook(tickSize), executionReports, metrics);
+		if (routes.putIfAbsent(symbol, new Route(shard, engine)) != null) {
+			throw new IllegalArgumentException("Instrument already added: " + symbol);
+		}
+		return shard;
+	}
+	
+	/**
+	 * Start the worker thread of every shard
+	 */
+	public void start() {
+		for (MatchingEngineIngress shard : shards) {
+			shard.start();
+		}
+	}
+	
+	/**
+	 * Route a command to the shard that owns its instrument, this can be called from any thread
+	 * If the shard's queue is full this yields until there is space.
+	 * 
+	 * @param command The command to apply
+	 */
+	public void submit(OrderCommand command) {
+		Route route = routes.get(command.getSymbol());
+		if (route == null) {
+			throw new IllegalArgumentException("Unknown instrument: " + command.getSymbol());
+		}
+		shards[route.shard].submit(command, route.engine);
+	}
+	
+	/**
+	 * Stop every shard once its queued commands have been applied, and wait for the worker threads to finish
+	 */
+	public void shutdown() throws InterruptedException {
+		for (MatchingEngineIngress shard : shards) {
+			shard.stop();
+		}
+	}
+	
+	/**
+	 * Get the order book of an instrument, it is only safe to read from another thread after shutdown
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @return The order book or null if the instrument is unknown
+	 */
+	public OrderBook getOrderBook(String symbol) {
+		Route route = routes.get(symbol);
+		return route == null ? null : route.engine.getOrderBook();
+	}
+	
+	/**
+	 * Get the index of the shard that owns an instrument
+	 * 
+	 * @param symbol The symbol of the instrument
+	 * @return The shard index or -1 if the instrument is unknown
+	 */
+	public int getShard(String symbol) {
+		Route route = routes.get(symbol);
+		return route == null ? -1 : route.shard;
+	}
+	
+	public int getShardCount() {
+		return shards.length;
+	}
+	
+	/**
+	 * @return The number of commands refused by the matching engines of every shard, each shard carries on after a refused command
+	 */
+	public long getRejectedCount() {
+		long rejected = 0;
+		for (MatchingEngineIngress shard : shards) {
+			rejected += shard.getRejectedCount();
+		}
+		return rejected;
+	}
+}
@@ -0,0 +1,71 @@
+package com.orderbook.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy interface that decides what a matcher thread does while its command queue is empty.
+ * The strategies trade CPU usage for latency:
+ * - busySpin keeps the core busy and reacts fastest, it needs a dedicated core
+ * - yielding spins briefly and then yields the core to other threads
+ * - parking spins briefly, yields and then sleeps for a short time, using the least CPU
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+	
+	/**
+	 * Wait once because the queue was empty
+	 * 
+	 * @param idleCount The number of times in a row the queue has been empty, 0 the first time
+	 * @return The idle count to pass to the next call, which must stop growing rather than wrap around on a long idle period
+	 */
+	int idle(int idleCount);
+	
+	/**
+	 * Count one more empty poll, saturating once every strategy has reached its last stage so the count never wraps negative
+	 */
+	private static int increment(int idleCount) {
+		return idleCount < 200 ? idleCount + 1 : idleCount;
+	}
+	
+	/**
+	 * Spin on the CPU without ever giving up the core
+	 */
+	static WaitStrategy busySpin() {
+		return idleCount -> {
+			Thread.onSpinWait();
+			return increment(idleCount);
+		};
+	}
+	
+	/**
+	 * Spin for the first 100 empty polls, then yield the core on every empty poll
+	 */
+	static WaitStrategy yielding() {
+		return idleCount -> {
+			if (idleCount < 100) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+			return increment(idleCount);
+		};
+	}
+	
+	/**
+	 * Spin for the first 100 empty polls, yield for the next 100, then park the thread
+	 * 
+	 * @param parkNanos How long to park the thread for each empty poll once it has stopped yielding
+	 */
+	static WaitStrategy parking(long parkNanos) {
+		return idleCount -> {
+			if (idleCount < 100) {
+				Thread.onSpinWait();
+			} else if (idleCount < 200) {
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(parkNanos);
+			}
+			return increment(idleCount);
+		};
+	}
+}
@@ -0,0 +1,13 @@
+/**
+ * This package contains the multi-instrument engine that runs many order books across worker threads.
+ * <p>
+ * It includes the commands sent to a matching engine and the sharding that routes them to the thread that owns each instrument.
+ * - {@link com.orderbook.engine.ShardedMatchingEngine} is the class that owns the order books of many instruments and routes commands to their shards.
+ * - {@link com.orderbook.engine.OrderCommand} is a single add, process, modify or cancel request for one instrument.
+ * - {@link com.orderbook.engine.ShardPartitioner} decides which shard owns an instrument.
+ * - {@link com.orderbook.engine.MatchingEngineIngress} is the lock-free multi-producer queue and matcher thread in front of a matching engine.
+ * - {@link com.orderbook.engine.WaitStrategy} decides what a matcher thread does while its queue is empty.
+ * - {@link com.orderbook.engine.RejectedCommandHandler} is told about a command the matching engine refused, which the matcher thread skips.
+ * </p>
+ */
+package com.orderbook.engine;
@@ -0,0 +1,23 @@
+package com.orderbook.event;
+
+import com.orderbook.model.OrderSide;
+
+/**
+ * Callback interface for the incremental price level changes (L2 depth deltas) of an order book.
+ * The listener is called on the thread that owns the order book, once for every price level an operation changed,
+ * so a feed handler can keep its own depth view up to date without reading the book.
+ */
+@FunctionalInterface
+public interface DepthListener {
+	
+	/**
+	 * Handle one price level change
+	 * 
+	 * @param type Whether the level is new, updated or deleted
+	 * @param side The side of the order book the level is on
+	 * @param price The price of the level in ticks
+	 * @param totalQuantity The total quantity now resting at the price, 0 for a DELETE
+	 * @param orderCount The number of orders now resting at the price, 0 for a DELETE
+	 */
+	void onDepthUpdate(DepthUpdateType type, OrderSide side, long price, long totalQuantity, int orderCount);
+}
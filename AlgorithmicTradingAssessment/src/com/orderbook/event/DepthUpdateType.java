@@ -0,0 +1,13 @@
+package com.orderbook.event;
+
+/**
+ * Enum that represents the type of a change to a price level, published to a DepthListener.
+ * NEW is sent when an order is added at a price that had no orders.
+ * UPDATE is sent when the total quantity or number of orders at a price changes and orders remain.
+ * DELETE is sent when the last order at a price is filled, cancelled or deleted.
+ */
+public enum DepthUpdateType {
+	NEW,
+	UPDATE,
+	DELETE;
+}
@@ -0,0 +1,91 @@
+package com.orderbook.event;
+
+import com.orderbook.model.OrderSide;
+
+/**
+ * The ExecutionReport class is a single event published by the matching engine.
+ * Execution reports are preallocated slots in an ExecutionReportRingBuffer and are overwritten as the ring wraps,
+ * so consumers must copy any field they need to keep after their handler returns.
+ * 
+ * For a FILL the order Id is the taker order, the maker order Id is the resting order it traded with,
+ * the price is the maker's price and the quantity is the traded quantity.
+ * For every other type the maker order Id is 0 and the quantity is the quantity of the order the report is about.
+ */
+public class ExecutionReport {
+	private long sequence; // The ring buffer sequence number of this report
+	private ExecutionType type;
+	private long orderId;
+	private long makerOrderId;
+	private OrderSide side; // The side of the order, or of the taker order for a FILL
+	private long price; // The price in ticks
+	private long quantity; // The quantity in lots
+	private long leavesQuantity; // The quantity of the order (the taker for a FILL) still open after this event
+	private long makerLeavesQuantity; // The quantity of the maker order still open after a FILL
+	
+	/**
+	 * Set every field of the report, used by the matching engine before publishing the slot
+	 */
+	void set(long sequence, ExecutionType type, long orderId, long makerOrderId, OrderSide side,
+			long price, long quantity, long leavesQuantity, long makerLeavesQuantity) {
+		this.sequence = sequence;
+		this.type = type;
+		this.orderId = orderId;
+		this.makerOrderId = makerOrderId;
+		this.side = side;
+		this.price = price;
+		this.quantity = quantity;
+		this.leavesQuantity = leavesQuantity;
+		this.makerLeavesQuantity = makerLeavesQuantity;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	
+	public ExecutionType getType() {
+		return type;
+	}
+	
+	public long getOrderId() {
+		return orderId;
+	}
+	
+	public long getTakerOrderId() {
+		return orderId;
+	}
+	
+	public long getMakerOrderId() {
+		return makerOrderId;
+	}
+	
+	public OrderSide getSide() {
+		return side;
+	}
+	
+	public long getPrice() {
+		return price;
+	}
+	
+	public long getQuantity() {
+		return quantity;
+	}
+	
+	public long getLeavesQuantity() {
+		return leavesQuantity;
+	}
+	
+	public long getMakerLeavesQuantity() {
+		return makerLeavesQuantity;
+	}
+	
+	@Override
+	public String toString() {
+		return "ExecutionReport{sequence=" + sequence + ", type=" + type + ", orderId=" + orderId
+				+ ", makerOrderId=" + makerOrderId + ", side=" + side + ", price=" + price
+				+ ", quantity=" + quantity + ", leavesQuantity=" + leavesQuantity
+				+ ", makerLeavesQuantity=" + makerLeavesQuantity + "}";
+	}
+}
@@ -0,0 +1,46 @@
+package com.orderbook.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ExecutionReportConsumer class reads execution reports from an ExecutionReportRingBuffer on its own thread.
+ * Each consumer sees every report in sequence order. A consumer must only be polled by one thread at a time.
+ */
+public class ExecutionReportConsumer {
+	private final ExecutionReportRingBuffer ringBuffer;
+	private final AtomicLong sequence; // The sequence of the last report this consumer has read
+	
+	ExecutionReportConsumer(ExecutionReportRingBuffer ringBuffer, AtomicLong sequence) {
+		this.ringBuffer = ringBuffer;
+		this.sequence = sequence;
+	}
+	
+	/**
+	 * Hand every report published since the last poll to the handler, without blocking
+	 * 
+	 * 1. Read the ring buffer cursor to find the last published report
+	 * 2. Call the handler for each report up to that cursor, in sequence order
+	 * 3. Store the new sequence, which lets the producer reuse those slots
+	 * 
+	 * @param handler The handler to call for each report
+	 * @return The number of reports handled, 0 if none were available
+	 */
+	public int poll(ExecutionReportHandler handler) {
+		long current = sequence.get();
+		long available = ringBuffer.cursor.get();
+		for (long next = current + 1; next <= available; next++) {
+			handler.onExecutionReport(ringBuffer.slot(next));
+		}
+		if (available > current) {
+			sequence.lazySet(available); // Ordered write, the slots are released only after they have been read
+		}
+		return (int) (available - current);
+	}
+	
+	/**
+	 * Get the sequence of the last report this consumer has read
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+}
@@ -0,0 +1,15 @@
+package com.orderbook.event;
+
+/**
+ * Callback interface used by an ExecutionReportConsumer to hand each available report to the consumer's code.
+ */
+@FunctionalInterface
+public interface ExecutionReportHandler {
+	
+	/**
+	 * Handle one execution report, the report slot is reused once this returns
+	 * 
+	 * @param report The execution report
+	 */
+	void onExecutionReport(ExecutionReport report);
+}
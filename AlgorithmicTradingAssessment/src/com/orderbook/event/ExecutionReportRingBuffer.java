@@ -0,0 +1,114 @@
+package com.orderbook.event;
+
+import com.orderbook.model.OrderSide;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ExecutionReportRingBuffer class carries execution reports from the matching engine thread to consumers on other threads.
+ * 
+ * 1. Every slot is preallocated, so publishing a report fills an existing ExecutionReport and allocates nothing
+ * 2. There is a single producer (the thread that owns the matching engine), which claims sequences without any atomic instruction
+ * 3. A published report is made visible to consumers with an ordered write of the cursor, consumers never take a lock
+ * 4. Each consumer has its own sequence, and the producer waits rather than overwrite a report the slowest consumer has not read
+ * 
+ * Consumers should be added before the producer starts publishing. With no consumers the ring simply overwrites old reports.
+ */
+public class ExecutionReportRingBuffer {
+	private final ExecutionReport[] slots;
+	private final int mask;
+	
+	// The sequence of the last published report, read by consumers
+	final AtomicLong cursor = new AtomicLong(-1);
+	
+	// The last sequence claimed by the producer, only ever touched by the producer thread
+	private long claimed = -1;
+	
+	// The slowest consumer sequence the producer last saw, so it doesn't read every consumer on every claim
+	private long cachedGatingSequence = -1;
+	
+	private volatile AtomicLong[] consumerSequences = new AtomicLong[0];
+	
+	/**
+	 * 
+	 * @param capacity The number of report slots, which must be a power of two
+	 */
+	public ExecutionReportRingBuffer(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+		}
+		slots = new ExecutionReport[capacity];
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new ExecutionReport();
+		}
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Add a consumer that will read every report published after this call
+	 * 
+	 * @return The new consumer
+	 */
+	public synchronized ExecutionReportConsumer newConsumer() {
+		AtomicLong sequence = new AtomicLong(cursor.get());
+		AtomicLong[] sequences = Arrays.copyOf(consumerSequences, consumerSequences.length + 1);
+		sequences[sequences.length - 1] = sequence;
+		consumerSequences = sequences;
+		return new ExecutionReportConsumer(this, sequence);
+	}
+	
+	/**
+	 * Claim, fill and publish one report, waiting if the slowest consumer is a full ring behind
+	 * 
+	 * This publish method is O(1) complexity and allocates nothing
+	 * 
+	 * @return The sequence number of the published report
+	 */
+	public long publish(ExecutionType type, long orderId, long makerOrderId, OrderSide side,
+			long price, long quantity, long leavesQuantity, long makerLeavesQuantity) {
+		long sequence = ++claimed;
+		long wrapPoint = sequence - slots.length;
+		if (wrapPoint > cachedGatingSequence) {
+			long minimum;
+			int spins = 0;
+			while (wrapPoint > (minimum = minimumConsumerSequence(sequence))) {
+				// The slowest consumer hasn't read the slot yet, spin briefly and then yield the core to it
+				if (++spins < 100) {
+					Thread.onSpinWait();
+				} else {
+					Thread.yield();
+				}
+			}
+			cachedGatingSequence = minimum;
+		}
+		slots[(int) sequence & mask].set(sequence, type, orderId, makerOrderId, side, price, quantity, leavesQuantity, makerLeavesQuantity);
+		cursor.lazySet(sequence); // Ordered write, the report fields become visible before the cursor does
+		return sequence;
+	}
+	
+	/**
+	 * Get the sequence of the slowest consumer, or the producer's own sequence if there are no consumers
+	 */
+	private long minimumConsumerSequence(long sequence) {
+		long minimum = sequence;
+		for (AtomicLong consumerSequence : consumerSequences) {
+			minimum = Math.min(minimum, consumerSequence.get());
+		}
+		return minimum;
+	}
+	
+	ExecutionReport slot(long sequence) {
+		return slots[(int) sequence & mask];
+	}
+	
+	/**
+	 * Get the sequence of the last published report, -1 if nothing has been published
+	 */
+	public long getCursor() {
+		return cursor.get();
+	}
+	
+	public int getCapacity() {
+		return slots.length;
+	}
+}
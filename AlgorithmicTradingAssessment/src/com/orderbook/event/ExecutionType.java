@@ -0,0 +1,20 @@
+package com.orderbook.event;
+
+/**
+ * Enum that represents the type of an execution report published by the matching engine.
+ * ACCEPTED is sent when an incoming order is accepted by the matching engine.
+ * FILL is sent for every trade between an incoming (taker) order and a resting (maker) order,
+ * and for every order filled by an auction uncross, which is reported once per order with no maker order Id.
+ * RESTED is sent when the remaining quantity of an incoming order is added to the order book, or a stop order is parked.
+ * TRIGGERED is sent when a parked stop order is triggered and enters the matching engine as a market order.
+ * MODIFIED is sent when the quantity of a resting order is modified.
+ * CANCELLED is sent when a resting order is cancelled, or when an unfilled remainder is not allowed to rest.
+ */
+public enum ExecutionType {
+	ACCEPTED,
+	FILL,
+	RESTED,
+	TRIGGERED,
+	MODIFIED,
+	CANCELLED;
+}
@@ -0,0 +1,11 @@
+/**
+ * This package contains the execution report stream published by the matching engine.
+ * <p>
+ * It includes the events that describe what the matching engine did with each order, and the lock-free ring buffer that carries them to other threads.
+ * - {@link com.orderbook.event.ExecutionReport} is a single accept, fill, rest, modify or cancel event.
+ * - {@link com.orderbook.event.ExecutionType} specifies the type of an execution report.
+ * - {@link com.orderbook.event.ExecutionReportRingBuffer} is the preallocated single producer ring buffer the matching engine publishes into.
+ * - {@link com.orderbook.event.ExecutionReportConsumer} reads the reports from the ring buffer on a consumer thread.
+ * </p>
+ */
+package com.orderbook.event;
@@ -0,0 +1,50 @@
+package com.orderbook.level;
+
+/**
+ * Strategy interface that finds the price levels of one side of an order book by price, and walks them from the best price.
+ * A level is known by an int handle the book gives it, e.g. the index of its slot, so no price is boxed and no tree node or map entry is created per level.
+ * The strategies trade memory for speed:
+ * - SortedLevelIndex keeps the levels in a sorted array, it finds a level in O(log P) and suits any spread of prices
+ * - PriceLadder indexes the levels by their tick offset in a band of prices, it finds a level in O(1) and needs prices to stay near the band
+ */
+public interface LevelIndex {
+	int NONE = -1; // The handle of no level
+	
+	/**
+	 * Find the level at a price
+	 * 
+	 * @param price The price in ticks
+	 * @return The level's handle, or NONE if there is no level at the price
+	 */
+	int find(long price);
+	
+	/**
+	 * Add a new level at a price that has no level yet
+	 */
+	void insert(long price, int level);
+	
+	/**
+	 * Remove the level at a price, which must have a level
+	 * 
+	 * @return The handle of the removed level
+	 */
+	int remove(long price);
+	
+	/**
+	 * @return The best level's handle, or NONE if the side is empty
+	 */
+	int best();
+	
+	/**
+	 * Get the next level away from the best price, used to walk the side in price order
+	 * 
+	 * @param price The price in ticks of the level walked last, which need not have a level
+	 * @return The handle of the level at the best price that is worse than the given price, or NONE if there is none
+	 */
+	int next(long price);
+	
+	/**
+	 * @return The number of levels on the side
+	 */
+	int size();
+}
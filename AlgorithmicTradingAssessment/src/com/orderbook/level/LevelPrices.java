@@ -0,0 +1,14 @@
+package com.orderbook.level;
+
+/**
+ * Callback interface that reads the price of a level from the book that holds it, used by a PriceLadder to order the levels outside its band
+ */
+@FunctionalInterface
+public interface LevelPrices {
+
+	/**
+	 * @param level The level's handle
+	 * @return The price of the level in ticks
+	 */
+	long levelPrice(int level);
+}
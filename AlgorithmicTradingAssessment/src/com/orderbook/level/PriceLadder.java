@@ -0,0 +1,285 @@
+package com.orderbook.level;
+
+import java.util.Arrays;
+
+/**
+ * The PriceLadder class finds the price levels of one side of an order book by direct indexing into a band of prices.
+ * 
+ * 1. The band is a fixed number of ticks from a base price, the level handle at each price is held in an array indexed by its tick offset from the base
+ * 2. An occupancy bitmap has one bit per tick of the band, set when the price has a level
+ * 3. A level is found, added and removed by its offset with no search, and the best level is cached
+ * 4. The next level away from a price is found a 64 tick word of the bitmap at a time (Long.numberOfLeadingZeros and numberOfTrailingZeros)
+ * 5. A price outside the band re-centers the band on the prices in use when they all fit in it, moving the levels in one pass
+ * 6. Otherwise the price falls back to a SortedLevelIndex that holds the levels outside the band, and the two are merged when walking the side
+ * 
+ * Most instruments trade within a bounded band of ticks around the mid, so almost every level is found in O(1).
+ */
+public final class PriceLadder implements LevelIndex {
+	private final boolean buy;
+	private final LevelPrices prices; // Reads the prices of the levels found outside the band
+	private final int ticks; // The width of the band
+	private final int[] levels; // The level handle at each tick offset, only valid where the occupancy bit is set
+	private long[] occupied; // The occupancy bitmap, bit i of word i / 64 is set if the tick offset i has a level
+	private long[] spare; // A second bitmap to rebuild the occupancy bitmap into when the band moves
+	private final SortedLevelIndex outside; // The levels outside the band
+	private long base; // The price at tick offset 0
+	private int size; // The number of levels in the band
+	private int bestOffset = -1; // The tick offset of the best level in the band, -1 if the band is empty
+	
+	/**
+	 * 
+	 * @param buy True for the buy side
+	 * @param ticks The width of the band in ticks
+	 * @param capacity The number of price levels outside the band the side can hold before the fallback index grows
+	 * @param prices Reads the price of a level from the book that holds it
+	 */
+	public PriceLadder(boolean buy, int ticks, int capacity, LevelPrices prices) {
+		if (ticks <= 0) {
+			throw new IllegalArgumentException("Price ladder must be at least 1 tick wide: " + ticks);
+		}
+		this.buy = buy;
+		this.prices = prices;
+		this.ticks = ticks;
+		this.levels = new int[ticks];
+		this.occupied = new long[(ticks + 63) >>> 6];
+		this.spare = new long[occupied.length];
+		this.outside = new SortedLevelIndex(buy, capacity);
+	}
+	
+	/**
+	 * @return The tick offset of a price from the base, or -1 if the price is outside the band
+	 */
+	private int offset(long price) {
+		long offset = price - base;
+		return offset >= 0 && offset < ticks ? (int) offset : -1;
+	}
+	
+	private boolean isOccupied(int offset) {
+		return (occupied[offset >>> 6] & (1L << offset)) != 0;
+	}
+	
+	/**
+	 * This find method is O(1) complexity for a price in the band, and O(log P) outside it
+	 */
+	@Override
+	public int find(long price) {
+		int offset = offset(price);
+		if (offset >= 0) {
+			return isOccupied(offset) ? levels[offset] : NONE;
+		}
+		return outside.find(price);
+	}
+	
+	/**
+	 * Add a new level, re-centering the band on it if it is outside the band and the band can move to hold it
+	 * 
+	 * This insert method is O(1) complexity in the band, O(T / 64 + L) when the band moves, T being the ticks of the band and L the levels moved,
+	 * and O(log P + D) when the level falls outside the band
+	 */
+	@Override
+	public void insert(long price, int level) {
+		int offset = offset(price);
+		if (offset < 0 && recenter(price)) {
+			offset = offset(price);
+		}
+		if (offset < 0) {
+			outside.insert(price, level);
+			return;
+		}
+		levels[offset] = level;
+		occupied[offset >>> 6] |= 1L << offset;
+		size++;
+		if (bestOffset < 0 || (buy ? offset > bestOffset : offset < bestOffset)) {
+			bestOffset = offset;
+		}
+	}
+	
+	/**
+	 * This remove method is O(1) complexity in the band, plus O(T / 64) when the best level is removed and the band is sparse
+	 */
+	@Override
+	public int remove(long price) {
+		int offset = offset(price);
+		if (offset < 0) {
+			return outside.remove(price);
+		}
+		occupied[offset >>> 6] &= ~(1L << offset);
+		size--;
+		if (offset == bestOffset) {
+			bestOffset = nextOffset(offset);
+		}
+		return levels[offset];
+	}
+	
+	/**
+	 * This best method is O(1) complexity
+	 */
+	@Override
+	public int best() {
+		int outsideBest = outside.best();
+		if (bestOffset < 0) {
+			return outsideBest;
+		}
+		if (outsideBest != NONE && isBetter(prices.levelPrice(outsideBest), base + bestOffset)) {
+			return outsideBest; // A level outside the band on its better side
+		}
+		return levels[bestOffset];
+	}
+	
+	/**
+	 * This next method is O(T / 64) complexity in the worst case, and O(1) when the next level is in the same bitmap word
+	 */
+	@Override
+	public int next(long price) {
+		int inside = NONE;
+		if (size > 0) {
+			// Clamp the price into the band, one tick past the band's better end if the price is beyond it
+			long offset = price - base;
+			int nextOffset;
+			if (buy) {
+				nextOffset = offset <= 0 ? -1 : nextOffset((int) Math.min(offset, ticks));
+			} else {
+				nextOffset = offset >= ticks - 1 ? -1 : nextOffset((int) Math.max(offset, -1));
+			}
+			inside = nextOffset < 0 ? NONE : levels[nextOffset];
+		}
+		int beyond = outside.next(price);
+		if (inside == NONE) {
+			return beyond;
+		}
+		if (beyond != NONE && isBetter(prices.levelPrice(beyond), prices.levelPrice(inside))) {
+			return beyond;
+		}
+		return inside;
+	}
+	
+	@Override
+	public int size() {
+		return size + outside.size();
+	}
+	
+	private boolean isBetter(long price, long than) {
+		return buy ? price > than : price < than;
+	}
+	
+	/**
+	 * Find the nearest occupied tick offset worse than the given offset, scanning the bitmap a word at a time
+	 * 
+	 * @param offset The tick offset to start from, which may be one past either end of the band
+	 * @return The tick offset, or -1 if no worse offset is occupied
+	 */
+	private int nextOffset(int offset) {
+		if (buy) {
+			// Worse is lower, find the highest set bit below the offset
+			if (offset <= 0) {
+				return -1;
+			}
+			int word = (offset - 1) >>> 6;
+			long bits = occupied[word] & (-1L >>> (63 - ((offset - 1) & 63)));
+			while (bits == 0) {
+				if (--word < 0) {
+					return -1;
+				}
+				bits = occupied[word];
+			}
+			return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+		}
+		// Worse is higher, find the lowest set bit above the offset
+		if (offset + 1 >= ticks) {
+			return -1;
+		}
+		int word = (offset + 1) >>> 6;
+		long bits = occupied[word] & (-1L << ((offset + 1) & 63));
+		while (bits == 0) {
+			if (++word == occupied.length) {
+				return -1;
+			}
+			bits = occupied[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+	
+	/**
+	 * Move the band so it holds a new price as well as every level already in it:
+	 * 1. Find the lowest and highest prices in the band from the first and last set bits of the bitmap
+	 * 2. Give up if the new price and those levels span more ticks than the band
+	 * 3. Center the new band on the span, rebuild the bitmap into the spare bitmap and move the level handles with one array copy
+	 * 4. Move any levels outside the band that the new band covers into it
+	 * 
+	 * This recenter method is O(T / 64 + L) complexity, plus O(log P) for each level moved in from outside the band
+	 * 
+	 * @return True if the band was moved, false if the price has to be held outside the band
+	 */
+	private boolean recenter(long price) {
+		long low = price;
+		long high = price;
+		int lowOffset = -1;
+		int highOffset = -1;
+		if (size > 0) {
+			lowOffset = firstOffset();
+			highOffset = lastOffset();
+			low = Math.min(low, base + lowOffset);
+			high = Math.max(high, base + highOffset);
+		}
+		if (high - low >= ticks) {
+			return false;
+		}
+		long newBase = Math.min(low, Math.max(high - ticks + 1, low + (high - low) / 2 - ticks / 2));
+		if (size > 0) {
+			int shift = (int) (base - newBase); // The change in tick offset of every level in the band
+			System.arraycopy(levels, lowOffset, levels, lowOffset + shift, highOffset - lowOffset + 1);
+			Arrays.fill(spare, 0);
+			for (int word = 0; word < occupied.length; word++) {
+				for (long bits = occupied[word]; bits != 0; bits &= bits - 1) {
+					int offset = (word << 6) + Long.numberOfTrailingZeros(bits) + shift;
+					spare[offset >>> 6] |= 1L << offset;
+				}
+			}
+			long[] bitmap = occupied;
+			occupied = spare;
+			spare = bitmap;
+			bestOffset += shift;
+		}
+		base = newBase;
+		
+		// Bring in the levels outside the band that the band now covers, best price first
+		for (int level = outside.best(); level != NONE; ) {
+			long levelPrice = prices.levelPrice(level);
+			int next = outside.next(levelPrice);
+			int offset = offset(levelPrice);
+			if (offset >= 0) {
+				outside.remove(levelPrice);
+				levels[offset] = level;
+				occupied[offset >>> 6] |= 1L << offset;
+				size++;
+				if (bestOffset < 0 || (buy ? offset > bestOffset : offset < bestOffset)) {
+					bestOffset = offset;
+				}
+			}
+			level = next;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return The lowest occupied tick offset, the band must not be empty
+	 */
+	private int firstOffset() {
+		int word = 0;
+		while (occupied[word] == 0) {
+			word++;
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(occupied[word]);
+	}
+	
+	/**
+	 * @return The highest occupied tick offset, the band must not be empty
+	 */
+	private int lastOffset() {
+		int word = occupied.length - 1;
+		while (occupied[word] == 0) {
+			word--;
+		}
+		return (word << 6) + 63 - Long.numberOfLeadingZeros(occupied[word]);
+	}
+}
@@ -0,0 +1,102 @@
+package com.orderbook.level;
+
+import java.util.Arrays;
+
+/**
+ * The SortedLevelIndex class finds the price levels of one side of an order book by price, and keeps them in price order.
+ * 
+ * 1. The prices and level handles are held in two primitive arrays sorted from the worst price to the best, so the best level is the last entry
+ * 2. A level is found by binary search, with no boxed key and no tree node per level
+ * 3. Levels are added and removed by shifting the entries between them and the best price, which is a short memory move for levels near the touch
+ * 4. Removing the best level, the common case when an order sweeps the book, is O(1)
+ * 5. The arrays double in size when they are full, so a book without a fixed capacity can use the index
+ * 
+ * Buy prices are stored as they are and sell prices negated, so both sides sort ascending towards their best price.
+ */
+public final class SortedLevelIndex implements LevelIndex {
+	private final boolean buy;
+	private long[] keys; // The prices, negated for the sell side, ascending so the best price is last
+	private int[] levels; // The level handle at each price
+	private int size;
+	
+	/**
+	 * 
+	 * @param buy True for the buy side
+	 * @param capacity The number of price levels the side can hold before the index grows
+	 */
+	public SortedLevelIndex(boolean buy, int capacity) {
+		this.buy = buy;
+		this.keys = new long[Math.max(capacity, 1)];
+		this.levels = new int[keys.length];
+	}
+	
+	private long key(long price) {
+		return buy ? price : -price;
+	}
+	
+	/**
+	 * This find method is O(log P) complexity, P being the number of levels on the side
+	 */
+	@Override
+	public int find(long price) {
+		int index = Arrays.binarySearch(keys, 0, size, key(price));
+		return index >= 0 ? levels[index] : NONE;
+	}
+	
+	/**
+	 * This insert method is O(log P + D) complexity, D being the number of levels between the new level and the best price,
+	 * plus O(P) when the arrays grow
+	 */
+	@Override
+	public void insert(long price, int level) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			levels = Arrays.copyOf(levels, size * 2);
+		}
+		int index = -Arrays.binarySearch(keys, 0, size, key(price)) - 1;
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(levels, index, levels, index + 1, size - index);
+		keys[index] = key(price);
+		levels[index] = level;
+		size++;
+	}
+	
+	/**
+	 * This remove method is O(log P + D) complexity, and O(1) for the best level
+	 */
+	@Override
+	public int remove(long price) {
+		int index = size - 1;
+		if (keys[index] != key(price)) {
+			index = Arrays.binarySearch(keys, 0, size, key(price));
+		}
+		int level = levels[index];
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+		size--;
+		return level;
+	}
+	
+	/**
+	 * This best method is O(1) complexity
+	 */
+	@Override
+	public int best() {
+		return size == 0 ? NONE : levels[size - 1];
+	}
+	
+	/**
+	 * This next method is O(log P) complexity
+	 */
+	@Override
+	public int next(long price) {
+		int index = Arrays.binarySearch(keys, 0, size, key(price));
+		index = index >= 0 ? index - 1 : -index - 2; // The entry before the price, one step away from the best price
+		return index >= 0 ? levels[index] : NONE;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,11 @@
+/**
+ * This package contains the price level indexes shared by the heap and off-heap order books.
+ * <p>
+ * A book gives each of its price levels an int handle and finds them by price through one index per side, so no price is boxed.
+ * - {@link com.orderbook.level.LevelIndex} is how the levels of one side are found by price and walked from the best price.
+ * - {@link com.orderbook.level.SortedLevelIndex} is the price ordered index of the levels of one side.
+ * - {@link com.orderbook.level.PriceLadder} is the direct indexed band of levels of one side, with an occupancy bitmap and a fallback for prices outside the band.
+ * - {@link com.orderbook.level.LevelPrices} reads the price of a level from the book that holds it.
+ * </p>
+ */
+package com.orderbook.level;
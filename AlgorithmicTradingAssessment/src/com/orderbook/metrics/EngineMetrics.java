@@ -0,0 +1,156 @@
+package com.orderbook.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The EngineMetrics class holds the instrumentation of one matching engine:
+ * 1. A latency histogram per operation (add, cancel, modify and match), see LatencyHistogram
+ * 2. Counters of matches, fills and price levels walked while matching
+ * 3. A gauge of the number of orders resting in the order book
+ * 
+ * The matching engine is the only writer, so every counter is updated with an ordered write and no atomic instruction or lock.
+ * The values can be read from any thread through snapshot or the getters, or over JMX once the metrics are registered.
+ * A single EngineMetrics must not be shared by matching engines on different threads.
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+	private final LatencyHistogram[] latencies = new LatencyHistogram[EngineOperation.values().length];
+	private final AtomicLong fills = new AtomicLong();
+	private final AtomicLong matches = new AtomicLong();
+	private final AtomicLong levelsWalked = new AtomicLong();
+	private final AtomicLong maxLevelsWalked = new AtomicLong();
+	private final AtomicLong restingOrders = new AtomicLong();
+	
+	public EngineMetrics() {
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+	}
+	
+	/**
+	 * Record the latency of one operation
+	 * 
+	 * @param operation The operation that was timed
+	 * @param nanos The time the operation took in nanoseconds
+	 */
+	public void recordLatency(EngineOperation operation, long nanos) {
+		latencies[operation.ordinal()].record(nanos);
+	}
+	
+	/**
+	 * Record one processed incoming order
+	 * 
+	 * @param fillCount The number of fills the order traded
+	 * @param levels The number of price levels the order walked while matching
+	 */
+	public void recordMatch(int fillCount, int levels) {
+		matches.lazySet(matches.get() + 1);
+		fills.lazySet(fills.get() + fillCount);
+		levelsWalked.lazySet(levelsWalked.get() + levels);
+		if (levels > maxLevelsWalked.get()) {
+			maxLevelsWalked.lazySet(levels);
+		}
+	}
+	
+	/**
+	 * Update the resting book size gauge
+	 * 
+	 * @param orders The number of orders resting in the order book
+	 */
+	public void setRestingOrders(long orders) {
+		restingOrders.lazySet(orders);
+	}
+	
+	/**
+	 * Get the latency histogram of an operation, to take its snapshot or its count
+	 * 
+	 * @param operation
+	 * @return The histogram the operation's latencies are recorded into
+	 */
+	public LatencyHistogram getLatency(EngineOperation operation) {
+		return latencies[operation.ordinal()];
+	}
+	
+	/**
+	 * Register these metrics with the platform MBean server under com.orderbook:type=EngineMetrics,name=<name>
+	 * 
+	 * @param name The name of the engine, usually its instrument symbol
+	 * @return The name the metrics were registered under
+	 */
+	public ObjectName register(String name) {
+		try {
+			ObjectName objectName = ObjectName.getInstance("com.orderbook:type=EngineMetrics,name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register engine metrics: " + name, e);
+		}
+	}
+	
+	@Override
+	public HistogramSnapshot getAddLatency() {
+		return latencies[EngineOperation.ADD.ordinal()].snapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getCancelLatency() {
+		return latencies[EngineOperation.CANCEL.ordinal()].snapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getModifyLatency() {
+		return latencies[EngineOperation.MODIFY.ordinal()].snapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getMatchLatency() {
+		return latencies[EngineOperation.MATCH.ordinal()].snapshot();
+	}
+	
+	@Override
+	public long getFillCount() {
+		return fills.get();
+	}
+	
+	@Override
+	public long getMatchCount() {
+		return matches.get();
+	}
+	
+	@Override
+	public long getLevelsWalked() {
+		return levelsWalked.get();
+	}
+	
+	@Override
+	public long getMaxLevelsWalked() {
+		return maxLevelsWalked.get();
+	}
+	
+	@Override
+	public double getMeanLevelsWalked() {
+		long matchCount = matches.get();
+		return matchCount == 0 ? 0 : (double) levelsWalked.get() / matchCount;
+	}
+	
+	@Override
+	public long getRestingOrders() {
+		return restingOrders.get();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("EngineMetrics:\n");
+		for (EngineOperation operation : EngineOperation.values()) {
+			sb.append("  ").append(operation).append(": ").append(latencies[operation.ordinal()].snapshot()).append("\n");
+		}
+		sb.append(String.format("  Matches: %d, Fills: %d, Levels walked: %d (mean %.2f, max %d), Resting orders: %d\n",
+				getMatchCount(), getFillCount(), getLevelsWalked(), getMeanLevelsWalked(), getMaxLevelsWalked(), getRestingOrders()));
+		return sb.toString();
+	}
+}
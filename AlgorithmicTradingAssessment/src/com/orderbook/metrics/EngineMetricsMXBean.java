@@ -0,0 +1,27 @@
+package com.orderbook.metrics;
+
+/**
+ * The management interface of EngineMetrics, registered with the platform MBean server by EngineMetrics.register.
+ * Latencies are in nanoseconds and each histogram is read as composite data (see HistogramSnapshot).
+ */
+public interface EngineMetricsMXBean {
+	HistogramSnapshot getAddLatency();
+	
+	HistogramSnapshot getCancelLatency();
+	
+	HistogramSnapshot getModifyLatency();
+	
+	HistogramSnapshot getMatchLatency();
+	
+	long getFillCount();
+	
+	long getMatchCount();
+	
+	long getLevelsWalked();
+	
+	long getMaxLevelsWalked();
+	
+	double getMeanLevelsWalked();
+	
+	long getRestingOrders();
+}
@@ -0,0 +1,15 @@
+package com.orderbook.metrics;
+
+/**
+ * Enum that represents an operation of the matching engine whose latency is recorded.
+ * ADD is a passive add of an order straight to the order book.
+ * CANCEL is the cancellation of a resting order.
+ * MODIFY is a modification of the quantity of a resting order.
+ * MATCH is an incoming order processed by the matching engine, including any fills and the rest of its remainder.
+ */
+public enum EngineOperation {
+	ADD,
+	CANCEL,
+	MODIFY,
+	MATCH;
+}
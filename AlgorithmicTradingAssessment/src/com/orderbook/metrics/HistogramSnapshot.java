@@ -0,0 +1,73 @@
+package com.orderbook.metrics;
+
+/**
+ * The HistogramSnapshot class is an immutable summary of a LatencyHistogram at one point in time.
+ * All latencies are in nanoseconds, percentiles are the upper bound of the bucket they fall in.
+ * The getters make it readable as composite data through the EngineMetricsMXBean.
+ */
+public final class HistogramSnapshot {
+	private final long count;
+	private final long total;
+	private final long max;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+	private final long p9999;
+	
+	HistogramSnapshot(long count, long total, long max, long p50, long p90, long p99, long p999, long p9999) {
+		this.count = count;
+		this.total = total;
+		this.max = max;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.p9999 = p9999;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	public long getTotal() {
+		return total;
+	}
+	
+	public long getMax() {
+		return max;
+	}
+	
+	public double getMean() {
+		return count == 0 ? 0 : (double) total / count;
+	}
+	
+	public long getP50() {
+		return p50;
+	}
+	
+	public long getP90() {
+		return p90;
+	}
+	
+	public long getP99() {
+		return p99;
+	}
+	
+	public long getP999() {
+		return p999;
+	}
+	
+	public long getP9999() {
+		return p9999;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1fns p50=%dns p90=%dns p99=%dns p99.9=%dns p99.99=%dns max=%dns",
+				count, getMean(), p50, p90, p99, p999, p9999, max);
+	}
+}
@@ -0,0 +1,119 @@
+package com.orderbook.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class records latencies in nanoseconds into log-linear buckets.
+ * 
+ * 1. Values below 64 each get their own bucket, so short latencies are exact
+ * 2. Above that, every power of two range is split into 32 equal buckets, so a recorded value is never more than ~3% from its bucket
+ * 3. The buckets are allocated up front and cover every positive long, so recording never allocates or resizes
+ * 4. There is a single writer (the thread that owns the matching engine), which updates the counts with ordered writes rather than atomic instructions
+ * 
+ * Any thread can take a snapshot while the writer is recording, a snapshot may be a few recordings behind the writer.
+ */
+public final class LatencyHistogram {
+	// Each power of two range above 64 is split into 2^SUB_BUCKET_BITS buckets
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	// The bucket index of the largest positive long, plus one
+	static final int BUCKET_COUNT = bucketIndex(Long.MAX_VALUE) + 1;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Record one latency, negative values are recorded as 0
+	 * 
+	 * This record method is O(1) complexity and allocates nothing
+	 * 
+	 * @param nanos The latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		int index = bucketIndex(value);
+		// Only the writer thread updates the histogram, so a plain read followed by an ordered write cannot lose a count
+		counts.lazySet(index, counts.get(index) + 1);
+		total.lazySet(total.get() + value);
+		if (value > max.get()) {
+			max.lazySet(value);
+		}
+		count.lazySet(count.get() + 1);
+	}
+	
+	/**
+	 * Take a copy of the histogram and summarise it
+	 * 
+	 * This snapshot method is O(B) complexity, B being the fixed number of buckets, and is meant to be called off the hot path
+	 * 
+	 * @return The summary of every latency recorded so far
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] copy = new long[BUCKET_COUNT];
+		long recorded = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			copy[i] = counts.get(i);
+			recorded += copy[i];
+		}
+		long maxValue = max.get();
+		// A bucket's upper bound can be above the largest value recorded in it, so percentiles are capped at the max
+		return new HistogramSnapshot(recorded, total.get(), maxValue,
+				Math.min(valueAtPercentile(copy, recorded, 50.0), maxValue),
+				Math.min(valueAtPercentile(copy, recorded, 90.0), maxValue),
+				Math.min(valueAtPercentile(copy, recorded, 99.0), maxValue),
+				Math.min(valueAtPercentile(copy, recorded, 99.9), maxValue),
+				Math.min(valueAtPercentile(copy, recorded, 99.99), maxValue));
+	}
+	
+	/**
+	 * @return The number of latencies recorded so far
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * Find the bucket of a value:
+	 * 1. Values below 2 * SUB_BUCKET_COUNT are their own bucket
+	 * 2. Otherwise shift the value right until only its top SUB_BUCKET_BITS + 1 bits remain
+	 * 3. The bucket is the shift (the power of two range) followed by those top bits (the linear position in that range)
+	 */
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT << 1) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+	
+	/**
+	 * @return The highest value that falls into a bucket, which is what percentiles report so they never understate a latency
+	 */
+	static long highestValueInBucket(int index) {
+		if (index < SUB_BUCKET_COUNT << 1) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long lowest = (long) ((index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+	
+	private static long valueAtPercentile(long[] counts, long recorded, double percentile) {
+		if (recorded == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return highestValueInBucket(i);
+			}
+		}
+		return highestValueInBucket(counts.length - 1);
+	}
+}
@@ -0,0 +1,12 @@
+/**
+ * This package contains the instrumentation of the matching engine.
+ * <p>
+ * It includes allocation-free latency histograms and counters recorded on the matching thread and read from any other thread or over JMX.
+ * - {@link com.orderbook.metrics.EngineMetrics} holds the latency histograms, counters and gauges of one matching engine.
+ * - {@link com.orderbook.metrics.EngineMetricsMXBean} is the JMX interface of the engine metrics.
+ * - {@link com.orderbook.metrics.EngineOperation} specifies the operations whose latency is recorded.
+ * - {@link com.orderbook.metrics.LatencyHistogram} records latencies into preallocated log-linear buckets.
+ * - {@link com.orderbook.metrics.HistogramSnapshot} is the summary (count, mean, percentiles and max) of a histogram.
+ * </p>
+ */
+package com.orderbook.metrics;
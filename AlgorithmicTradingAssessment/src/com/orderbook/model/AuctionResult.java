@@ -0,0 +1,51 @@
+package com.orderbook.model;
+
+/**
+ * The AuctionResult class is an immutable result of a call auction uncross, as computed by OrderBook.computeUncross.
+ * It holds the equilibrium price, the volume executed at it, and the buy and sell quantity left unmatched at that price.
+ * If the book is not crossed no price is found, the price is OrderBook.NO_PRICE and the volume is 0.
+ */
+public final class AuctionResult {
+	private final long price; // The equilibrium price in ticks
+	private final long volume; // The quantity executed at the equilibrium price, in lots
+	private final long buySurplus; // Buy quantity willing to trade at the price that is left unmatched
+	private final long sellSurplus; // Sell quantity willing to trade at the price that is left unmatched
+	
+	/**
+	 * 
+	 * @param price The equilibrium price in ticks
+	 * @param volume The quantity executed at the price
+	 * @param buySurplus The buy quantity at or above the price that is left unmatched
+	 * @param sellSurplus The sell quantity at or below the price that is left unmatched
+	 */
+	public AuctionResult(long price, long volume, long buySurplus, long sellSurplus) {
+		this.price = price;
+		this.volume = volume;
+		this.buySurplus = buySurplus;
+		this.sellSurplus = sellSurplus;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public long getPrice() {
+		return price;
+	}
+	
+	public long getVolume() {
+		return volume;
+	}
+	
+	public long getBuySurplus() {
+		return buySurplus;
+	}
+	
+	public long getSellSurplus() {
+		return sellSurplus;
+	}
+	
+	@Override
+	public String toString() {
+		return "AuctionResult{price=" + price + ", volume=" + volume + ", buySurplus=" + buySurplus + ", sellSurplus=" + sellSurplus + "}";
+	}
+}
@@ -0,0 +1,50 @@
+package com.orderbook.model;
+
+/**
+ * The DepthLevel class is an immutable aggregated view of one price level, as returned by OrderBook.getDepth.
+ * It holds the price of the level and the total quantity and number of orders resting at that price.
+ */
+public final class DepthLevel {
+	private final OrderSide side;
+	private final long price; // The price in ticks
+	private final long quantity; // The total quantity in lots
+	private final int orderCount;
+	
+	/**
+	 * 
+	 * @param side The side of the order book the level is on
+	 * @param price The price of the level in ticks
+	 * @param quantity The total quantity resting at the price
+	 * @param orderCount The number of orders resting at the price
+	 */
+	public DepthLevel(OrderSide side, long price, long quantity, int orderCount) {
+		this.side = side;
+		this.price = price;
+		this.quantity = quantity;
+		this.orderCount = orderCount;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public OrderSide getSide() {
+		return side;
+	}
+	
+	public long getPrice() {
+		return price;
+	}
+	
+	public long getQuantity() {
+		return quantity;
+	}
+	
+	public int getOrderCount() {
+		return orderCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "DepthLevel{side=" + side + ", price=" + price + ", quantity=" + quantity + ", orders=" + orderCount + "}";
+	}
+}
@@ -1,69 +1,313 @@
 package com.orderbook.model;
 
-import java.util.UUID;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * The Order class is used to describe a single order in the order book 
- * Each order has a unique Id (UUID), a price, a quantity, and a side (buy or sell), a type (limit or market)
+ * Each order has a unique Id, a price, a quantity, and a side (buy or sell), a type (limit, market or stop)
+ * A market order has no price, it trades at the best prices available and never rests in the order book
+ * A stop order's price is its trigger price, it is parked until a trade reaches that price and then becomes a market order
+ * The Id is a long assigned by the order book from an increasing sequence, an optional client order Id can also be given
  * A timestamp is also be added to the Order class to track which orders are of highest priority 
+ * Prices are held as a whole number of ticks (see TickSize) and quantities as a whole number of lots,
+ * the decimal price is only converted once when the order is created.
  */
 public class Order {
-	private final String id;
-	private final OrderSide side;
-	private final double price; // This cannot be updated if the order is modified
-	private double quantity; // This can be updated if the order is modified
-	private long timestamp; // This will be reset if either the quantity is modified to reset priority
+	private long id; // 0 until the order book assigns an Id
+	private String clientOrderId; // Optional Id given by the client, may be null
+	private OrderSide side;
+	private OrderType type;
+	private TickSize tickSize; // The tick size used to convert the price to and from ticks
+	private long price; // The price in ticks, this cannot be updated if the order is modified
+	private long quantity; // The quantity in lots, this can be updated if the order is modified
+	private long timestamp; // This will be reset if the quantity is amended to reset priority, fills keep it
+	
+	// Intrusive links maintained by PriceLevel while the order is resting in the book
+	PriceLevel level;
+	Order prev;
+	Order next; // Also used as the free list link while the order is in its pool
+	
+	// The pool this order was acquired from, or null if it was created with new
+	final OrderPool pool;
+	boolean released;
 	
 	/**
+	 * Create an order using the default tick size
 	 * 
 	 * @param side The side of the order
 	 * @param price The price of the order
 	 * @param quantity The quantity of the order
 	 */
-	public Order(OrderSide side, double price, int quantity) {
-		this.id = UUID.randomUUID().toString();
+	public Order(OrderSide side, double price, long quantity) {
+		this(side, price, quantity, TickSize.DEFAULT);
+	}
+	
+	/**
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order, rounded to the nearest tick
+	 * @param quantity The quantity of the order
+	 * @param tickSize The tick size of the instrument
+	 */
+	public Order(OrderSide side, double price, long quantity, TickSize tickSize) {
+		this(side, price, quantity, tickSize, null);
+	}
+	
+	/**
+	 * Create an order with a client order Id using the default tick size
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order
+	 * @param quantity The quantity of the order
+	 * @param clientOrderId The client's own Id for the order
+	 */
+	public Order(OrderSide side, double price, long quantity, String clientOrderId) {
+		this(side, price, quantity, TickSize.DEFAULT, clientOrderId);
+	}
+	
+	/**
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order, rounded to the nearest tick
+	 * @param quantity The quantity of the order
+	 * @param tickSize The tick size of the instrument
+	 * @param clientOrderId The client's own Id for the order, or null
+	 */
+	public Order(OrderSide side, double price, long quantity, TickSize tickSize, String clientOrderId) {
+		this(OrderType.LIMIT, side, price, quantity, tickSize, clientOrderId);
+	}
+	
+	/**
+	 * Create an order of any type, used for stop orders
+	 * 
+	 * @param type The type of the order
+	 * @param side The side of the order
+	 * @param price The price of the order (the trigger price of a stop order), rounded to the nearest tick and ignored for a market order
+	 * @param quantity The quantity of the order
+	 * @param tickSize The tick size of the instrument
+	 * @param clientOrderId The client's own Id for the order, or null
+	 */
+	public Order(OrderType type, OrderSide side, double price, long quantity, TickSize tickSize, String clientOrderId) {
+		this.pool = null;
+		init(type, side, type == OrderType.MARKET ? 0 : tickSize.toTicks(price), quantity, tickSize, clientOrderId);
+	}
+	
+	/**
+	 * Create a market order using the default tick size
+	 * 
+	 * @param side The side of the order
+	 * @param quantity The quantity of the order
+	 */
+	public Order(OrderSide side, long quantity) {
+		this(side, quantity, TickSize.DEFAULT, null);
+	}
+	
+	/**
+	 * Create a market order, which has no price
+	 * 
+	 * @param side The side of the order
+	 * @param quantity The quantity of the order
+	 * @param tickSize The tick size of the instrument
+	 * @param clientOrderId The client's own Id for the order, or null
+	 */
+	public Order(OrderSide side, long quantity, TickSize tickSize, String clientOrderId) {
+		this.pool = null;
+		init(OrderType.MARKET, side, 0, quantity, tickSize, clientOrderId);
+	}
+	
+	/**
+	 * Create an empty order owned by a pool, it is initialised each time it is acquired
+	 * 
+	 * @param pool The pool that owns this order
+	 */
+	Order(OrderPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * (Re)initialise every field of the order, used by the constructor and when a pooled order is acquired
+	 */
+	final void init(OrderType type, OrderSide side, long price, long quantity, TickSize tickSize, String clientOrderId) {
+		this.id = 0;
+		this.clientOrderId = clientOrderId;
 		this.side = side;
+		this.type = type;
+		this.tickSize = tickSize;
 		this.price = price;
 		this.quantity = quantity;
 		this.timestamp = System.nanoTime();
+		this.level = null;
+		this.prev = null;
+		this.next = null;
+		this.released = false;
+	}
+	
+	/**
+	 * Return this order to the pool it was acquired from so it can be reused.
+	 * This does nothing for orders created with new, which are left to the garbage collector.
+	 * The order must not be used after it has been released.
+	 */
+	public void release() {
+		if (pool != null) {
+			pool.release(this);
+		}
+	}
+	
+	public boolean isPooled() {
+		return pool != null;
 	}
 	
 	/**
 	 * Getters and setter for the respective fields above.
-	 * Modifying quantity is allowed, and the timestamp will be updated.
+	 * Amending quantity with setQuantity is allowed, and the timestamp will be updated.
 	 * This updated timestamp resets the orders' priority (to lowest) and enforces order book integrity.
+	 * Fills and reductions use reduceQuantity instead, which keeps the timestamp and so the order's priority.
+	 * Both quantity setters are package-private, a resting order's quantity is changed through its PriceLevel
+	 * (see PriceLevel.fill, PriceLevel.match and PriceLevel.amend) so the level's total quantity stays in step,
+	 * and so through OrderBook.reduceOrder, OrderBook.amendOrder and the matching engine.
 	 */
-	public String getId() {
+	public long getId() {
 		return id;
 	}
 	
+	/**
+	 * Assign the order its Id, this is done by the order book when the order first enters it
+	 * 
+	 * @param id The order Id, greater than 0
+	 */
+	public void assignId(long id) {
+		this.id = id;
+	}
+	
+	public String getClientOrderId() {
+		return clientOrderId;
+	}
+	
 	public OrderSide getSide() {
 		return side;
 	}
 	
+	public OrderType getType() {
+		return type;
+	}
+	
+	/**
+	 * Turn a triggered stop order into a market order, it keeps its trigger price for reporting
+	 */
+	public void trigger() {
+		if (type != OrderType.STOP) {
+			throw new IllegalStateException("Only a stop order can be triggered: " + this);
+		}
+		this.type = OrderType.MARKET;
+	}
+	
+	/**
+	 * Check if a trade at a price triggers this stop order:
+	 * a buy stop triggers at or above its trigger price, a sell stop at or below it
+	 * 
+	 * @param tradePrice The trade price in ticks
+	 * @return True if the stop order is triggered
+	 */
+	public boolean isTriggeredBy(long tradePrice) {
+		return side == OrderSide.BUY ? tradePrice >= price : tradePrice <= price;
+	}
+	
 	public double getPrice() {
+		return tickSize.toPrice(price);
+	}
+	
+	public long getPriceTicks() {
 		return price;
 	}
 	
-	public double getQuantity() {
+	public TickSize getTickSize() {
+		return tickSize;
+	}
+	
+	public long getQuantity() {
 		return quantity;
 	}
 	
-    public void setQuantity(double quantity) {
+    void setQuantity(long quantity) {
         this.quantity = quantity; // Allow modification of the order's quantity
         this.timestamp = System.nanoTime(); // Resets the timestamp to reset the order priority
     }
 	
+	/**
+	 * Reduce the quantity in place by a filled or cancelled amount.
+	 * Unlike setQuantity this does not read the clock, the timestamp is kept so the order keeps its priority.
+	 * 
+	 * @param quantity The quantity to take off the order, at most its remaining quantity
+	 */
+	void reduceQuantity(long quantity) {
+		this.quantity -= quantity;
+	}
+	
 	public long getTimestamp() {
 		return timestamp;
 	}
 	
+	/**
+	 * Restore the timestamp the order had when it was journaled or snapshotted, used when an order book is rebuilt
+	 * 
+	 * @param timestamp The original timestamp of the order
+	 */
+	public void restoreTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+	
+	/**
+	 * Getters for the intrusive price level links, these are null when the order is not resting in the book.
+	 * getNext returns the order with the next highest priority at the same price.
+	 */
+	public PriceLevel getLevel() {
+		return level;
+	}
+	
+	public Order getNext() {
+		return next;
+	}
+	
+	public Order getPrevious() {
+		return prev;
+	}
+	
+	/**
+	 * Write the order in the same form as toString straight to an Appendable, without String.format or an intermediate String,
+	 * used by OrderBook.dump
+	 * 
+	 * @param out Where the order is written
+	 * @throws IOException If the Appendable cannot be written to
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		out.append("Order{id=").append(String.valueOf(id));
+		if (clientOrderId != null) {
+			out.append(", clientOrderId='").append(clientOrderId).append('\'');
+		}
+		out.append(", side=").append(side.name()).append(", ");
+		if (type == OrderType.LIMIT) {
+			out.append("price=");
+			tickSize.appendPrice(price, out);
+		} else if (type == OrderType.STOP) {
+			out.append("type=STOP, stopPrice=");
+			tickSize.appendPrice(price, out);
+		} else {
+			out.append("type=").append(type.name());
+		}
+		out.append(", quantity=").append(String.valueOf(quantity))
+				.append(", timestamp=").append(String.valueOf(timestamp)).append('}');
+	}
+	
 	@Override
 	public String toString() {
-	    return String.format(
-	        "Order{id='%s', side=%s, price=%.2f, quantity=%.2f, timestamp=%d}",
-	        id, side, price, quantity, timestamp
-	    );
+		StringBuilder sb = new StringBuilder(96);
+		try {
+			appendTo(sb);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // A StringBuilder never throws
+		}
+		return sb.toString();
 	}
 }
 
@@ -0,0 +1,166 @@
+package com.orderbook.model;
+
+/**
+ * The OrderPool class recycles Order instances so a steady-state add, fill and cancel workload does not allocate.
+ * Free orders are kept on an intrusive free list through the order's own next link, so the pool itself allocates nothing.
+ * If the pool runs empty a new order is created, so the pool grows to the peak number of live orders.
+ * 
+ * Lifecycle of a pooled order:
+ * 1. acquire an order from the pool
+ * 2. hand it to the OrderBook or MatchingEngine, which then owns it
+ * 3. the book releases it back to the pool when it is fully filled or cancelled
+ * 
+ * The pool is not thread-safe, it is meant to be used by the single thread that owns the order book.
+ */
+public final class OrderPool {
+	private final TickSize tickSize; // Tick size of the orders handed out by this pool
+	private Order free; // Head of the free list
+	private int available; // Number of orders on the free list
+	private int created; // Number of orders this pool has ever created
+	
+	/**
+	 * Create a pool using the default tick size
+	 * 
+	 * @param initialSize The number of orders to preallocate
+	 */
+	public OrderPool(int initialSize) {
+		this(initialSize, TickSize.DEFAULT);
+	}
+	
+	/**
+	 * 
+	 * @param initialSize The number of orders to preallocate
+	 * @param tickSize The tick size of the orders handed out by this pool
+	 */
+	public OrderPool(int initialSize, TickSize tickSize) {
+		this.tickSize = tickSize;
+		for (int i = 0; i < initialSize; i++) {
+			Order order = new Order(this);
+			order.released = true;
+			order.next = free;
+			free = order;
+			available++;
+			created++;
+		}
+	}
+	
+	/**
+	 * Take an order from the pool and initialise it, creating a new one if the pool is empty
+	 * 
+	 * This acquire method is O(1) complexity
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order, rounded to the nearest tick
+	 * @param quantity The quantity of the order
+	 * @return An initialised order owned by the caller until it is handed to the book
+	 */
+	public Order acquire(OrderSide side, double price, long quantity) {
+		return acquire(side, price, quantity, null);
+	}
+	
+	/**
+	 * Take an order with a client order Id from the pool, see acquire(OrderSide, double, long)
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order, rounded to the nearest tick
+	 * @param quantity The quantity of the order
+	 * @param clientOrderId The client's own Id for the order, or null
+	 * @return An initialised order owned by the caller until it is handed to the book
+	 */
+	public Order acquire(OrderSide side, double price, long quantity, String clientOrderId) {
+		Order order = take();
+		order.init(OrderType.LIMIT, side, tickSize.toTicks(price), quantity, tickSize, clientOrderId);
+		return order;
+	}
+	
+	/**
+	 * Take an order of any type from the pool with its price already in ticks, used when decoding binary order entry messages
+	 * 
+	 * @param type The type of the order
+	 * @param side The side of the order
+	 * @param price The price of the order in ticks (the trigger price of a stop order), ignored for a market order
+	 * @param quantity The quantity of the order
+	 * @param clientOrderId The client's own Id for the order, or null
+	 * @return An initialised order owned by the caller until it is handed to the book or matching engine
+	 */
+	public Order acquire(OrderType type, OrderSide side, long price, long quantity, String clientOrderId) {
+		Order order = take();
+		order.init(type, side, type == OrderType.MARKET ? 0 : price, quantity, tickSize, clientOrderId);
+		return order;
+	}
+	
+	/**
+	 * Take a market order from the pool, see acquire(OrderSide, double, long)
+	 * 
+	 * @param side The side of the order
+	 * @param quantity The quantity of the order
+	 * @param clientOrderId The client's own Id for the order, or null
+	 * @return An initialised market order owned by the caller until it is handed to the matching engine
+	 */
+	public Order acquireMarket(OrderSide side, long quantity, String clientOrderId) {
+		Order order = take();
+		order.init(OrderType.MARKET, side, 0, quantity, tickSize, clientOrderId);
+		return order;
+	}
+	
+	/**
+	 * Take a stop order from the pool, see acquire(OrderSide, double, long)
+	 * 
+	 * @param side The side of the order
+	 * @param stopPrice The trigger price of the order, rounded to the nearest tick
+	 * @param quantity The quantity of the order
+	 * @param clientOrderId The client's own Id for the order, or null
+	 * @return An initialised stop order owned by the caller until it is handed to the matching engine
+	 */
+	public Order acquireStop(OrderSide side, double stopPrice, long quantity, String clientOrderId) {
+		Order order = take();
+		order.init(OrderType.STOP, side, tickSize.toTicks(stopPrice), quantity, tickSize, clientOrderId);
+		return order;
+	}
+	
+	/**
+	 * Take an order off the free list, or create one if the pool is empty
+	 */
+	private Order take() {
+		Order order = free;
+		if (order == null) {
+			order = new Order(this); // The pool is empty so it grows by one order
+			created++;
+		} else {
+			free = order.next;
+			available--;
+		}
+		return order;
+	}
+	
+	/**
+	 * Put an order back on the free list, releasing an order twice is ignored
+	 * 
+	 * This release method is O(1) complexity
+	 * 
+	 * @param order An order that was acquired from this pool
+	 */
+	void release(Order order) {
+		if (order.released) {
+			return;
+		}
+		order.released = true;
+		order.level = null;
+		order.prev = null;
+		order.next = free;
+		free = order;
+		available++;
+	}
+	
+	public TickSize getTickSize() {
+		return tickSize;
+	}
+	
+	public int getAvailable() {
+		return available;
+	}
+	
+	public int getCreated() {
+		return created;
+	}
+}
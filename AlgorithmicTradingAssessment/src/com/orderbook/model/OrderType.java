@@ -4,9 +4,10 @@ package com.orderbook.model;
  * Enum thats represents the type of an order in the order book.
  * The limit order specifies a price at which the order should be executed.
  * A market order should be executed immediately at the best possible price.
+ * A stop order is parked until a trade reaches its trigger price, and is then executed as a market order.
  */
 public enum OrderType {
     LIMIT, // Limit order, used in this assignment.
-    MARKET, // Market order, used in potential future expansion.
-	STOP; // Stop order, used in potential future expansion.
+    MARKET, // Market order, swept against the opposite side by the matching engine and never rested.
+	STOP; // Stop order, parked by trigger price and swept as a market order once a trade reaches it.
 }
@@ -0,0 +1,168 @@
+package com.orderbook.model;
+
+/**
+ * The PriceLevel class is the FIFO queue of orders resting at a single price on one side of the order book.
+ * The queue is intrusive: each Order carries its own previous and next links and a reference back to its level,
+ * so adding an order allocates no list node and removing a known order is O(1) without searching the queue.
+ * The first order in the queue is the order with the highest priority at this price.
+ * The level keeps a running total of the quantity of its orders, so depth is read without walking the queue.
+ * The quantity of a resting order must therefore only be reduced through fill while it is in the level.
+ * Once a level is empty and removed from its book, the book may reset it to another price and reuse it rather than create a new level.
+ */
+public class PriceLevel {
+	private OrderSide side;
+	private long price; // The price of this level in ticks
+	private Order head; // Highest priority order at this price
+	private Order tail; // Lowest priority order at this price
+	private int orderCount;
+	private long totalQuantity; // The sum of the quantities of every order in the queue
+	
+	/**
+	 * 
+	 * @param side The side of the order book this level belongs to
+	 * @param price The price of this level in ticks
+	 */
+	public PriceLevel(OrderSide side, long price) {
+		this.side = side;
+		this.price = price;
+	}
+	
+	/**
+	 * Reuse an empty level at a new side and price, used by the order book to recycle the levels it removed
+	 * 
+	 * This reset method is O(1) complexity
+	 * 
+	 * @param side The side of the order book the level now belongs to
+	 * @param price The new price of the level in ticks
+	 * @throws IllegalStateException If the level still has orders
+	 */
+	public void reset(OrderSide side, long price) {
+		if (head != null) {
+			throw new IllegalStateException("Only an empty price level can be reused: " + this);
+		}
+		this.side = side;
+		this.price = price;
+	}
+	
+	/**
+	 * Add an order to the back of the queue, giving it the lowest priority at this price
+	 * 
+	 * This add method is O(1) complexity
+	 * 
+	 * @param order The order to be added
+	 */
+	public void add(Order order) {
+		order.level = this;
+		order.prev = tail;
+		order.next = null;
+		if (tail == null) {
+			head = order;
+		} else {
+			tail.next = order;
+		}
+		tail = order;
+		orderCount++;
+		totalQuantity += order.getQuantity();
+	}
+	
+	/**
+	 * Unlink an order from the queue using its own previous and next links
+	 * 
+	 * This remove method is O(1) complexity
+	 * 
+	 * @param order The order to be removed, which must be in this level
+	 */
+	public void remove(Order order) {
+		if (order.prev == null) {
+			head = order.next;
+		} else {
+			order.prev.next = order.next;
+		}
+		if (order.next == null) {
+			tail = order.prev;
+		} else {
+			order.next.prev = order.prev;
+		}
+		order.prev = null;
+		order.next = null;
+		order.level = null;
+		orderCount--;
+		totalQuantity -= order.getQuantity();
+	}
+	
+	/**
+	 * Fill part or all of an order in the queue, reducing its quantity and the level's total quantity
+	 * A fully filled order is left in the queue for the caller to remove.
+	 * 
+	 * This fill method is O(1) complexity
+	 * 
+	 * @param order The order to be filled, which must be in this level
+	 * @param quantity The filled quantity, at most the order's quantity
+	 */
+	public void fill(Order order, long quantity) {
+		order.reduceQuantity(quantity); // Keeps the order's timestamp, a partial fill does not lose priority
+		totalQuantity -= quantity;
+	}
+	
+	/**
+	 * Fill part or all of an order in the queue against an incoming order that is not in the book, reducing both orders
+	 * and the level's total quantity. Neither order loses priority.
+	 * 
+	 * This match method is O(1) complexity
+	 * 
+	 * @param incoming The incoming order, which must not be resting in a price level
+	 * @param order The order to be filled, which must be in this level
+	 * @param quantity The filled quantity, at most the quantity of either order
+	 */
+	public void match(Order incoming, Order order, long quantity) {
+		incoming.reduceQuantity(quantity);
+		fill(order, quantity);
+	}
+	
+	/**
+	 * Amend the quantity of an order in the queue, the order loses its priority and moves to the back of the queue
+	 * 
+	 * This amend method is O(1) complexity
+	 * 
+	 * @param order The order to be amended, which must be in this level
+	 * @param quantity The new quantity, greater than 0
+	 */
+	public void amend(Order order, long quantity) {
+		remove(order);
+		order.setQuantity(quantity); // Resets the order's timestamp, see Order
+		add(order);
+	}
+	
+	public OrderSide getSide() {
+		return side;
+	}
+	
+	public long getPrice() {
+		return price;
+	}
+	
+	public Order getFirst() {
+		return head;
+	}
+	
+	public Order getLast() {
+		return tail;
+	}
+	
+	public int size() {
+		return orderCount;
+	}
+	
+	public long getTotalQuantity() {
+		return totalQuantity;
+	}
+	
+	public boolean isEmpty() {
+		return head == null;
+	}
+	
+	@Override
+	public String toString() {
+		return "PriceLevel{side=" + side + ", price=" + price + ", orders=" + orderCount + ", quantity=" + totalQuantity + "}";
+	}
+}
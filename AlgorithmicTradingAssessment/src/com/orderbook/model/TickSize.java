@@ -0,0 +1,71 @@
+package com.orderbook.model;
+
+import java.io.IOException;
+
+/**
+ * The TickSize class describes the minimum price increment of an instrument.
+ * Prices are converted to a whole number of ticks once, when an order is created, so that the
+ * order book and the matching engine only compare and store primitive long values.
+ * This avoids prices like 99.9 and 99.90000001 ending up on different price levels.
+ */
+public final class TickSize {
+	public static final TickSize DEFAULT = new TickSize(0.01); // Default tick size of one cent
+	
+	private final double tickSize;
+	
+	/**
+	 * 
+	 * @param tickSize The minimum price increment, e.g. 0.01
+	 */
+	public TickSize(double tickSize) {
+		this.tickSize = tickSize;
+	}
+	
+	/**
+	 * Convert a decimal price to a whole number of ticks, rounding to the nearest tick
+	 * 
+	 * @param price The decimal price
+	 * @return The price in ticks
+	 */
+	public long toTicks(double price) {
+		return Math.round(price / tickSize);
+	}
+	
+	/**
+	 * Convert a price in ticks back to a decimal price
+	 * 
+	 * @param ticks The price in ticks
+	 * @return The decimal price
+	 */
+	public double toPrice(long ticks) {
+		return ticks * tickSize;
+	}
+	
+	/**
+	 * Append a price in ticks as a decimal price with two decimal places, the way the order book prints prices,
+	 * without going through String.format
+	 * 
+	 * @param ticks The price in ticks
+	 * @param out Where the price is written
+	 * @throws IOException If the Appendable cannot be written to
+	 */
+	public void appendPrice(long ticks, Appendable out) throws IOException {
+		long hundredths = Math.round(toPrice(ticks) * 100);
+		if (hundredths < 0) {
+			out.append('-');
+			hundredths = -hundredths;
+		}
+		out.append(String.valueOf(hundredths / 100)).append('.');
+		long remainder = hundredths % 100;
+		out.append((char) ('0' + remainder / 10)).append((char) ('0' + remainder % 10));
+	}
+	
+	public double getTickSize() {
+		return tickSize;
+	}
+	
+	@Override
+	public String toString() {
+		return "TickSize{" + tickSize + "}";
+	}
+}
@@ -4,7 +4,12 @@
  * It includes the core models representing orders and their attributes:
  * - {@link com.orderbook.model.Order} is a class that represents each order in the order book.
  * - {@link com.orderbook.model.OrderSide} defines whether an order is a Buy or Sell.
- * - {@link com.orderbook.model.OrderType} specifies the type of order, such as Market, Limit or Stop orders (only Limit for this application).
+ * - {@link com.orderbook.model.OrderType} specifies the type of order, Limit, Market or Stop orders.
+ * - {@link com.orderbook.model.TickSize} converts decimal prices to and from whole ticks.
+ * - {@link com.orderbook.model.PriceLevel} is the intrusive FIFO queue of orders resting at one price.
+ * - {@link com.orderbook.model.OrderPool} recycles Order instances that have been filled or cancelled.
+ * - {@link com.orderbook.model.DepthLevel} is the aggregated quantity and order count at one price level.
+ * - {@link com.orderbook.model.AuctionResult} is the equilibrium price and volume of a call auction uncross.
  * </p>
  */
 package com.orderbook.model;
@@ -0,0 +1,95 @@
+package com.orderbook.offheap;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The OffHeapIdIndex class is a hash map from a primitive long order Id to an order handle, held outside the Java heap.
+ * It is the off-heap counterpart of OrderIndex: open addressing with linear probing, and deletes shift the following entries back instead of leaving tombstones.
+ * The table is sized once for the capacity of the order store, at most half full, so it never resizes.
+ */
+final class OffHeapIdIndex {
+	private static final long EMPTY = 0; // Order Ids start at 1, so 0 marks an empty slot
+	
+	private final MemorySegment keys;
+	private final MemorySegment values;
+	private final int mask;
+	
+	/**
+	 * 
+	 * @param capacity The most Ids the index will hold at once
+	 */
+	OffHeapIdIndex(int capacity) {
+		int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) << 1;
+		Arena arena = Arena.ofAuto();
+		keys = OffHeapOrderStore.longColumn(arena, slots); // Zeroed, so every slot starts EMPTY
+		values = OffHeapOrderStore.intColumn(arena, slots);
+		mask = slots - 1;
+	}
+	
+	/**
+	 * Spread the Id bits so sequential Ids do not cluster in the table
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	/**
+	 * Get the handle of the order with the given Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 * @return The order's handle, or OffHeapOrderStore.NONE if it is not in the index
+	 */
+	int get(long id) {
+		for (int slot = hash(id) & mask; keys.getAtIndex(ValueLayout.JAVA_LONG, slot) != EMPTY; slot = (slot + 1) & mask) {
+			if (keys.getAtIndex(ValueLayout.JAVA_LONG, slot) == id) {
+				return values.getAtIndex(ValueLayout.JAVA_INT, slot);
+			}
+		}
+		return OffHeapOrderStore.NONE;
+	}
+	
+	/**
+	 * Add the handle of a new order Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 * @param order
+	 */
+	void put(long id, int order) {
+		int slot = hash(id) & mask;
+		while (keys.getAtIndex(ValueLayout.JAVA_LONG, slot) != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		keys.setAtIndex(ValueLayout.JAVA_LONG, slot, id);
+		values.setAtIndex(ValueLayout.JAVA_INT, slot, order);
+	}
+	
+	/**
+	 * Remove an order Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 */
+	void remove(long id) {
+		int slot = hash(id) & mask;
+		while (keys.getAtIndex(ValueLayout.JAVA_LONG, slot) != id) {
+			if (keys.getAtIndex(ValueLayout.JAVA_LONG, slot) == EMPTY) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		
+		// Shift back any following entries whose probe chain passes through the freed slot
+		int free = slot;
+		for (int next = (free + 1) & mask; keys.getAtIndex(ValueLayout.JAVA_LONG, next) != EMPTY; next = (next + 1) & mask) {
+			int home = hash(keys.getAtIndex(ValueLayout.JAVA_LONG, next)) & mask;
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys.setAtIndex(ValueLayout.JAVA_LONG, free, keys.getAtIndex(ValueLayout.JAVA_LONG, next));
+				values.setAtIndex(ValueLayout.JAVA_INT, free, values.getAtIndex(ValueLayout.JAVA_INT, next));
+				free = next;
+			}
+		}
+		keys.setAtIndex(ValueLayout.JAVA_LONG, free, EMPTY);
+	}
+}
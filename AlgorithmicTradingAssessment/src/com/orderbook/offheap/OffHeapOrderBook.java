@@ -0,0 +1,484 @@
+package com.orderbook.offheap;
+
+import com.orderbook.event.DepthListener;
+import com.orderbook.event.DepthUpdateType;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.level.LevelIndex;
+import com.orderbook.level.PriceLadder;
+import com.orderbook.level.SortedLevelIndex;
+import com.orderbook.model.DepthLevel;
+import com.orderbook.model.OrderSide;
+import com.orderbook.service.OrderBook;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The OffHeapOrderBook class is an order book and matching engine whose resting orders live outside the Java heap,
+ * for books with millions of resting orders where marking the Order objects dominates the garbage collection pauses.
+ * It is a separate, self-contained book with its own primitive API, not a storage layer behind OrderBook and MatchingEngine:
+ * code written against those classes (the ingress, sharding, journal, snapshot and replay) does not run against it.
+ * 
+ * OrderBook has no off-heap storage option, and this class is chosen in its place rather than passed to it.
+ * OrderBook hands its Order and PriceLevel objects to its callers (the matcher links, reports, stops, auctions, snapshots and the order visitors all hold them),
+ * so its orders cannot move off the heap without replacing that API. Off-heap storage is therefore scoped to a book of limit and market orders
+ * driven through this class, and a system that needs the ingress, sharding, persistence, stops or auctions uses OrderBook and MatchingEngine.
+ * 
+ * 1. Orders and price levels are struct of arrays slots in native memory segments, found by int handle (see OffHeapOrderStore)
+ * 2. Order Ids are mapped to handles by an off-heap open addressing index (see OffHeapIdIndex)
+ * 3. The levels of each side are found by price in sorted primitive arrays (see SortedLevelIndex),
+ *    or by their tick offset in a price ladder when the book is created with a ladder band (see PriceLadder)
+ * 4. Orders are entered as primitives (side, price in ticks, quantity in lots), so no object is created per order or per trade
+ * 
+ * The add, cancel, modify and match semantics are those of OrderBook and MatchingEngine: price then time priority,
+ * fills at the maker's price, reductions keep an order's priority while increases move it to the back of its level,
+ * and the same execution reports and depth updates are published, for limit and market orders only. Stop orders,
+ * call auctions, client order Ids and the journal are only supported by OrderBook and MatchingEngine. The capacity of the book is fixed when it is created:
+ * addOrder throws when the book is full, while processOrder cancels a remainder it has no room to rest.
+ * 
+ * Like OrderBook, the book must only be used by the thread that owns it.
+ */
+public class OffHeapOrderBook {
+	private final OffHeapOrderStore store;
+	private final OffHeapIdIndex orderIndex;
+	private final LevelIndex bids;
+	private final LevelIndex asks;
+	
+	// The ring buffer execution reports are published to, may be null
+	private final ExecutionReportRingBuffer executionReports;
+	
+	// Listener for price level changes, may be null if nothing consumes depth deltas
+	private final DepthListener depthListener;
+	
+	private long nextOrderId = 1;
+	private long lastTradePrice = OrderBook.NO_PRICE;
+	
+	/**
+	 * 
+	 * @param orderCapacity The most orders that can rest in the book at once
+	 * @param levelCapacity The most price levels the book can hold at once, on both sides together
+	 */
+	public OffHeapOrderBook(int orderCapacity, int levelCapacity) {
+		this(orderCapacity, levelCapacity, 0, null, null);
+	}
+	
+	/**
+	 * 
+	 * @param orderCapacity The most orders that can rest in the book at once
+	 * @param levelCapacity The most price levels the book can hold at once, on both sides together
+	 * @param executionReports The ring buffer to publish execution reports to, or null
+	 * @param depthListener The listener told about every price level change, or null
+	 */
+	public OffHeapOrderBook(int orderCapacity, int levelCapacity, ExecutionReportRingBuffer executionReports, DepthListener depthListener) {
+		this(orderCapacity, levelCapacity, 0, executionReports, depthListener);
+	}
+	
+	/**
+	 * Create a book whose price levels are found through a price ladder on each side, for instruments that trade in a bounded band of ticks
+	 * 
+	 * @param orderCapacity The most orders that can rest in the book at once
+	 * @param levelCapacity The most price levels the book can hold at once, on both sides together
+	 * @param ladderTicks The width in ticks of the price ladder band of each side, or 0 to find price levels in sorted arrays instead
+	 * @param executionReports The ring buffer to publish execution reports to, or null
+	 * @param depthListener The listener told about every price level change, or null
+	 */
+	public OffHeapOrderBook(int orderCapacity, int levelCapacity, int ladderTicks, ExecutionReportRingBuffer executionReports, DepthListener depthListener) {
+		this.store = new OffHeapOrderStore(orderCapacity, levelCapacity);
+		this.orderIndex = new OffHeapIdIndex(orderCapacity);
+		if (ladderTicks > 0) {
+			this.bids = new PriceLadder(true, ladderTicks, levelCapacity, store::levelPrice);
+			this.asks = new PriceLadder(false, ladderTicks, levelCapacity, store::levelPrice);
+		} else {
+			this.bids = new SortedLevelIndex(true, levelCapacity);
+			this.asks = new SortedLevelIndex(false, levelCapacity);
+		}
+		this.executionReports = executionReports;
+		this.depthListener = depthListener;
+	}
+	
+	/**
+	 * Add a limit order straight to the book without matching it (see MatchingEngine.addOrder)
+	 * 
+	 * This addOrder method is O(1) complexity, plus O(log P + D) when it creates a price level without a price ladder
+	 * 
+	 * @param side The side of the order
+	 * @param price The price of the order in ticks
+	 * @param quantity The quantity of the order in lots
+	 * @return The Id assigned to the order
+	 * @throws IllegalStateException If the book is full
+	 */
+	public long addOrder(OrderSide side, long price, long quantity) {
+		long orderId = nextOrderId++;
+		rest(orderId, side, price, quantity, System.nanoTime());
+		return orderId;
+	}
+	
+	/**
+	 * Process an incoming limit order (see MatchingEngine.processOrder):
+	 * 1. Assign the order its Id and publish that it was accepted
+	 * 2. Match it against the opposite side from the best price while the prices cross (see match)
+	 * 3. Rest any remaining quantity at its price, with the lowest priority at that price
+	 * 4. Cancel the remainder instead if the book has no free order slot, or no free level slot for a new price,
+	 *    so an order that was accepted always ends with a report rather than an exception
+	 * 
+	 * @param side The side of the order
+	 * @param price The limit price of the order in ticks
+	 * @param quantity The quantity of the order in lots
+	 * @return The Id assigned to the order
+	 */
+	public long processOrder(OrderSide side, long price, long quantity) {
+		long orderId = nextOrderId++;
+		long timestamp = System.nanoTime();
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.ACCEPTED, orderId, 0, side, price, quantity, quantity, 0);
+		}
+		long remaining = match(orderId, side, price, quantity, false);
+		if (remaining > 0) {
+			if (canRest(side, price)) {
+				rest(orderId, side, price, remaining, timestamp);
+				if (executionReports != null) {
+					executionReports.publish(ExecutionType.RESTED, orderId, 0, side, price, remaining, remaining, 0);
+				}
+			} else if (executionReports != null) {
+				executionReports.publish(ExecutionType.CANCELLED, orderId, 0, side, price, remaining, 0, 0);
+			}
+		}
+		return orderId;
+	}
+	
+	/**
+	 * Process an incoming market order, which trades at the best prices available and cancels any remainder instead of resting it
+	 * 
+	 * @param side The side of the order
+	 * @param quantity The quantity of the order in lots
+	 * @return The Id assigned to the order
+	 */
+	public long processMarketOrder(OrderSide side, long quantity) {
+		long orderId = nextOrderId++;
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.ACCEPTED, orderId, 0, side, 0, quantity, quantity, 0);
+		}
+		long remaining = match(orderId, side, 0, quantity, true);
+		if (remaining > 0 && executionReports != null) {
+			executionReports.publish(ExecutionType.CANCELLED, orderId, 0, side, 0, remaining, 0, 0);
+		}
+		return orderId;
+	}
+	
+	/**
+	 * Match an incoming order against the opposite side of the book:
+	 * 1. Take the best opposite level, and stop if its price doesn't cross the limit price (a market order crosses every level)
+	 * 2. Fill the level's orders in priority order at the level's price, publishing a fill for each
+	 * 3. Unlink, unindex and free every fully filled maker
+	 * 4. Remove and free the level if it is empty, and publish the changed or deleted level
+	 * 
+	 * Only primitive columns are read and written, nothing is allocated.
+	 * 
+	 * This match method is O(F + L) complexity, F being the number of fills and L the number of levels walked
+	 * 
+	 * @return The quantity left unfilled
+	 */
+	private long match(long orderId, OrderSide side, long limitPrice, long quantity, boolean market) {
+		boolean buy = side == OrderSide.BUY;
+		LevelIndex opposite = buy ? asks : bids;
+		while (quantity > 0 && opposite.size() > 0) {
+			int level = opposite.best();
+			long price = store.levelPrice(level);
+			if (!market && (buy ? limitPrice < price : limitPrice > price)) {
+				break; // The best opposite price is outside the limit, nothing further can match
+			}
+			int order = store.levelHead(level);
+			while (order != OffHeapOrderStore.NONE && quantity > 0) {
+				int nextOrder = store.orderNext(order);
+				long matchedQuantity = Math.min(quantity, store.orderQuantity(order));
+				quantity -= matchedQuantity;
+				store.reduce(order, matchedQuantity); // Also reduces the level's total quantity
+				long makerId = store.orderId(order);
+				long makerLeaves = store.orderQuantity(order);
+				if (executionReports != null) {
+					executionReports.publish(ExecutionType.FILL, orderId, makerId, side, price, matchedQuantity, quantity, makerLeaves);
+				}
+				if (makerLeaves == 0) {
+					store.unlink(order);
+					orderIndex.remove(makerId);
+					store.freeOrder(order);
+				}
+				order = nextOrder;
+			}
+			lastTradePrice = price;
+			if (store.levelCount(level) == 0) {
+				opposite.remove(price);
+				levelChanged(level, DepthUpdateType.DELETE);
+				store.freeLevel(level);
+			} else {
+				levelChanged(level, DepthUpdateType.UPDATE);
+			}
+		}
+		return quantity;
+	}
+	
+	/**
+	 * @return True if an order can rest at the price, there is a free order slot and either a level at the price or a free level slot
+	 */
+	private boolean canRest(OrderSide side, long price) {
+		return store.hasFreeOrder() && (store.hasFreeLevel() || (side == OrderSide.BUY ? bids : asks).find(price) != OffHeapOrderStore.NONE);
+	}
+	
+	/**
+	 * Rest an order at the back of its price level, creating the level if there is none at its price
+	 */
+	private void rest(long orderId, OrderSide side, long price, long quantity, long timestamp) {
+		LevelIndex levels = side == OrderSide.BUY ? bids : asks;
+		byte sideCode = side == OrderSide.BUY ? OffHeapOrderStore.BUY : OffHeapOrderStore.SELL;
+		int level = levels.find(price);
+		boolean created = level == OffHeapOrderStore.NONE;
+		if (created) {
+			level = store.allocateLevel(sideCode, price);
+			levels.insert(price, level);
+		}
+		int order;
+		try {
+			order = store.allocateOrder(orderId, sideCode, price, quantity, timestamp);
+		} catch (IllegalStateException e) {
+			if (created) {
+				levels.remove(price);
+				store.freeLevel(level);
+			}
+			throw e;
+		}
+		store.append(level, order);
+		orderIndex.put(orderId, order);
+		levelChanged(level, created ? DepthUpdateType.NEW : DepthUpdateType.UPDATE);
+	}
+	
+	/**
+	 * Cancel a resting order by its Id
+	 * 
+	 * This cancelOrder method is O(1) complexity, plus O(log P + D) when its price level becomes empty without a price ladder
+	 * 
+	 * @param orderId The Id assigned to the order
+	 * @return True if the order was found and cancelled, false if it wasn't
+	 */
+	public boolean cancelOrder(long orderId) {
+		int order = orderIndex.get(orderId);
+		if (order == OffHeapOrderStore.NONE) {
+			return false;
+		}
+		int level = store.orderLevel(order);
+		OrderSide side = side(order);
+		long price = store.orderPrice(order);
+		long quantity = store.orderQuantity(order);
+		store.unlink(order);
+		orderIndex.remove(orderId);
+		store.freeOrder(order);
+		if (store.levelCount(level) == 0) {
+			(side == OrderSide.BUY ? bids : asks).remove(price);
+			levelChanged(level, DepthUpdateType.DELETE);
+			store.freeLevel(level);
+		} else {
+			levelChanged(level, DepthUpdateType.UPDATE);
+		}
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.CANCELLED, orderId, 0, side, price, quantity, 0, 0);
+		}
+		return true;
+	}
+	
+	/**
+	 * Modify the quantity of a resting order, a smaller quantity is a reduction that keeps the order's priority (see reduceOrder)
+	 * and a larger or equal quantity is an amendment that moves it to the back of its price level (see amendOrder)
+	 * 
+	 * This modifyOrder method is O(1) complexity
+	 * 
+	 * @param orderId The Id assigned to the order
+	 * @param newQuantity The new quantity of the order, greater than 0
+	 * @return True if the order was found and modified, false if it wasn't
+	 * @throws IllegalArgumentException If the new quantity is not positive
+	 */
+	public boolean modifyOrder(long orderId, long newQuantity) {
+		int order = orderIndex.get(orderId);
+		if (order == OffHeapOrderStore.NONE) {
+			return false;
+		}
+		return newQuantity < store.orderQuantity(order) ? reduceOrder(orderId, newQuantity) : amendOrder(orderId, newQuantity);
+	}
+	
+	/**
+	 * Reduce the quantity of a resting order in place, it keeps its timestamp and its place in the queue (see OrderBook.reduceOrder)
+	 * 
+	 * This reduceOrder method is O(1) complexity
+	 * 
+	 * @param orderId The Id assigned to the order
+	 * @param newQuantity The new quantity, greater than 0 and at most the order's current quantity
+	 * @return True if the order was found and reduced, false if it wasn't
+	 * @throws IllegalArgumentException If the new quantity is not positive or is larger than the order's quantity
+	 */
+	public boolean reduceOrder(long orderId, long newQuantity) {
+		int order = orderIndex.get(orderId);
+		if (order == OffHeapOrderStore.NONE) {
+			return false;
+		}
+		if (newQuantity <= 0 || newQuantity > store.orderQuantity(order)) {
+			throw new IllegalArgumentException("Cannot reduce the quantity of order " + orderId + " to " + newQuantity);
+		}
+		store.reduce(order, store.orderQuantity(order) - newQuantity);
+		modified(order, newQuantity);
+		return true;
+	}
+	
+	/**
+	 * Amend the quantity of a resting order, it gets a new timestamp and moves to the back of its price level (see OrderBook.amendOrder)
+	 * 
+	 * This amendOrder method is O(1) complexity
+	 * 
+	 * @param orderId The Id assigned to the order
+	 * @param newQuantity The new quantity, greater than 0
+	 * @return True if the order was found and amended, false if it wasn't
+	 * @throws IllegalArgumentException If the new quantity is not positive
+	 */
+	public boolean amendOrder(long orderId, long newQuantity) {
+		int order = orderIndex.get(orderId);
+		if (order == OffHeapOrderStore.NONE) {
+			return false;
+		}
+		if (newQuantity <= 0) {
+			throw new IllegalArgumentException("Cannot amend the quantity of order " + orderId + " to " + newQuantity);
+		}
+		int level = store.orderLevel(order);
+		store.unlink(order);
+		store.setOrderQuantity(order, newQuantity);
+		store.setOrderTimestamp(order, System.nanoTime()); // Resets the order's priority
+		store.append(level, order);
+		modified(order, newQuantity);
+		return true;
+	}
+	
+	/**
+	 * Publish the changed level and the execution report of a modified order
+	 */
+	private void modified(int order, long newQuantity) {
+		levelChanged(store.orderLevel(order), DepthUpdateType.UPDATE);
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.MODIFIED, store.orderId(order), 0, side(order),
+					store.orderPrice(order), newQuantity, newQuantity, 0);
+		}
+	}
+	
+	/**
+	 * Tell the depth listener (if any) about a price level that has changed, a deleted level must not have been freed yet
+	 */
+	private void levelChanged(int level, DepthUpdateType type) {
+		if (depthListener != null) {
+			OrderSide side = store.levelSide(level) == OffHeapOrderStore.BUY ? OrderSide.BUY : OrderSide.SELL;
+			if (type == DepthUpdateType.DELETE) {
+				depthListener.onDepthUpdate(type, side, store.levelPrice(level), 0, 0);
+			} else {
+				depthListener.onDepthUpdate(type, side, store.levelPrice(level), store.levelTotal(level), store.levelCount(level));
+			}
+		}
+	}
+	
+	private OrderSide side(int order) {
+		return store.orderSide(order) == OffHeapOrderStore.BUY ? OrderSide.BUY : OrderSide.SELL;
+	}
+	
+	/**
+	 * Getters for the top of book, each is O(1) complexity.
+	 * Prices are in ticks and are OrderBook.NO_PRICE when the side is empty.
+	 */
+	public long getBestBid() {
+		int level = bids.best();
+		return level == OffHeapOrderStore.NONE ? OrderBook.NO_PRICE : store.levelPrice(level);
+	}
+	
+	public long getBestBidQuantity() {
+		int level = bids.best();
+		return level == OffHeapOrderStore.NONE ? 0 : store.levelTotal(level);
+	}
+	
+	public long getBestAsk() {
+		int level = asks.best();
+		return level == OffHeapOrderStore.NONE ? OrderBook.NO_PRICE : store.levelPrice(level);
+	}
+	
+	public long getBestAskQuantity() {
+		int level = asks.best();
+		return level == OffHeapOrderStore.NONE ? 0 : store.levelTotal(level);
+	}
+	
+	/**
+	 * @return The price of the last trade in ticks, or OrderBook.NO_PRICE if nothing has traded
+	 */
+	public long getLastTradePrice() {
+		return lastTradePrice;
+	}
+	
+	/**
+	 * @return The number of orders resting in the book, on both sides
+	 */
+	public int getOrderCount() {
+		return store.orderCount();
+	}
+	
+	/**
+	 * @return The most orders that can rest in the book at once
+	 */
+	public int getOrderCapacity() {
+		return store.orderCapacity();
+	}
+	
+	/**
+	 * Get the remaining quantity of a resting order
+	 * 
+	 * @param orderId The Id assigned to the order
+	 * @return The order's quantity in lots, or 0 if it is not resting in the book
+	 */
+	public long getOrderQuantity(long orderId) {
+		int order = orderIndex.get(orderId);
+		return order == OffHeapOrderStore.NONE ? 0 : store.orderQuantity(order);
+	}
+	
+	/**
+	 * Get the aggregated depth of one side of the book, see OrderBook.getDepth
+	 * 
+	 * This getDepth method is O(n log P) complexity, n being the number of levels asked for, or O(n) bitmap word scans with a price ladder,
+	 * and never walks the orders
+	 * 
+	 * @param side
+	 * @param levels The maximum number of price levels to return
+	 * @return The best price levels, best price first, with their total quantity and order count
+	 */
+	public List<DepthLevel> getDepth(OrderSide side, int levels) {
+		LevelIndex index = side == OrderSide.BUY ? bids : asks;
+		List<DepthLevel> depth = new ArrayList<>(Math.min(levels, index.size()));
+		for (int level = index.best(); level != OffHeapOrderStore.NONE && depth.size() < levels; level = index.next(store.levelPrice(level))) {
+			depth.add(new DepthLevel(side, store.levelPrice(level), store.levelTotal(level), store.levelCount(level)));
+		}
+		return depth;
+	}
+	
+	/**
+	 * Copy the Ids of the orders of one side into the caller's buffer, best price first and in priority order at each price
+	 * 
+	 * This copyOrderIds method is O(n) complexity, n being the number of Ids copied, plus a step to each next price level (see getDepth), and allocates nothing
+	 * 
+	 * @param side
+	 * @param orderIds The buffer the Ids are copied into, its length is the most Ids copied
+	 * @return The number of Ids copied
+	 */
+	public int copyOrderIds(OrderSide side, long[] orderIds) {
+		LevelIndex index = side == OrderSide.BUY ? bids : asks;
+		int count = 0;
+		for (int level = index.best(); level != OffHeapOrderStore.NONE && count < orderIds.length; level = index.next(store.levelPrice(level))) {
+			for (int order = store.levelHead(level); order != OffHeapOrderStore.NONE && count < orderIds.length; order = store.orderNext(order)) {
+				orderIds[count++] = store.orderId(order);
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	public String toString() {
+		return "OffHeapOrderBook{orders=" + getOrderCount() + ", bids=" + getDepth(OrderSide.BUY, 5) + ", asks=" + getDepth(OrderSide.SELL, 5) + "}";
+	}
+}
@@ -0,0 +1,314 @@
+package com.orderbook.offheap;
+
+import com.orderbook.level.LevelIndex;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The OffHeapOrderStore class holds the resting orders and price levels of an OffHeapOrderBook outside the Java heap.
+ * 
+ * 1. Orders and levels are identified by an int handle, the index of their slot, rather than by an object reference
+ * 2. Each field is its own column (struct of arrays), a native MemorySegment allocated once for the capacity of the store
+ *    and read and written by index through its ValueLayout (JAVA_LONG, JAVA_INT or JAVA_BYTE)
+ * 3. A level's orders form a FIFO queue through the prev and next columns, the level keeps its head, tail, order count and total quantity
+ * 4. Free slots are chained through the next column, so allocating and freeing an order or a level is O(1) and creates no object
+ * 
+ * The garbage collector sees a fixed handful of segment objects however many orders are resting, it never marks or copies the orders themselves.
+ * The segments are allocated from an automatic Arena, so the memory is returned when the store becomes unreachable.
+ */
+final class OffHeapOrderStore {
+	static final int NONE = LevelIndex.NONE; // The handle of no order or level, e.g. the next link of the last order in a queue
+	static final byte BUY = 0;
+	static final byte SELL = 1;
+	
+	// Order columns
+	private final MemorySegment orderIds;
+	private final MemorySegment orderPrices; // In ticks
+	private final MemorySegment orderQuantities; // In lots
+	private final MemorySegment orderTimestamps;
+	private final MemorySegment orderPrevs;
+	private final MemorySegment orderNexts; // Also links the free order slots
+	private final MemorySegment orderLevels;
+	private final MemorySegment orderSides;
+	
+	// Price level columns
+	private final MemorySegment levelPrices; // In ticks
+	private final MemorySegment levelTotals; // The sum of the quantities of the level's orders
+	private final MemorySegment levelHeads; // Highest priority order, also links the free level slots
+	private final MemorySegment levelTails; // Lowest priority order
+	private final MemorySegment levelCounts;
+	private final MemorySegment levelSides;
+	
+	private int freeOrder;
+	private int freeLevel;
+	private int orderCount;
+	private final int orderCapacity;
+	private final int levelCapacity;
+	
+	/**
+	 * 
+	 * @param orderCapacity The most orders that can rest at once
+	 * @param levelCapacity The most price levels that can exist at once, on both sides together
+	 */
+	OffHeapOrderStore(int orderCapacity, int levelCapacity) {
+		if (orderCapacity <= 0 || levelCapacity <= 0) {
+			throw new IllegalArgumentException("Store capacity must be positive: " + orderCapacity + " orders, " + levelCapacity + " levels");
+		}
+		this.orderCapacity = orderCapacity;
+		this.levelCapacity = levelCapacity;
+		Arena arena = Arena.ofAuto();
+		orderIds = longColumn(arena, orderCapacity);
+		orderPrices = longColumn(arena, orderCapacity);
+		orderQuantities = longColumn(arena, orderCapacity);
+		orderTimestamps = longColumn(arena, orderCapacity);
+		orderPrevs = intColumn(arena, orderCapacity);
+		orderNexts = intColumn(arena, orderCapacity);
+		orderLevels = intColumn(arena, orderCapacity);
+		orderSides = byteColumn(arena, orderCapacity);
+		levelPrices = longColumn(arena, levelCapacity);
+		levelTotals = longColumn(arena, levelCapacity);
+		levelHeads = intColumn(arena, levelCapacity);
+		levelTails = intColumn(arena, levelCapacity);
+		levelCounts = intColumn(arena, levelCapacity);
+		levelSides = byteColumn(arena, levelCapacity);
+		
+		// Chain every slot onto the free lists
+		for (int i = 0; i < orderCapacity; i++) {
+			orderNexts.setAtIndex(ValueLayout.JAVA_INT, i, i + 1 < orderCapacity ? i + 1 : NONE);
+		}
+		for (int i = 0; i < levelCapacity; i++) {
+			levelHeads.setAtIndex(ValueLayout.JAVA_INT, i, i + 1 < levelCapacity ? i + 1 : NONE);
+		}
+		freeOrder = 0;
+		freeLevel = 0;
+	}
+	
+	/**
+	 * Allocate a zeroed column of longs, ints or bytes from the arena, aligned to its element
+	 */
+	static MemorySegment longColumn(Arena arena, int capacity) {
+		return arena.allocate(ValueLayout.JAVA_LONG.byteSize() * capacity, ValueLayout.JAVA_LONG.byteAlignment());
+	}
+	
+	static MemorySegment intColumn(Arena arena, int capacity) {
+		return arena.allocate(ValueLayout.JAVA_INT.byteSize() * capacity, ValueLayout.JAVA_INT.byteAlignment());
+	}
+	
+	private static MemorySegment byteColumn(Arena arena, int capacity) {
+		return arena.allocate(capacity, 1);
+	}
+	
+	/**
+	 * Take a free order slot and fill in its fields, the order is not in any level yet
+	 * 
+	 * This allocateOrder method is O(1) complexity and allocates nothing
+	 * 
+	 * @return The order's handle
+	 * @throws IllegalStateException If every order slot is in use
+	 */
+	int allocateOrder(long id, byte side, long price, long quantity, long timestamp) {
+		int order = freeOrder;
+		if (order == NONE) {
+			throw new IllegalStateException("Off-heap order store is full: " + orderCapacity + " orders");
+		}
+		freeOrder = orderNexts.getAtIndex(ValueLayout.JAVA_INT, order);
+		orderIds.setAtIndex(ValueLayout.JAVA_LONG, order, id);
+		orderSides.set(ValueLayout.JAVA_BYTE, order, side);
+		orderPrices.setAtIndex(ValueLayout.JAVA_LONG, order, price);
+		orderQuantities.setAtIndex(ValueLayout.JAVA_LONG, order, quantity);
+		orderTimestamps.setAtIndex(ValueLayout.JAVA_LONG, order, timestamp);
+		orderPrevs.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		orderNexts.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		orderLevels.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		orderCount++;
+		return order;
+	}
+	
+	/**
+	 * Return an order slot to the free list, the order must already be unlinked from its level
+	 */
+	void freeOrder(int order) {
+		orderIds.setAtIndex(ValueLayout.JAVA_LONG, order, 0);
+		orderNexts.setAtIndex(ValueLayout.JAVA_INT, order, freeOrder);
+		freeOrder = order;
+		orderCount--;
+	}
+	
+	/**
+	 * Take a free level slot for an empty price level
+	 * 
+	 * @return The level's handle
+	 * @throws IllegalStateException If every level slot is in use
+	 */
+	int allocateLevel(byte side, long price) {
+		int level = freeLevel;
+		if (level == NONE) {
+			throw new IllegalStateException("Off-heap order store is full: " + levelCapacity + " price levels");
+		}
+		freeLevel = levelHeads.getAtIndex(ValueLayout.JAVA_INT, level);
+		levelSides.set(ValueLayout.JAVA_BYTE, level, side);
+		levelPrices.setAtIndex(ValueLayout.JAVA_LONG, level, price);
+		levelTotals.setAtIndex(ValueLayout.JAVA_LONG, level, 0);
+		levelHeads.setAtIndex(ValueLayout.JAVA_INT, level, NONE);
+		levelTails.setAtIndex(ValueLayout.JAVA_INT, level, NONE);
+		levelCounts.setAtIndex(ValueLayout.JAVA_INT, level, 0);
+		return level;
+	}
+	
+	/**
+	 * Return an empty level slot to the free list
+	 */
+	void freeLevel(int level) {
+		levelHeads.setAtIndex(ValueLayout.JAVA_INT, level, freeLevel);
+		freeLevel = level;
+	}
+	
+	/**
+	 * Link an order to the back of a level's queue, with the lowest priority at its price
+	 * 
+	 * This append method is O(1) complexity
+	 */
+	void append(int level, int order) {
+		int tail = levelTails.getAtIndex(ValueLayout.JAVA_INT, level);
+		orderLevels.setAtIndex(ValueLayout.JAVA_INT, order, level);
+		orderPrevs.setAtIndex(ValueLayout.JAVA_INT, order, tail);
+		orderNexts.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		if (tail == NONE) {
+			levelHeads.setAtIndex(ValueLayout.JAVA_INT, level, order);
+		} else {
+			orderNexts.setAtIndex(ValueLayout.JAVA_INT, tail, order);
+		}
+		levelTails.setAtIndex(ValueLayout.JAVA_INT, level, order);
+		levelCounts.setAtIndex(ValueLayout.JAVA_INT, level, levelCounts.getAtIndex(ValueLayout.JAVA_INT, level) + 1);
+		levelTotals.setAtIndex(ValueLayout.JAVA_LONG, level, levelTotals.getAtIndex(ValueLayout.JAVA_LONG, level) + orderQuantities.getAtIndex(ValueLayout.JAVA_LONG, order));
+	}
+	
+	/**
+	 * Unlink an order from its level's queue using the order's own links
+	 * 
+	 * This unlink method is O(1) complexity
+	 */
+	void unlink(int order) {
+		int level = orderLevels.getAtIndex(ValueLayout.JAVA_INT, order);
+		int prev = orderPrevs.getAtIndex(ValueLayout.JAVA_INT, order);
+		int next = orderNexts.getAtIndex(ValueLayout.JAVA_INT, order);
+		if (prev == NONE) {
+			levelHeads.setAtIndex(ValueLayout.JAVA_INT, level, next);
+		} else {
+			orderNexts.setAtIndex(ValueLayout.JAVA_INT, prev, next);
+		}
+		if (next == NONE) {
+			levelTails.setAtIndex(ValueLayout.JAVA_INT, level, prev);
+		} else {
+			orderPrevs.setAtIndex(ValueLayout.JAVA_INT, next, prev);
+		}
+		orderPrevs.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		orderNexts.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		orderLevels.setAtIndex(ValueLayout.JAVA_INT, order, NONE);
+		levelCounts.setAtIndex(ValueLayout.JAVA_INT, level, levelCounts.getAtIndex(ValueLayout.JAVA_INT, level) - 1);
+		levelTotals.setAtIndex(ValueLayout.JAVA_LONG, level, levelTotals.getAtIndex(ValueLayout.JAVA_LONG, level) - orderQuantities.getAtIndex(ValueLayout.JAVA_LONG, order));
+	}
+	
+	/**
+	 * Take a quantity off a resting order and its level's total, in place, the order keeps its timestamp and priority
+	 * 
+	 * This reduce method is O(1) complexity
+	 */
+	void reduce(int order, long quantity) {
+		int level = orderLevels.getAtIndex(ValueLayout.JAVA_INT, order);
+		orderQuantities.setAtIndex(ValueLayout.JAVA_LONG, order, orderQuantities.getAtIndex(ValueLayout.JAVA_LONG, order) - quantity);
+		levelTotals.setAtIndex(ValueLayout.JAVA_LONG, level, levelTotals.getAtIndex(ValueLayout.JAVA_LONG, level) - quantity);
+	}
+	
+	/**
+	 * Getters and setters for the respective columns above, each is O(1) complexity
+	 */
+	long orderId(int order) {
+		return orderIds.getAtIndex(ValueLayout.JAVA_LONG, order);
+	}
+	
+	byte orderSide(int order) {
+		return orderSides.get(ValueLayout.JAVA_BYTE, order);
+	}
+	
+	long orderPrice(int order) {
+		return orderPrices.getAtIndex(ValueLayout.JAVA_LONG, order);
+	}
+	
+	long orderQuantity(int order) {
+		return orderQuantities.getAtIndex(ValueLayout.JAVA_LONG, order);
+	}
+	
+	/**
+	 * Set the quantity of an order that is not linked to a level, e.g. while it is being amended
+	 */
+	void setOrderQuantity(int order, long quantity) {
+		orderQuantities.setAtIndex(ValueLayout.JAVA_LONG, order, quantity);
+	}
+	
+	long orderTimestamp(int order) {
+		return orderTimestamps.getAtIndex(ValueLayout.JAVA_LONG, order);
+	}
+	
+	void setOrderTimestamp(int order, long timestamp) {
+		orderTimestamps.setAtIndex(ValueLayout.JAVA_LONG, order, timestamp);
+	}
+	
+	int orderNext(int order) {
+		return orderNexts.getAtIndex(ValueLayout.JAVA_INT, order);
+	}
+	
+	int orderLevel(int order) {
+		return orderLevels.getAtIndex(ValueLayout.JAVA_INT, order);
+	}
+	
+	long levelPrice(int level) {
+		return levelPrices.getAtIndex(ValueLayout.JAVA_LONG, level);
+	}
+	
+	long levelTotal(int level) {
+		return levelTotals.getAtIndex(ValueLayout.JAVA_LONG, level);
+	}
+	
+	int levelHead(int level) {
+		return levelHeads.getAtIndex(ValueLayout.JAVA_INT, level);
+	}
+	
+	int levelCount(int level) {
+		return levelCounts.getAtIndex(ValueLayout.JAVA_INT, level);
+	}
+	
+	byte levelSide(int level) {
+		return levelSides.get(ValueLayout.JAVA_BYTE, level);
+	}
+	
+	/**
+	 * @return The number of orders in the store
+	 */
+	int orderCount() {
+		return orderCount;
+	}
+	
+	/**
+	 * @return True if an order slot is free
+	 */
+	boolean hasFreeOrder() {
+		return freeOrder != NONE;
+	}
+	
+	/**
+	 * @return True if a level slot is free
+	 */
+	boolean hasFreeLevel() {
+		return freeLevel != NONE;
+	}
+	
+	int orderCapacity() {
+		return orderCapacity;
+	}
+	
+	int levelCapacity() {
+		return levelCapacity;
+	}
+}
@@ -0,0 +1,12 @@
+/**
+ * This package contains the off-heap order book, a separate book and matcher for very large books that keeps the resting orders outside the Java heap.
+ * It is used in place of an OrderBook and MatchingEngine, which have no off-heap storage option, so the ingress, sharding, persistence, replay, stops and auctions do not apply to it.
+ * <p>
+ * Orders and price levels are slots in struct of arrays native memory segments (java.lang.foreign), addressed by int handles, so no object is created per order or per trade.
+ * - {@link com.orderbook.offheap.OffHeapOrderBook} is the order book and matching engine, with the same add, cancel, modify and match semantics as OrderBook and MatchingEngine for limit and market orders.
+ * - {@link com.orderbook.offheap.OffHeapOrderStore} is the order and price level columns, with the FIFO queue of each level and the free slot lists.
+ * - {@link com.orderbook.offheap.OffHeapIdIndex} is the off-heap hash index from order Id to order handle.
+ * - {@link com.orderbook.level.LevelIndex} finds the levels of each side by price, in sorted arrays or through a price ladder (see com.orderbook.level).
+ * </p>
+ */
+package com.orderbook.offheap;
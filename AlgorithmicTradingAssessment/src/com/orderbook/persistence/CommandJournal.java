@@ -0,0 +1,193 @@
+package com.orderbook.persistence;
+
+import com.orderbook.engine.CommandType;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The CommandJournal class is an append-only binary journal of the commands accepted by a matching engine.
+ * 
+ * 1. The journal is a directory of fixed size segment files, each memory-mapped when it is created
+ * 2. A record is written straight into the mapped segment, so appending is a few memory writes and no system call
+ * 3. The record's length is written last, so a record torn by a crash reads as the end of the journal
+ * 4. When a record doesn't fit in the current segment the journal rolls to a new one
+ * 5. The FlushPolicy decides when a segment is forced to the storage device
+ * 
+ * Opening a journal on a directory that already has segments continues the sequence in a new segment, old segments are never written again.
+ * The journal is not thread-safe, it is written by the thread that owns the matching engine.
+ */
+public final class CommandJournal implements Closeable {
+	// Segment layout: magic, version and the sequence of the first record, followed by the records
+	static final int MAGIC = 0x4F424A4C; // "OBJL"
+	static final int VERSION = 2;
+	static final int SEGMENT_HEADER_LENGTH = 16;
+	
+	// Record layout: length, command type, side, order type, sequence, order Id, price, quantity, timestamp,
+	// client order Id length and chars
+	static final int RECORD_HEADER_LENGTH = 56;
+	static final int LENGTH_OFFSET = 0;
+	static final int TYPE_OFFSET = 4;
+	static final int SIDE_OFFSET = 5;
+	static final int ORDER_TYPE_OFFSET = 6;
+	static final int SEQUENCE_OFFSET = 8;
+	static final int ORDER_ID_OFFSET = 16;
+	static final int PRICE_OFFSET = 24;
+	static final int QUANTITY_OFFSET = 32;
+	static final int TIMESTAMP_OFFSET = 40;
+	static final int CLIENT_ID_LENGTH_OFFSET = 48;
+	static final byte NO_SIDE = -1;
+	
+	private final Path directory;
+	private final int segmentSize;
+	private final FlushPolicy flushPolicy;
+	
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+	private int segmentIndex;
+	private int position; // The offset in the segment the next record is written at
+	private long sequence; // The sequence of the last record appended
+	private int unforcedRecords;
+	
+	/**
+	 * Open a journal, continuing after the last record of any segments already in the directory
+	 * 
+	 * @param directory The directory the segment files are kept in, created if it doesn't exist
+	 * @param segmentSize The size in bytes of each segment file
+	 * @param flushPolicy When to force segments to the storage device
+	 * @throws IOException If the directory or the first segment cannot be created
+	 */
+	public CommandJournal(Path directory, int segmentSize, FlushPolicy flushPolicy) throws IOException {
+		if (segmentSize < SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH + 2 * Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment size is too small to hold a record: " + segmentSize);
+		}
+		this.directory = Files.createDirectories(directory);
+		this.segmentSize = segmentSize;
+		this.flushPolicy = flushPolicy;
+		
+		List<Path> segments = JournalReplayer.segments(directory);
+		if (!segments.isEmpty()) {
+			Path last = segments.get(segments.size() - 1);
+			segmentIndex = JournalReplayer.segmentIndex(last) + 1;
+			sequence = JournalReplayer.lastSequence(last);
+		}
+		openSegment();
+	}
+	
+	/**
+	 * Append a command to the journal:
+	 * 1. Roll to a new segment if the record doesn't fit in the current one
+	 * 2. Write every field of the record after its length
+	 * 3. Write the length, which marks the record as complete
+	 * 4. Force the segment if the flush policy says so
+	 * 
+	 * This append method is O(1) complexity (plus the length of the client order Id) and allocates nothing
+	 * 
+	 * @param type The type of the command
+	 * @param orderId The order Id of the order the command is for
+	 * @param side The side of the order, or null
+	 * @param orderType The type of the order, or null
+	 * @param price The price in ticks
+	 * @param quantity The quantity in lots
+	 * @param timestamp The order's timestamp
+	 * @param clientOrderId The client order Id of the order, or null
+	 * @return The sequence number of the record
+	 */
+	public long append(CommandType type, long orderId, OrderSide side, OrderType orderType,
+			long price, long quantity, long timestamp, String clientOrderId) {
+		int clientIdLength = clientOrderId == null ? 0 : Math.min(clientOrderId.length(), Short.MAX_VALUE);
+		int length = (RECORD_HEADER_LENGTH + 2 * clientIdLength + 7) & ~7; // Keep every record 8 byte aligned
+		if (position + length > segmentSize) {
+			roll();
+		}
+		
+		int at = position;
+		segment.put(at + TYPE_OFFSET, (byte) type.ordinal());
+		segment.put(at + SIDE_OFFSET, side == null ? NO_SIDE : (byte) side.ordinal());
+		segment.put(at + ORDER_TYPE_OFFSET, orderType == null ? 0 : (byte) orderType.ordinal());
+		segment.putLong(at + SEQUENCE_OFFSET, ++sequence);
+		segment.putLong(at + ORDER_ID_OFFSET, orderId);
+		segment.putLong(at + PRICE_OFFSET, price);
+		segment.putLong(at + QUANTITY_OFFSET, quantity);
+		segment.putLong(at + TIMESTAMP_OFFSET, timestamp);
+		segment.putInt(at + CLIENT_ID_LENGTH_OFFSET, clientIdLength);
+		for (int i = 0; i < clientIdLength; i++) {
+			segment.putChar(at + RECORD_HEADER_LENGTH + 2 * i, clientOrderId.charAt(i));
+		}
+		segment.putInt(at + LENGTH_OFFSET, length); // Written last, a record without a length is the end of the journal
+		position += length;
+		
+		if (flushPolicy.shouldForce(++unforcedRecords)) {
+			force();
+		}
+		return sequence;
+	}
+	
+	/**
+	 * Force every record appended so far to the storage device
+	 */
+	public void force() {
+		segment.force();
+		unforcedRecords = 0;
+	}
+	
+	/**
+	 * @return The sequence of the last record appended, 0 if the journal is empty
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Force the journal and close the current segment
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+	
+	/**
+	 * Move on to a new segment, the rest of the full segment is left zeroed which marks its end
+	 */
+	private void roll() {
+		if (flushPolicy.forceOnRoll()) {
+			force();
+		}
+		try {
+			channel.close();
+			segmentIndex++;
+			openSegment();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not roll the command journal in " + directory, e);
+		}
+	}
+	
+	/**
+	 * Create, size and map the next segment file and write its header
+	 */
+	private void openSegment() throws IOException {
+		Path file = directory.resolve(JournalReplayer.segmentName(segmentIndex));
+		channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		segment.order(ByteOrder.LITTLE_ENDIAN);
+		segment.putInt(0, MAGIC);
+		segment.putInt(4, VERSION);
+		segment.putLong(8, sequence + 1);
+		position = SEGMENT_HEADER_LENGTH;
+		unforcedRecords = 0;
+	}
+}
@@ -0,0 +1,87 @@
+package com.orderbook.persistence;
+
+/**
+ * Strategy interface that decides when the command journal forces its mapped segment to the storage device.
+ * Every record is in the page cache as soon as it is appended, so it survives a crash of the process.
+ * Forcing is what makes it survive a crash of the machine, at the cost of a system call:
+ * - none never forces, the operating system writes the pages back in its own time
+ * - onRoll forces each segment once, when the journal moves on to the next one
+ * - everyRecord forces after every record, the safest and slowest policy
+ * - everyRecords forces after every n records
+ * - interval forces once at least the given time has passed since the last force
+ */
+@FunctionalInterface
+public interface FlushPolicy {
+	
+	/**
+	 * Decide whether to force the segment after a record was appended
+	 * 
+	 * @param unforcedRecords The number of records appended since the last force, including this one
+	 * @return True if the journal should force the segment now
+	 */
+	boolean shouldForce(int unforcedRecords);
+	
+	/**
+	 * @return True if a full segment should be forced before the journal moves on to the next one
+	 */
+	default boolean forceOnRoll() {
+		return true;
+	}
+	
+	/**
+	 * Never force, not even when a segment is full
+	 */
+	static FlushPolicy none() {
+		return new FlushPolicy() {
+			@Override
+			public boolean shouldForce(int unforcedRecords) {
+				return false;
+			}
+			
+			@Override
+			public boolean forceOnRoll() {
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Force each segment only when it is full
+	 */
+	static FlushPolicy onRoll() {
+		return unforcedRecords -> false;
+	}
+	
+	/**
+	 * Force after every record
+	 */
+	static FlushPolicy everyRecord() {
+		return unforcedRecords -> true;
+	}
+	
+	/**
+	 * Force after every n records
+	 * 
+	 * @param records The number of records to append between forces
+	 */
+	static FlushPolicy everyRecords(int records) {
+		return unforcedRecords -> unforcedRecords >= records;
+	}
+	
+	/**
+	 * Force once at least the interval has passed since the last force, this reads the clock on every record
+	 * 
+	 * @param intervalNanos The time between forces in nanoseconds
+	 */
+	static FlushPolicy interval(long intervalNanos) {
+		long[] lastForce = { System.nanoTime() };
+		return unforcedRecords -> {
+			long now = System.nanoTime();
+			if (now - lastForce[0] >= intervalNanos) {
+				lastForce[0] = now;
+				return true;
+			}
+			return false;
+		};
+	}
+}
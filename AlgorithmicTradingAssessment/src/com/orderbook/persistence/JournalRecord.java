@@ -0,0 +1,86 @@
+package com.orderbook.persistence;
+
+import com.orderbook.engine.CommandType;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+
+/**
+ * The JournalRecord class is a single command read back from the command journal.
+ * A JournalReplayer reuses one record for every command it reads, so handlers must copy any field they need to keep.
+ * 
+ * For ADD and PROCESS every field is set. For MODIFY the quantity and timestamp are the new ones.
+ * For CANCEL only the sequence, type, order Id and timestamp are meaningful.
+ */
+public class JournalRecord {
+	private long sequence; // The journal sequence number, increasing by one for every record
+	private CommandType type;
+	private long orderId; // The order Id the order book assigned to the order
+	private OrderSide side;
+	private OrderType orderType;
+	private long price; // The price in ticks
+	private long quantity; // The quantity in lots
+	private long timestamp; // The order's timestamp when the command was accepted
+	private String clientOrderId; // May be null
+	
+	/**
+	 * Set every field of the record, used by the JournalReplayer as it reads each command
+	 */
+	void set(long sequence, CommandType type, long orderId, OrderSide side, OrderType orderType,
+			long price, long quantity, long timestamp, String clientOrderId) {
+		this.sequence = sequence;
+		this.type = type;
+		this.orderId = orderId;
+		this.side = side;
+		this.orderType = orderType;
+		this.price = price;
+		this.quantity = quantity;
+		this.timestamp = timestamp;
+		this.clientOrderId = clientOrderId;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+	
+	public CommandType getType() {
+		return type;
+	}
+	
+	public long getOrderId() {
+		return orderId;
+	}
+	
+	public OrderSide getSide() {
+		return side;
+	}
+	
+	public OrderType getOrderType() {
+		return orderType;
+	}
+	
+	public long getPrice() {
+		return price;
+	}
+	
+	public long getQuantity() {
+		return quantity;
+	}
+	
+	public long getTimestamp() {
+		return timestamp;
+	}
+	
+	public String getClientOrderId() {
+		return clientOrderId;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("JournalRecord{sequence=%d, type=%s, orderId=%d, side=%s, orderType=%s, price=%d, quantity=%d, timestamp=%d%s}",
+				sequence, type, orderId, side, orderType, price, quantity, timestamp,
+				clientOrderId == null ? "" : ", clientOrderId='" + clientOrderId + "'");
+	}
+}
@@ -0,0 +1,15 @@
+package com.orderbook.persistence;
+
+/**
+ * Callback interface for the records read by a JournalReplayer.
+ */
+@FunctionalInterface
+public interface JournalRecordHandler {
+	
+	/**
+	 * Handle one journal record, the record is reused once this returns
+	 * 
+	 * @param record The record that was read
+	 */
+	void onRecord(JournalRecord record);
+}
@@ -0,0 +1,271 @@
+package com.orderbook.persistence;
+
+import static com.orderbook.persistence.CommandJournal.*;
+
+import com.orderbook.engine.CommandType;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The JournalReplayer class reads the commands back from a command journal, in sequence order.
+ * 
+ * 1. Each segment is memory-mapped read only and its records are read in place, into one reused JournalRecord
+ * 2. Reading stops at the first record without a length, which is the end of the journal or a record torn by a crash
+ * 3. Replaying into a matching engine rebuilds the order book deterministically, with the original order Ids and timestamps
+ * 
+ * Records can be skipped up to a sequence number, so a book restored from a snapshot only replays the journal tail.
+ */
+public class JournalReplayer {
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+	private static final CommandType[] TYPES = CommandType.values();
+	private static final OrderSide[] SIDES = OrderSide.values();
+	private static final OrderType[] ORDER_TYPES = OrderType.values();
+	
+	private final Path directory;
+	private final JournalRecord record = new JournalRecord();
+	private long lastSequence; // The sequence of the last record read
+	
+	/**
+	 * 
+	 * @param directory The directory of the journal's segment files
+	 */
+	public JournalReplayer(Path directory) {
+		this.directory = directory;
+	}
+	
+	/**
+	 * Read every record in the journal, see replay(long, JournalRecordHandler)
+	 * 
+	 * @param handler The handler to call for each record
+	 * @return The number of records handled
+	 * @throws IOException If a segment cannot be read
+	 */
+	public long replay(JournalRecordHandler handler) throws IOException {
+		return replay(0, handler);
+	}
+	
+	/**
+	 * Read the records in the journal after a sequence number:
+	 * 1. List the segments in the order they were written
+	 * 2. Map each segment and read its records until the first record without a length
+	 * 3. Call the handler for each record after the sequence number
+	 * 
+	 * This replay method is O(n) complexity, n being the number of records, and only allocates for client order Ids
+	 * 
+	 * @param afterSequence Records up to and including this sequence are skipped
+	 * @param handler The handler to call for each record
+	 * @return The number of records handled
+	 * @throws IOException If a segment cannot be read
+	 */
+	public long replay(long afterSequence, JournalRecordHandler handler) throws IOException {
+		long count = 0;
+		for (Path segment : segments(directory)) {
+			count += readSegment(segment, afterSequence, handler);
+		}
+		return count;
+	}
+	
+	/**
+	 * Rebuild an order book by replaying every command in the journal into its matching engine
+	 * 
+	 * @param engine The matching engine to replay into, it must not have a journal of its own
+	 * @param pool The pool to take the replayed orders from, or null to create them with new
+	 * @return The number of commands replayed
+	 * @throws IOException If a segment cannot be read
+	 */
+	public long replay(MatchingEngine engine, OrderPool pool) throws IOException {
+		return replay(engine, pool, 0);
+	}
+	
+	/**
+	 * Rebuild an order book by replaying the commands in the journal after a sequence number into its matching engine:
+	 * 1. ADD and PROCESS create the order with its original Id and timestamp, and add or process it
+	 * 2. MODIFY modifies the order and restores the timestamp it was given when it was modified
+	 * 3. CANCEL cancels the order
+	 * 4. BEGIN_AUCTION and UNCROSS start and uncross a call auction
+	 * 
+	 * As matching is deterministic, the trades of each PROCESS command and the resulting book are the same as when it was journaled.
+	 * 
+	 * @param engine The matching engine to replay into, it must not have a journal of its own
+	 * @param pool The pool to take the replayed orders from, or null to create them with new
+	 * @param afterSequence Commands up to and including this sequence are skipped, e.g. the sequence of a snapshot
+	 * @return The number of commands replayed
+	 * @throws IOException If a segment cannot be read
+	 */
+	public long replay(MatchingEngine engine, OrderPool pool, long afterSequence) throws IOException {
+		if (engine.getJournal() != null) {
+			throw new IllegalArgumentException("Cannot replay into a matching engine that is journaling");
+		}
+		OrderBook orderBook = engine.getOrderBook();
+		TickSize tickSize = orderBook.getTickSize();
+		return replay(afterSequence, record -> {
+			switch (record.getType()) {
+				case ADD:
+					engine.addOrder(restoreOrder(record, pool, tickSize));
+					break;
+				case PROCESS:
+					engine.processOrder(restoreOrder(record, pool, tickSize));
+					break;
+				case MODIFY:
+					engine.modifyOrder(record.getOrderId(), record.getQuantity());
+					Order modified = orderBook.getOrder(record.getOrderId());
+					if (modified != null) {
+						modified.restoreTimestamp(record.getTimestamp());
+					}
+					break;
+				case CANCEL:
+					engine.cancelOrder(record.getOrderId());
+					break;
+				case BEGIN_AUCTION:
+					engine.beginAuction();
+					break;
+				case UNCROSS:
+					engine.uncross();
+					break;
+			}
+		});
+	}
+	
+	/**
+	 * @return The sequence of the last record read by the last replay, 0 if none were read
+	 */
+	public long getLastSequence() {
+		return lastSequence;
+	}
+	
+	/**
+	 * Create an order from an ADD or PROCESS record, with the Id and timestamp it was journaled with
+	 */
+	private static Order restoreOrder(JournalRecord record, OrderPool pool, TickSize tickSize) {
+		Order order;
+		if (record.getOrderType() == OrderType.MARKET) {
+			order = pool != null
+					? pool.acquireMarket(record.getSide(), record.getQuantity(), record.getClientOrderId())
+					: new Order(record.getSide(), record.getQuantity(), tickSize, record.getClientOrderId());
+		} else if (record.getOrderType() == OrderType.STOP) {
+			double stopPrice = tickSize.toPrice(record.getPrice());
+			order = pool != null
+					? pool.acquireStop(record.getSide(), stopPrice, record.getQuantity(), record.getClientOrderId())
+					: new Order(OrderType.STOP, record.getSide(), stopPrice, record.getQuantity(), tickSize, record.getClientOrderId());
+		} else {
+			double price = tickSize.toPrice(record.getPrice());
+			order = pool != null
+					? pool.acquire(record.getSide(), price, record.getQuantity(), record.getClientOrderId())
+					: new Order(record.getSide(), price, record.getQuantity(), tickSize, record.getClientOrderId());
+		}
+		order.assignId(record.getOrderId());
+		order.restoreTimestamp(record.getTimestamp());
+		return order;
+	}
+	
+	/**
+	 * Read the records of one segment
+	 * 
+	 * @return The number of records handled
+	 */
+	private long readSegment(Path file, long afterSequence, JournalRecordHandler handler) throws IOException {
+		MappedByteBuffer segment = map(file);
+		long count = 0;
+		int position = SEGMENT_HEADER_LENGTH;
+		int length;
+		while (position + RECORD_HEADER_LENGTH <= segment.limit() && (length = segment.getInt(position + LENGTH_OFFSET)) > 0) {
+			long sequence = segment.getLong(position + SEQUENCE_OFFSET);
+			if (sequence > afterSequence) {
+				int clientIdLength = segment.getInt(position + CLIENT_ID_LENGTH_OFFSET);
+				String clientOrderId = null;
+				if (clientIdLength > 0) {
+					char[] chars = new char[clientIdLength];
+					for (int i = 0; i < clientIdLength; i++) {
+						chars[i] = segment.getChar(position + RECORD_HEADER_LENGTH + 2 * i);
+					}
+					clientOrderId = new String(chars);
+				}
+				byte side = segment.get(position + SIDE_OFFSET);
+				record.set(sequence, TYPES[segment.get(position + TYPE_OFFSET)],
+						segment.getLong(position + ORDER_ID_OFFSET),
+						side == NO_SIDE ? null : SIDES[side],
+						ORDER_TYPES[segment.get(position + ORDER_TYPE_OFFSET)],
+						segment.getLong(position + PRICE_OFFSET),
+						segment.getLong(position + QUANTITY_OFFSET),
+						segment.getLong(position + TIMESTAMP_OFFSET),
+						clientOrderId);
+				handler.onRecord(record);
+				count++;
+			}
+			lastSequence = sequence;
+			position += length;
+		}
+		return count;
+	}
+	
+	/**
+	 * Map a segment read only and check its header
+	 */
+	private static MappedByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			segment.order(ByteOrder.LITTLE_ENDIAN);
+			if (segment.limit() < SEGMENT_HEADER_LENGTH || segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION) {
+				throw new IOException("Not a command journal segment: " + file);
+			}
+			return segment;
+		}
+	}
+	
+	/**
+	 * @return The sequence of the last record in a segment, or the sequence before its first record if it is empty
+	 */
+	static long lastSequence(Path file) throws IOException {
+		MappedByteBuffer segment = map(file);
+		long sequence = segment.getLong(8) - 1;
+		int position = SEGMENT_HEADER_LENGTH;
+		int length;
+		while (position + RECORD_HEADER_LENGTH <= segment.limit() && (length = segment.getInt(position + LENGTH_OFFSET)) > 0) {
+			sequence = segment.getLong(position + SEQUENCE_OFFSET);
+			position += length;
+		}
+		return sequence;
+	}
+	
+	/**
+	 * @return The segment files in a journal directory, in the order they were written
+	 */
+	static List<Path> segments(Path directory) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return segments;
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> {
+				String name = file.getFileName().toString();
+				return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+			}).sorted().forEach(segments::add); // The index is zero padded, so sorting by name is sorting by index
+		}
+		return segments;
+	}
+	
+	static String segmentName(int index) {
+		return String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+	}
+	
+	static int segmentIndex(Path file) {
+		String name = file.getFileName().toString();
+		return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+}
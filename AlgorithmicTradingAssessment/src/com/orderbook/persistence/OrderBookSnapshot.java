@@ -0,0 +1,226 @@
+package com.orderbook.persistence;
+
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.PriceLevel;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.OrderBook;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * The OrderBookSnapshot class writes a point-in-time image of an order book to a file and restores a book from it.
+ * 
+ * The snapshot holds both sides of the book, best price first, with every price level's orders in FIFO order,
+ * followed by the parked stop orders of both sides, first to trigger first, and the last trade price that triggers them.
+ * Each order keeps its Id, quantity, timestamp and client order Id, and the snapshot records the journal sequence it was taken at,
+ * so a book can be restored from the snapshot and then replay only the journal tail (see JournalReplayer).
+ * 
+ * Layout (little endian):
+ * - header: magic, version, journal sequence, next order Id, tick size, last trade price, order count (including stop orders)
+ * - for each side (BUY then SELL): level count, then for each level its price, order count and orders
+ * - for each side (BUY then SELL): stop trigger price count, then for each trigger price the price, order count and stop orders
+ * - for each order: Id, quantity, timestamp, client order Id length and chars
+ */
+public class OrderBookSnapshot {
+	static final int MAGIC = 0x4F42534E; // "OBSN"
+	static final int VERSION = 2;
+	private static final int BUFFER_SIZE = 1 << 20;
+	
+	private final Path file;
+	
+	/**
+	 * 
+	 * @param file The snapshot file
+	 */
+	public OrderBookSnapshot(Path file) {
+		this.file = file;
+	}
+	
+	public Path getFile() {
+		return file;
+	}
+	
+	/**
+	 * Write a snapshot of an order book:
+	 * 1. Write the header and then walk each side's price levels and their intrusive queues, best price first
+	 * 2. Encode into one direct buffer that is written to a FileChannel each time it fills
+	 * 3. Force the file and move it over the snapshot file, so a crash never leaves a partial snapshot behind
+	 * 
+	 * This write method is O(n) complexity, n being the number of orders, and must be called from the thread that owns the book
+	 * 
+	 * @param orderBook The order book to snapshot
+	 * @param journalSequence The sequence of the last journal record applied to the book, 0 if there is no journal
+	 * @return The size of the snapshot in bytes
+	 * @throws IOException If the snapshot cannot be written
+	 */
+	public long write(OrderBook orderBook, long journalSequence) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		long size;
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(journalSequence);
+			buffer.putLong(orderBook.getNextOrderId());
+			buffer.putDouble(orderBook.getTickSize().getTickSize());
+			buffer.putLong(orderBook.getLastTradePrice());
+			buffer.putLong(orderBook.getOrderCount());
+			
+			for (OrderSide side : OrderSide.values()) {
+				writeLevels(channel, buffer, orderBook.getLevelCount(side), orderBook.levels(side, Integer.MAX_VALUE).iterator());
+			}
+			for (OrderSide side : OrderSide.values()) {
+				writeLevels(channel, buffer, orderBook.getStopLevelCount(side), orderBook.stopLevels(side).iterator());
+			}
+			flush(channel, buffer);
+			channel.force(true);
+			size = channel.size();
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return size;
+	}
+	
+	/**
+	 * Write one side's price levels (or stop trigger prices) and their orders in FIFO order
+	 */
+	private static void writeLevels(FileChannel channel, ByteBuffer buffer, int count, Iterator<PriceLevel> levels) throws IOException {
+		ensureRemaining(channel, buffer, 4);
+		buffer.putInt(count);
+		while (levels.hasNext()) {
+			PriceLevel level = levels.next();
+			ensureRemaining(channel, buffer, 12);
+			buffer.putLong(level.getPrice());
+			buffer.putInt(level.size());
+			for (Order order = level.getFirst(); order != null; order = order.getNext()) {
+				String clientOrderId = order.getClientOrderId();
+				int clientIdLength = clientOrderId == null ? 0 : Math.min(clientOrderId.length(), Short.MAX_VALUE);
+				ensureRemaining(channel, buffer, 26 + 2 * clientIdLength);
+				buffer.putLong(order.getId());
+				buffer.putLong(order.getQuantity());
+				buffer.putLong(order.getTimestamp());
+				buffer.putShort((short) clientIdLength);
+				for (int i = 0; i < clientIdLength; i++) {
+					buffer.putChar(clientOrderId.charAt(i));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Restore an empty order book from the snapshot:
+	 * 1. Map the snapshot file read only and check its header
+	 * 2. Size the book's order index once and continue its order Id sequence (see OrderBook.beginRestore)
+	 * 3. Bulk load each price level and link its orders to the back of it in FIFO order, without going through addOrder
+	 * 4. Bulk load the parked stop orders the same way
+	 * 5. Finish the restore, which fills the book's depth view if it has one (see OrderBook.endRestore)
+	 * 
+	 * This restore method is O(n) complexity, n being the number of orders
+	 * 
+	 * @param orderBook The empty order book to restore into, with the tick size the snapshot was taken with
+	 * @param pool The pool to take the restored orders from, or null to create them with new
+	 * @return The journal sequence the snapshot was taken at, replay the journal after it to bring the book up to date
+	 * @throws IOException If the snapshot cannot be read or is not a snapshot
+	 */
+	public long restore(OrderBook orderBook, OrderPool pool) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot is too large to map: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.limit() < 48 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not an order book snapshot: " + file);
+		}
+		long journalSequence = buffer.getLong();
+		long nextOrderId = buffer.getLong();
+		double tickSizeValue = buffer.getDouble();
+		TickSize tickSize = orderBook.getTickSize();
+		if (tickSizeValue != tickSize.getTickSize()) {
+			throw new IOException("Snapshot tick size " + tickSizeValue + " does not match the order book " + tickSize);
+		}
+		long lastTradePrice = buffer.getLong();
+		long orderCount = buffer.getLong();
+		orderBook.beginRestore((int) Math.min(orderCount, Integer.MAX_VALUE >> 1), nextOrderId, lastTradePrice);
+		
+		for (OrderSide side : OrderSide.values()) {
+			restoreLevels(buffer, orderBook, pool, side, OrderType.LIMIT);
+		}
+		for (OrderSide side : OrderSide.values()) {
+			restoreLevels(buffer, orderBook, pool, side, OrderType.STOP);
+		}
+		orderBook.endRestore();
+		return journalSequence;
+	}
+	
+	/**
+	 * Restore one side's price levels (or stop trigger prices) and their orders
+	 */
+	private static void restoreLevels(MappedByteBuffer buffer, OrderBook orderBook, OrderPool pool, OrderSide side, OrderType type) {
+		TickSize tickSize = orderBook.getTickSize();
+		int levelCount = buffer.getInt();
+		for (int l = 0; l < levelCount; l++) {
+			long price = buffer.getLong();
+			int levelOrders = buffer.getInt();
+			double decimalPrice = tickSize.toPrice(price);
+			PriceLevel level = type == OrderType.STOP ? orderBook.restoreStopLevel(side, price) : orderBook.restoreLevel(side, price);
+			for (int o = 0; o < levelOrders; o++) {
+				long orderId = buffer.getLong();
+				long quantity = buffer.getLong();
+				long timestamp = buffer.getLong();
+				int clientIdLength = buffer.getShort();
+				String clientOrderId = null;
+				if (clientIdLength > 0) {
+					char[] chars = new char[clientIdLength];
+					for (int i = 0; i < clientIdLength; i++) {
+						chars[i] = buffer.getChar();
+					}
+					clientOrderId = new String(chars);
+				}
+				Order order;
+				if (type == OrderType.STOP) {
+					order = pool != null
+							? pool.acquireStop(side, decimalPrice, quantity, clientOrderId)
+							: new Order(OrderType.STOP, side, decimalPrice, quantity, tickSize, clientOrderId);
+				} else {
+					order = pool != null
+							? pool.acquire(side, decimalPrice, quantity, clientOrderId)
+							: new Order(side, decimalPrice, quantity, tickSize, clientOrderId);
+				}
+				order.assignId(orderId);
+				order.restoreTimestamp(timestamp);
+				orderBook.restoreOrder(level, order);
+			}
+		}
+	}
+	
+	/**
+	 * Write the buffer out if it has less than the given number of bytes left
+	 */
+	private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush(channel, buffer);
+		}
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
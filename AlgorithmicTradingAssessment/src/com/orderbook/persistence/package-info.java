@@ -0,0 +1,13 @@
+/**
+ * This package contains the persistence of the order book.
+ * <p>
+ * It includes the write-ahead journal of every command accepted by a matching engine, the replay that rebuilds an order book from it,
+ * and the snapshots a book is restored from before replaying only the journal tail.
+ * - {@link com.orderbook.persistence.CommandJournal} appends commands to memory-mapped segment files.
+ * - {@link com.orderbook.persistence.FlushPolicy} decides when the journal forces its segments to the storage device.
+ * - {@link com.orderbook.persistence.JournalReplayer} reads the journal back and replays it into a matching engine.
+ * - {@link com.orderbook.persistence.JournalRecord} is a single command read back from the journal.
+ * - {@link com.orderbook.persistence.OrderBookSnapshot} writes a point-in-time image of an order book and bulk loads a book from it.
+ * </p>
+ */
+package com.orderbook.persistence;
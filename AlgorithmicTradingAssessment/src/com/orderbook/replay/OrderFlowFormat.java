@@ -0,0 +1,21 @@
+package com.orderbook.replay;
+
+import java.nio.file.Path;
+
+/**
+ * Enum that represents the format of a recorded order flow file.
+ * CSV is one text line per message (see OrderFlowReplayer for the columns).
+ * BINARY is a recorded timestamp followed by a binary order entry message (see com.orderbook.codec) per message.
+ */
+public enum OrderFlowFormat {
+	CSV,
+	BINARY;
+	
+	/**
+	 * @param file A recorded order flow file
+	 * @return CSV if the file name ends with .csv, otherwise BINARY
+	 */
+	public static OrderFlowFormat of(Path file) {
+		return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : BINARY;
+	}
+}
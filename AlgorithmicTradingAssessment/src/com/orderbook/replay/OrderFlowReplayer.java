@@ -0,0 +1,360 @@
+package com.orderbook.replay;
+
+import com.orderbook.codec.MessageHeader;
+import com.orderbook.codec.OrderEntryDecoder;
+import com.orderbook.metrics.LatencyHistogram;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The OrderFlowReplayer class replays a recorded order flow file into a matching engine, for benchmarks and backtests.
+ * 
+ * 1. Map the file read only, in chunks of up to 1GB so files of any size can be replayed
+ * 2. Parse each message in place from the mapped bytes, no String or other object is created per line or message
+ * 3. Apply the message to the matching engine, either as fast as possible or paced by its recorded timestamp
+ * 4. Record the time taken to apply each message, and report the sustained throughput and latency percentiles at the end
+ * 
+ * A CSV file has one message per line, lines that do not start with a digit (e.g. a header) are skipped:
+ * timestamp,action,orderId,side,price,quantity
+ * - timestamp: the recorded time of the message in nanoseconds, only used for pacing
+ * - action: N for a new limit order, M for a market order, S for a stop order, U to modify the quantity of an order and C to cancel it
+ * - orderId: the Id the new order is given, or the Id of the order to modify or cancel, empty or 0 to let the order book assign it.
+ *   The Id of a new order must not be the Id of an order still in the book, whether it was given in the file or assigned by the book
+ * - side: B or S for a new order, empty otherwise
+ * - price: the decimal price of a limit order or trigger price of a stop order, empty otherwise
+ * - quantity: the quantity of a new order or the new quantity of a modify, empty for a cancel
+ * 
+ * A binary file is a sequence of records, each a little endian long recorded timestamp followed by a binary order entry message
+ * (see OrderEntryDecoder). A binary new order has no order Id, so modifies and cancels refer to the Ids the order book assigns.
+ * 
+ * The replayer takes new orders from an order pool and must be used by the thread that owns the matching engine.
+ */
+public final class OrderFlowReplayer {
+	static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+	private static final int TIMESTAMP_LENGTH = 8;
+	private static final long SPIN_NANOS = 50_000; // Spin rather than park for the last part of a pacing wait
+	private static final double[] POWERS_OF_TEN = { 1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18 };
+	
+	private final MatchingEngine engine;
+	private final OrderPool pool;
+	private final TickSize tickSize;
+	private final OrderEntryDecoder decoder;
+	private final int chunkSize;
+	
+	// State of the replay in progress
+	private LatencyHistogram latency;
+	private long messages;
+	private double speed;
+	private long firstTimestamp;
+	private long startNanos;
+	private int position; // The parse position in the current chunk
+	
+	/**
+	 * 
+	 * @param engine The matching engine to replay the order flow into
+	 * @param pool The pool new orders are taken from, with the tick size of the engine's order book
+	 */
+	public OrderFlowReplayer(MatchingEngine engine, OrderPool pool) {
+		this(engine, pool, DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * 
+	 * @param engine The matching engine to replay the order flow into
+	 * @param pool The pool new orders are taken from, with the tick size of the engine's order book
+	 * @param chunkSize The most bytes of the file mapped at once, a message must fit in one chunk
+	 */
+	public OrderFlowReplayer(MatchingEngine engine, OrderPool pool, int chunkSize) {
+		this.engine = engine;
+		this.pool = pool;
+		this.tickSize = engine.getOrderBook().getTickSize();
+		this.decoder = new OrderEntryDecoder(engine, pool);
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Replay an order flow file, in the format given by its file name (see OrderFlowFormat.of)
+	 * 
+	 * @param file The order flow file
+	 * @param speed 0 to replay as fast as possible, or how many times faster than recorded to pace the replay (1 for the recorded pace)
+	 * @return The number of messages, elapsed time and latency percentiles of the replay
+	 * @throws IOException If the file cannot be read
+	 */
+	public ReplayReport replay(Path file, double speed) throws IOException {
+		return replay(file, OrderFlowFormat.of(file), speed);
+	}
+	
+	/**
+	 * Replay an order flow file:
+	 * 1. Map the next chunk of the file
+	 * 2. Parse and apply every whole message in it, a message cut off at the end of the chunk starts the next chunk
+	 * 3. Repeat until the end of the file
+	 * 
+	 * This replay method is O(n) complexity, n being the size of the file, plus the cost of the matching engine operations
+	 * 
+	 * @param file The order flow file
+	 * @param format The format of the file
+	 * @param speed 0 to replay as fast as possible, or how many times faster than recorded to pace the replay (1 for the recorded pace)
+	 * @return The number of messages, elapsed time and latency percentiles of the replay
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalArgumentException If a message is malformed
+	 */
+	public ReplayReport replay(Path file, OrderFlowFormat format, double speed) throws IOException {
+		this.latency = new LatencyHistogram();
+		this.messages = 0;
+		this.speed = speed;
+		this.startNanos = 0;
+		
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long offset = 0;
+			while (offset < size) {
+				int length = (int) Math.min(chunkSize, size - offset);
+				boolean last = offset + length == size;
+				MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				chunk.order(ByteOrder.LITTLE_ENDIAN);
+				int consumed = format == OrderFlowFormat.CSV ? replayCsv(chunk, last) : replayBinary(chunk);
+				if (consumed == 0) {
+					throw new IOException("Message at byte " + offset + " is longer than the chunk size " + chunkSize);
+				}
+				offset += consumed;
+			}
+		}
+		long elapsed = messages == 0 ? 0 : System.nanoTime() - startNanos;
+		return new ReplayReport(messages, elapsed, latency.snapshot());
+	}
+	
+	/**
+	 * Parse and apply the whole CSV lines in a chunk
+	 * 
+	 * @param last True if the chunk ends the file, so its last line may have no line break
+	 * @return The number of bytes consumed, up to the end of the last whole line
+	 */
+	private int replayCsv(MappedByteBuffer chunk, boolean last) {
+		int limit = chunk.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = lineStart;
+			while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			if (lineEnd == limit && !last) {
+				break; // The line continues in the next chunk
+			}
+			int end = lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+			if (end > lineStart && isDigit(chunk.get(lineStart))) {
+				applyCsv(chunk, lineStart, end);
+			}
+			lineStart = Math.min(lineEnd + 1, limit);
+		}
+		return lineStart;
+	}
+	
+	/**
+	 * Parse one CSV line in place and apply it
+	 * 
+	 * @throws IllegalArgumentException If the line is malformed, or a new order's Id is already in the book, before anything is applied
+	 */
+	private void applyCsv(MappedByteBuffer line, int start, int end) {
+		position = start;
+		long timestamp = parseLong(line, end);
+		byte action = line.get(position);
+		skipField(line, end);
+		long orderId = parseLong(line, end);
+		int sidePosition = position;
+		byte side = position < end ? line.get(position) : 0;
+		skipField(line, end);
+		boolean oneByteSide = position == sidePosition + 2;
+		long price = parsePrice(line, end);
+		long quantity = parseLong(line, end);
+		
+		if (action == 'N' || action == 'M' || action == 'S') {
+			if ((side != 'B' && side != 'S') || !oneByteSide) {
+				throw new IllegalArgumentException("Malformed side in order flow at byte " + sidePosition);
+			}
+			if (orderId != 0 && engine.getOrderBook().getOrder(orderId) != null) {
+				// Indexing it would hide the resting order with the same Id, which would stay in its level but could no longer be found
+				throw new IllegalArgumentException("Order Id " + orderId + " is already in the book, in line at byte " + start);
+			}
+		}
+		
+		pace(timestamp);
+		long begin = System.nanoTime();
+		switch (action) {
+			case 'N':
+			case 'M':
+			case 'S':
+				OrderType type = action == 'N' ? OrderType.LIMIT : action == 'M' ? OrderType.MARKET : OrderType.STOP;
+				Order order = pool.acquire(type, side == 'B' ? OrderSide.BUY : OrderSide.SELL, price, quantity, null);
+				order.assignId(orderId);
+				engine.processOrder(order);
+				break;
+			case 'U':
+				engine.modifyOrder(orderId, quantity);
+				break;
+			case 'C':
+				engine.cancelOrder(orderId);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown order flow action '" + (char) action + "' in line at byte " + start);
+		}
+		record(begin);
+	}
+	
+	/**
+	 * Apply the whole binary records in a chunk
+	 * 
+	 * @return The number of bytes consumed, up to the end of the last whole record
+	 */
+	private int replayBinary(MappedByteBuffer chunk) {
+		MessageHeader header = new MessageHeader().wrap(chunk, 0);
+		int limit = chunk.limit();
+		int offset = 0;
+		while (offset + TIMESTAMP_LENGTH + MessageHeader.ENCODED_LENGTH <= limit) {
+			int length = TIMESTAMP_LENGTH + MessageHeader.ENCODED_LENGTH + header.wrap(chunk, offset + TIMESTAMP_LENGTH).getBlockLength();
+			if (offset + length > limit) {
+				break; // The record continues in the next chunk
+			}
+			pace(chunk.getLong(offset));
+			long begin = System.nanoTime();
+			decoder.onMessage(chunk, offset + TIMESTAMP_LENGTH);
+			record(begin);
+			offset += length;
+		}
+		return offset;
+	}
+	
+	/**
+	 * Wait until a message's recorded time, relative to the first message, has passed at the replay speed.
+	 * The first call also starts the replay clock.
+	 */
+	private void pace(long timestamp) {
+		if (startNanos == 0) {
+			startNanos = System.nanoTime();
+			firstTimestamp = timestamp;
+		}
+		if (speed <= 0) {
+			return;
+		}
+		long due = startNanos + (long) ((timestamp - firstTimestamp) / speed);
+		long wait;
+		while ((wait = due - System.nanoTime()) > 0) {
+			if (wait > SPIN_NANOS) {
+				LockSupport.parkNanos(wait - SPIN_NANOS);
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+	
+	private void record(long begin) {
+		latency.record(System.nanoTime() - begin);
+		messages++;
+	}
+	
+	/**
+	 * Parse a whole number field at the parse position and move past its comma, an empty field is 0
+	 * 
+	 * @throws IllegalArgumentException If the field is not a whole number of at most 18 digits, which always fits a long
+	 */
+	private long parseLong(MappedByteBuffer line, int end) {
+		long value = 0;
+		boolean negative = position < end && line.get(position) == '-';
+		if (negative) {
+			position++;
+		}
+		int digits = 0;
+		byte b;
+		while (position < end && (b = line.get(position)) != ',') {
+			if (!isDigit(b) || ++digits >= POWERS_OF_TEN.length) {
+				throw new IllegalArgumentException("Malformed number in order flow at byte " + position);
+			}
+			value = value * 10 + (b - '0');
+			position++;
+		}
+		position++; // Past the comma
+		return negative ? -value : value;
+	}
+	
+	/**
+	 * Parse a decimal price field at the parse position into ticks and move past its comma, an empty field is 0
+	 * 
+	 * @throws IllegalArgumentException If the field is not a decimal number of at most 18 digits, which always fits the long mantissa
+	 */
+	private long parsePrice(MappedByteBuffer line, int end) {
+		long mantissa = 0;
+		int scale = -1; // The number of digits after the decimal point, -1 until the point is seen
+		boolean negative = position < end && line.get(position) == '-';
+		if (negative) {
+			position++;
+		}
+		int digits = 0;
+		byte b;
+		while (position < end && (b = line.get(position)) != ',') {
+			if (b == '.' && scale < 0) {
+				scale = 0;
+			} else if (isDigit(b) && ++digits < POWERS_OF_TEN.length) {
+				mantissa = mantissa * 10 + (b - '0');
+				if (scale >= 0) {
+					scale++;
+				}
+			} else {
+				throw new IllegalArgumentException("Malformed price in order flow at byte " + position);
+			}
+			position++;
+		}
+		position++; // Past the comma
+		double price = mantissa / POWERS_OF_TEN[Math.max(scale, 0)];
+		return tickSize.toTicks(negative ? -price : price);
+	}
+	
+	/**
+	 * Move the parse position past the next comma
+	 */
+	private void skipField(MappedByteBuffer line, int end) {
+		while (position < end && line.get(position) != ',') {
+			position++;
+		}
+		position++;
+	}
+	
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+	
+	/**
+	 * Replay an order flow file into a new order book and print the report
+	 * 
+	 * Usage: OrderFlowReplayer file [speed] [tickSize]
+	 * 
+	 * @param args The file, the replay speed (0 or omitted for as fast as possible) and the tick size (0.01 if omitted)
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: OrderFlowReplayer file [speed] [tickSize]");
+			return;
+		}
+		Path file = Paths.get(args[0]);
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+		TickSize tickSize = args.length > 2 ? new TickSize(Double.parseDouble(args[2])) : TickSize.DEFAULT;
+		
+		OrderBook orderBook = new OrderBook(tickSize);
+		OrderFlowReplayer replayer = new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(1 << 16, tickSize));
+		ReplayReport report = replayer.replay(file, speed);
+		System.out.println(report);
+		System.out.println("Resting orders: " + orderBook.getOrderCount());
+	}
+}
@@ -0,0 +1,53 @@
+package com.orderbook.replay;
+
+import com.orderbook.metrics.HistogramSnapshot;
+
+/**
+ * The ReplayReport class is an immutable summary of one order flow replay:
+ * the number of messages applied, the wall clock time they took and the latency distribution of applying each message.
+ */
+public final class ReplayReport {
+	private final long messages;
+	private final long elapsedNanos; // From the first message to the end of the last, including any pacing
+	private final HistogramSnapshot latency; // The time to apply each message to the matching engine
+	
+	/**
+	 * 
+	 * @param messages The number of messages applied
+	 * @param elapsedNanos The wall clock time of the replay in nanoseconds
+	 * @param latency The latency of applying each message
+	 */
+	public ReplayReport(long messages, long elapsedNanos, HistogramSnapshot latency) {
+		this.messages = messages;
+		this.elapsedNanos = elapsedNanos;
+		this.latency = latency;
+	}
+	
+	/**
+	 * Getters for the respective fields above.
+	 */
+	public long getMessages() {
+		return messages;
+	}
+	
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	
+	public HistogramSnapshot getLatency() {
+		return latency;
+	}
+	
+	/**
+	 * @return The sustained throughput of the replay in messages per second
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : messages * 1e9 / elapsedNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("Replayed %d messages in %.3f s (%.0f msg/s)%nlatency: %s",
+				messages, elapsedNanos / 1e9, getThroughput(), latency);
+	}
+}
@@ -0,0 +1,10 @@
+/**
+ * This package contains the order flow replay driver used for benchmarks and backtests.
+ * <p>
+ * Recorded order flow is memory-mapped and parsed in place, and applied to a matching engine as fast as possible or at its recorded pace.
+ * - {@link com.orderbook.replay.OrderFlowReplayer} is the class that maps, parses and replays an order flow file, and can be run from the command line.
+ * - {@link com.orderbook.replay.OrderFlowFormat} is the format of an order flow file, CSV or binary.
+ * - {@link com.orderbook.replay.ReplayReport} is the throughput and latency percentiles of a replay.
+ * </p>
+ */
+package com.orderbook.replay;
@@ -0,0 +1,231 @@
+package com.orderbook.service;
+
+import com.orderbook.model.DepthLevel;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.PriceLevel;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The DepthView class is a copy of the best price levels of both sides of an order book, which other threads (risk, UI, monitoring)
+ * can read without a lock and without ever stopping the matching engine.
+ * 
+ * 1. The order book owns the view and updates it on its own thread, once for every price level change (see OrderBook.levelChanged)
+ * 2. Each side is held in flat arrays of price, total quantity and order count, best price first, allocated once for the number of levels
+ * 3. Every update is guarded by a sequence lock, the sequence is odd while the arrays are being written and even once they are consistent
+ * 4. A reader copies the arrays between two reads of the sequence, and retries if the sequence was odd or has moved,
+ *    so it never sees a half written update and the writer never waits for a reader
+ * 
+ * An update only touches the changed level and shifts the levels behind it, and when one of the levels in the view is deleted
+ * the next best level is read from the book's price levels. The writer's cost therefore grows with the levels that changed and the size
+ * of the view, never with the size of the book, and a change to a level outside the view costs a single scan of the view.
+ */
+public final class DepthView {
+	private final int levels;
+	
+	// Both sides in one set of arrays, the buy side in the first half and the sell side in the second, best price first
+	private final long[] prices;
+	private final long[] quantities;
+	private final int[] orderCounts;
+	private final int[] sizes = new int[2];
+	
+	// Odd while the owner thread is writing, incremented by two for every update
+	private final AtomicLong sequence = new AtomicLong();
+	
+	/**
+	 * 
+	 * @param levels The number of price levels held for each side
+	 */
+	DepthView(int levels) {
+		if (levels <= 0) {
+			throw new IllegalArgumentException("Depth view must hold at least one level: " + levels);
+		}
+		this.levels = levels;
+		this.prices = new long[levels * 2];
+		this.quantities = new long[levels * 2];
+		this.orderCounts = new int[levels * 2];
+	}
+	
+	/**
+	 * @return The number of price levels held for each side
+	 */
+	public int getLevels() {
+		return levels;
+	}
+	
+	/**
+	 * Get the version of the view, which changes every time a level in the view changes.
+	 * A poller can compare it with the version it last read and skip reading the view when nothing has changed.
+	 * 
+	 * @return The version, always even
+	 */
+	public long getVersion() {
+		long version;
+		while (((version = sequence.getAcquire()) & 1) != 0) {
+			Thread.onSpinWait(); // An update is being written, it only takes as long as shifting the view
+		}
+		return version;
+	}
+	
+	/**
+	 * Copy the levels of one side of the view into the caller's arrays, from any thread:
+	 * 1. Read the sequence, and spin while it is odd (an update is being written)
+	 * 2. Copy the side's levels, best price first
+	 * 3. Read the sequence again, and retry from the start if it has changed
+	 * 
+	 * This read method is O(n) complexity, n being the number of levels copied, and allocates nothing
+	 * 
+	 * @param side
+	 * @param prices The buffer the prices in ticks are copied into, its length is the most levels copied
+	 * @param quantities The buffer the total quantities are copied into, at least as long as prices
+	 * @param orderCounts The buffer the order counts are copied into, at least as long as prices
+	 * @return The number of levels copied
+	 */
+	public int read(OrderSide side, long[] prices, long[] quantities, int[] orderCounts) {
+		int base = side.ordinal() * levels;
+		while (true) {
+			long version = sequence.getAcquire();
+			if ((version & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			int size = Math.min(Math.min(sizes[side.ordinal()], levels), prices.length);
+			System.arraycopy(this.prices, base, prices, 0, size);
+			System.arraycopy(this.quantities, base, quantities, 0, size);
+			System.arraycopy(this.orderCounts, base, orderCounts, 0, size);
+			VarHandle.acquireFence(); // The copies must be read before the sequence is checked again
+			if (sequence.get() == version) {
+				return size;
+			}
+		}
+	}
+	
+	/**
+	 * Get one side of the view as depth levels, from any thread (see read)
+	 * 
+	 * @param side
+	 * @return The levels of the side, best price first
+	 */
+	public List<DepthLevel> getDepth(OrderSide side) {
+		long[] levelPrices = new long[levels];
+		long[] levelQuantities = new long[levels];
+		int[] levelOrderCounts = new int[levels];
+		int size = read(side, levelPrices, levelQuantities, levelOrderCounts);
+		List<DepthLevel> depth = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			depth.add(new DepthLevel(side, levelPrices[i], levelQuantities[i], levelOrderCounts[i]));
+		}
+		return depth;
+	}
+	
+	/**
+	 * Apply one price level change to the view, on the thread that owns the order book:
+	 * 1. Find where the level is, or would be, in the view by scanning its side from the best price
+	 * 2. A deleted level in the view is taken out, the levels behind it move up, and if the view was full
+	 *    the next best level in the book is read from the side's price levels to fill the last place
+	 * 3. An updated level in the view has its total quantity and order count replaced
+	 * 4. A new level that is among the best levels is put in place, the levels behind it move back and the last one falls out if the view is full
+	 * 5. A change to a level behind the view changes nothing and does not move the sequence
+	 * 
+	 * This levelChanged method is O(L) complexity, L being the number of levels in the view, plus O(log P) when a level in the view is deleted
+	 * 
+	 * @param level The changed price level, an empty level must already have been removed from its side
+	 * @param orders The price levels of the level's side
+	 */
+	void levelChanged(PriceLevel level, PriceLevels orders) {
+		int side = level.getSide().ordinal();
+		int base = side * levels;
+		int size = sizes[side];
+		boolean buy = level.getSide() == OrderSide.BUY;
+		long price = level.getPrice();
+		int index = 0;
+		while (index < size && (buy ? prices[base + index] > price : prices[base + index] < price)) {
+			index++;
+		}
+		boolean present = index < size && prices[base + index] == price;
+		
+		if (level.isEmpty()) {
+			if (!present) {
+				return;
+			}
+			beginWrite();
+			int moved = size - index - 1;
+			System.arraycopy(prices, base + index + 1, prices, base + index, moved);
+			System.arraycopy(quantities, base + index + 1, quantities, base + index, moved);
+			System.arraycopy(orderCounts, base + index + 1, orderCounts, base + index, moved);
+			size--;
+			if (size == levels - 1) {
+				// The view was full, so the best level behind it now belongs in the view
+				PriceLevel next = size == 0 ? orders.first() : orders.next(prices[base + size - 1]);
+				if (next != null) {
+					set(base + size++, next);
+				}
+			}
+			sizes[side] = size;
+			endWrite();
+		} else if (present) {
+			beginWrite();
+			set(base + index, level);
+			endWrite();
+		} else if (index < levels) {
+			beginWrite();
+			int moved = Math.min(size, levels - 1) - index;
+			System.arraycopy(prices, base + index, prices, base + index + 1, moved);
+			System.arraycopy(quantities, base + index, quantities, base + index + 1, moved);
+			System.arraycopy(orderCounts, base + index, orderCounts, base + index + 1, moved);
+			set(base + index, level);
+			sizes[side] = Math.min(size + 1, levels);
+			endWrite();
+		}
+	}
+	
+	/**
+	 * Refill the whole view from the book's price levels, on the thread that owns the order book, used once a book has been restored
+	 * 
+	 * This rebuild method is O(L log P) complexity, L being the number of levels in the view and P the number of price levels
+	 * 
+	 * @param buyOrders The buy price levels
+	 * @param sellOrders The sell price levels
+	 */
+	void rebuild(PriceLevels buyOrders, PriceLevels sellOrders) {
+		beginWrite();
+		for (OrderSide side : OrderSide.values()) {
+			int base = side.ordinal() * levels;
+			PriceLevels orders = side == OrderSide.BUY ? buyOrders : sellOrders;
+			int size = 0;
+			for (PriceLevel level = orders.first(); level != null && size < levels; level = orders.next(level)) {
+				set(base + size++, level);
+			}
+			sizes[side.ordinal()] = size;
+		}
+		endWrite();
+	}
+	
+	private void set(int index, PriceLevel level) {
+		prices[index] = level.getPrice();
+		quantities[index] = level.getTotalQuantity();
+		orderCounts[index] = level.size();
+	}
+	
+	/**
+	 * Make the sequence odd before any of the arrays are written, only the owner thread writes so no atomic instruction is needed
+	 */
+	private void beginWrite() {
+		sequence.setOpaque(sequence.getPlain() + 1);
+		VarHandle.storeStoreFence(); // Readers must see the odd sequence before any of the writes that follow it
+	}
+	
+	/**
+	 * Make the sequence even again once the arrays are consistent, with an ordered write so readers see every write before it
+	 */
+	private void endWrite() {
+		sequence.setRelease(sequence.getPlain() + 1);
+	}
+	
+	@Override
+	public String toString() {
+		return "DepthView{levels=" + levels + ", bids=" + getDepth(OrderSide.BUY) + ", asks=" + getDepth(OrderSide.SELL) + "}";
+	}
+}
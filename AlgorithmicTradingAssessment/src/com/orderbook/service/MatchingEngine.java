@@ -1,13 +1,41 @@
 package com.orderbook.service;
 
+import com.orderbook.engine.CommandType;
+import com.orderbook.engine.OrderCommand;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.metrics.EngineMetrics;
+import com.orderbook.metrics.EngineOperation;
 import com.orderbook.model.*;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.TreeMap;
+import com.orderbook.persistence.CommandJournal;
+import java.util.Objects;
 
+/**
+ * The MatchingEngine class matches incoming orders against the opposite side of an order book.
+ * Resting orders are cancelled and modified by the long order Id that processOrder returns.
+ * Orders and mixed commands can also be applied in batches (see processOrders and processCommands), which keep the strict
+ * per-message order but write their results into caller-supplied buffers.
+ * If an execution report ring buffer is given, every accept, fill, rest, modify and cancel is published to it.
+ * If engine metrics are given, the latency of every add, cancel, modify and match is recorded along with the fills and levels walked.
+ * If a command journal is given, every accepted command is appended to it before any execution report about it is published.
+ * Stop orders are parked in the order book until a trade reaches their trigger price. The stops triggered by an incoming order's
+ * trades are swept as market orders before processOrder returns, and their own trades can trigger further stops.
+ * Triggered stops are derived from the journaled commands, so they are not journaled themselves.
+ * In call auction mode (see beginAuction) orders rest in the order book without matching until the auction is uncrossed.
+ */
 public class MatchingEngine{
 	private final OrderBook orderbook;
+	private final ExecutionReportRingBuffer executionReports; // May be null if nothing consumes execution reports
+	private final EngineMetrics metrics; // May be null if the engine is not instrumented
+	private final CommandJournal journal; // May be null if commands are not journaled
+	private long marketProtectionTicks; // How far from the best price a market order may trade, 0 for no limit
+	
+	// The lowest and highest trade prices of the order being processed and the stops it triggered, used to find triggered stops
+	private long lowTradePrice;
+	private long highTradePrice;
+	
+	// True while a call auction is collecting orders, until it is uncrossed
+	private boolean auction;
 	
 	/**
 	 * 
@@ -16,89 +44,667 @@ public class MatchingEngine{
 	 * @param orderbook The order book that the matching engine will process orders for
 	 */
 	public MatchingEngine(OrderBook orderbook) {
+		this(orderbook, null);
+	}
+	
+	/**
+	 * 
+	 * MatchingEngine constructor initialises the MatchingEngine with an order book and an execution report stream
+	 * 
+	 * @param orderbook The order book that the matching engine will process orders for
+	 * @param executionReports The ring buffer execution reports are published to, or null
+	 */
+	public MatchingEngine(OrderBook orderbook, ExecutionReportRingBuffer executionReports) {
+		this(orderbook, executionReports, null);
+	}
+	
+	/**
+	 * 
+	 * MatchingEngine constructor initialises the MatchingEngine with an order book, an execution report stream and metrics
+	 * 
+	 * @param orderbook The order book that the matching engine will process orders for
+	 * @param executionReports The ring buffer execution reports are published to, or null
+	 * @param metrics The metrics the engine's latencies and counters are recorded into, or null
+	 */
+	public MatchingEngine(OrderBook orderbook, ExecutionReportRingBuffer executionReports, EngineMetrics metrics) {
+		this(orderbook, executionReports, metrics, null);
+	}
+	
+	/**
+	 * 
+	 * MatchingEngine constructor initialises the MatchingEngine with an order book, an execution report stream, metrics and a journal
+	 * 
+	 * @param orderbook The order book that the matching engine will process orders for
+	 * @param executionReports The ring buffer execution reports are published to, or null
+	 * @param metrics The metrics the engine's latencies and counters are recorded into, or null
+	 * @param journal The journal every accepted command is appended to, or null
+	 */
+	public MatchingEngine(OrderBook orderbook, ExecutionReportRingBuffer executionReports, EngineMetrics metrics, CommandJournal journal) {
 		this.orderbook = orderbook;
+		this.executionReports = executionReports;
+		this.metrics = metrics;
+		this.journal = journal;
+	}
+	
+	public OrderBook getOrderBook() {
+		return orderbook;
+	}
+	
+	public EngineMetrics getMetrics() {
+		return metrics;
+	}
+	
+	public CommandJournal getJournal() {
+		return journal;
+	}
+	
+	/**
+	 * Set the price protection band of market orders. A market order stops sweeping at the first price level further than
+	 * the band from the best opposite price when it arrived, and its remainder is cancelled.
+	 * 
+	 * @param ticks The width of the band in ticks, 0 to let market orders sweep the whole book
+	 */
+	public void setMarketProtection(long ticks) {
+		this.marketProtectionTicks = ticks;
+	}
+	
+	public long getMarketProtection() {
+		return marketProtectionTicks;
+	}
+	
+	/**
+	 * Start a call auction. Until it is uncrossed, incoming limit orders rest in the order book without matching (so the book
+	 * may be crossed), stop orders are parked, and market orders are cancelled as there is no price for them to rest at.
+	 * Modifies and cancels work as usual. The auction mode is journaled, but it is not part of an order book snapshot.
+	 */
+	public void beginAuction() {
+		if (journal != null) {
+			journal.append(CommandType.BEGIN_AUCTION, 0, null, null, 0, 0, 0, null);
+		}
+		auction = true;
+	}
+	
+	/**
+	 * @return True if a call auction is collecting orders
+	 */
+	public boolean isAuction() {
+		return auction;
+	}
+	
+	/**
+	 * Uncross a call auction and return to continuous matching:
+	 * 1. Compute the equilibrium price that executes the most volume in one pass over the crossed price levels
+	 *    (see OrderBook.computeUncross), using the last trade price as the reference price
+	 * 2. Execute that volume in bulk on each side independently, walking the bids from the best price and the asks from the
+	 *    best price in priority order, filling every order at the equilibrium price until the volume is used up
+	 * 3. Publish one fill per order filled and one change per price level walked, and release fully filled orders
+	 * 4. Record the equilibrium price as the last trade price
+	 * 5. Sweep any stop orders the last trade price has triggered, including stops parked during the auction that were
+	 *    already through the last trade price when they arrived, even if nothing traded in the uncross
+	 * 
+	 * The orders are not matched against each other one at a time, every fill is at the same price and each side is
+	 * allocated the same volume, so the book after the uncross is the same whatever the pairing of buyers and sellers.
+	 * 
+	 * This uncross method is O(C log P + F + L) complexity, C being the number of crossed price levels, F the number of orders filled,
+	 * L the number of price levels emptied and P the number of price levels
+	 * 
+	 * @return The equilibrium price and executed volume, with a volume of 0 if the book was not crossed
+	 */
+	public AuctionResult uncross() {
+		if (journal != null) {
+			journal.append(CommandType.UNCROSS, 0, null, null, 0, 0, 0, null);
+		}
+		auction = false;
+		AuctionResult result = orderbook.computeUncross(orderbook.getLastTradePrice());
+		if (result.getVolume() > 0) {
+			long price = result.getPrice();
+			int fills = allocate(OrderSide.BUY, price, result.getVolume());
+			fills += allocate(OrderSide.SELL, price, result.getVolume());
+			if (metrics != null) {
+				metrics.recordMatch(fills, 0);
+				metrics.setRestingOrders(orderbook.getOrderCount());
+			}
+			orderbook.recordTrade(price);
+		}
+		
+		long lastTradePrice = orderbook.getLastTradePrice();
+		if (lastTradePrice != OrderBook.NO_PRICE && orderbook.hasStopOrders()) {
+			lowTradePrice = lastTradePrice;
+			highTradePrice = lastTradePrice;
+			triggerStops();
+		}
+		return result;
+	}
+	
+	/**
+	 * Fill one side of an auction from its best price level, in priority order, at the equilibrium price
+	 * 
+	 * The equilibrium volume never exceeds the quantity willing to trade at the equilibrium price,
+	 * so only levels at or better than that price are reached.
+	 * 
+	 * @return The number of orders filled
+	 */
+	private int allocate(OrderSide side, long price, long volume) {
+		int fills = 0;
+		while (volume > 0) {
+			PriceLevel level = orderbook.getBestLevel(side);
+			Order order = level.getFirst();
+			while (order != null && volume > 0) {
+				Order nextOrder = order.getNext();
+				long matchedQuantity = Math.min(volume, order.getQuantity());
+				level.fill(order, matchedQuantity);
+				volume -= matchedQuantity;
+				fills++;
+				if (executionReports != null) {
+					executionReports.publish(ExecutionType.FILL, order.getId(), 0, order.getSide(),
+							price, matchedQuantity, order.getQuantity(), 0);
+				}
+				if (order.getQuantity() == 0) {
+					level.remove(order);
+					orderbook.unindexOrder(order);
+					order.release();
+				}
+				order = nextOrder;
+			}
+			if (level.isEmpty()) {
+				orderbook.removeLevel(level);
+			}
+			orderbook.levelChanged(level, false);
+		}
+		return fills;
+	}
+	
+	/**
+	 * Add an order straight to the order book without matching it (see OrderBook.addOrder)
+	 * 
+	 * @param order The order to rest in the order book
+	 * @return The Id assigned to the order
+	 */
+	public long addOrder(Order order) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		long orderId = add(order);
+		if (metrics != null) {
+			record(EngineOperation.ADD, start);
+		}
+		return orderId;
+	}
+	
+	private long add(Order order) {
+		orderbook.addOrder(order);
+		if (journal != null) {
+			journal.append(CommandType.ADD, order.getId(), order.getSide(), order.getType(), order.getPriceTicks(),
+					order.getQuantity(), order.getTimestamp(), order.getClientOrderId());
+		}
+		return order.getId();
 	}
 	
 	/**
 	 * Process an incoming order and try to match it with orders in the opposite side of the order book
+	 * The matching engine owns the order from this point, a pooled order is released once it is fully filled.
+	 * A market order is swept through the opposite side and any remainder is cancelled rather than rested.
+	 * A stop order is parked until a trade reaches its trigger price, or swept straight away if the last trade already has.
+	 * Once the order has matched, any stops its trades triggered are swept (see triggerStops).
 	 * 
 	 * @param newOrder Is the new order to be processed
+	 * @return The Id assigned to the order, as a pooled order may already be recycled when this returns
 	 */
-	public void processOrder(Order newOrder) {
-        if (newOrder.getSide() == OrderSide.BUY) {
-            matchOrder(newOrder, orderbook.getOrderMap(OrderSide.SELL));
+	public long processOrder(Order newOrder) {
+        long start = metrics != null ? System.nanoTime() : 0; // Only read the clock when the engine is instrumented
+        long orderId = process(newOrder);
+        if (metrics != null) {
+            record(EngineOperation.MATCH, start);
+        }
+        return orderId;
+    }
+	
+	/**
+	 * Process an incoming order without recording its latency, see processOrder
+	 */
+	private long process(Order newOrder) {
+        long orderId = orderbook.assignOrderId(newOrder); // Give the incoming order its Id before it trades or rests
+        if (journal != null) {
+            journal.append(CommandType.PROCESS, orderId, newOrder.getSide(), newOrder.getType(), newOrder.getPriceTicks(),
+                    newOrder.getQuantity(), newOrder.getTimestamp(), newOrder.getClientOrderId());
+        }
+        if (executionReports != null) {
+            executionReports.publish(ExecutionType.ACCEPTED, orderId, 0, newOrder.getSide(),
+                    newOrder.getPriceTicks(), newOrder.getQuantity(), newOrder.getQuantity(), 0);
+        }
+        lowTradePrice = Long.MAX_VALUE;
+        highTradePrice = Long.MIN_VALUE;
+        if (auction && newOrder.getType() != OrderType.STOP) {
+            collectOrder(newOrder); // Nothing trades until the auction is uncrossed
+        } else if (newOrder.getType() == OrderType.STOP) {
+            long lastTradePrice = orderbook.getLastTradePrice();
+            if (!auction && lastTradePrice != OrderBook.NO_PRICE && newOrder.isTriggeredBy(lastTradePrice)) {
+                triggerStop(newOrder); // The market is already through the trigger price
+            } else {
+                // During an auction every stop is parked, the uncross sweeps those the last trade price has triggered
+                orderbook.addStopOrder(newOrder);
+                if (executionReports != null) {
+                    executionReports.publish(ExecutionType.RESTED, orderId, 0, newOrder.getSide(),
+                            newOrder.getPriceTicks(), newOrder.getQuantity(), newOrder.getQuantity(), 0);
+                }
+            }
+        } else if (newOrder.getType() == OrderType.MARKET) {
+            sweepOrder(newOrder); // Market orders take the specialised sweep path and never rest
         } else {
-            matchOrder(newOrder, orderbook.getOrderMap(OrderSide.BUY));
+            matchOrder(newOrder);
+        }
+        if (highTradePrice != Long.MIN_VALUE && orderbook.hasStopOrders()) {
+            triggerStops();
         }
+        return orderId;
     }
 	
+	/**
+	 * Cancel a resting order by its Id, releasing it to its pool
+	 * 
+	 * @param orderId The Id assigned to the order by processOrder
+	 * @return True if the order was found and cancelled, false if it wasn't
+	 */
+	public boolean cancelOrder(long orderId) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		boolean cancelled = cancel(orderId);
+		if (metrics != null) {
+			record(EngineOperation.CANCEL, start);
+		}
+		return cancelled;
+	}
+	
+	private boolean cancel(long orderId) {
+		Order order = orderbook.deleteOrder(orderId);
+		if (order == null) {
+			return false;
+		}
+		if (journal != null) {
+			journal.append(CommandType.CANCEL, orderId, order.getSide(), order.getType(), order.getPriceTicks(), 0, order.getTimestamp(), null);
+		}
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.CANCELLED, orderId, 0, order.getSide(),
+					order.getPriceTicks(), order.getQuantity(), 0, 0);
+		}
+		order.release(); // Recycle the order if it came from a pool
+		return true;
+	}
+	
+	/**
+	 * Modify the quantity of a resting order by its Id, a reduction keeps the order's priority and an increase loses it (see OrderBook.modifyOrder)
+	 * 
+	 * @param orderId The Id assigned to the order by processOrder
+	 * @param newQuantity The new quantity of the order
+	 * @return True if the order was found and modified, false if it wasn't
+	 */
+	public boolean modifyOrder(long orderId, long newQuantity) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		boolean modified = modify(orderId, newQuantity);
+		if (metrics != null) {
+			record(EngineOperation.MODIFY, start);
+		}
+		return modified;
+	}
+	
+	private boolean modify(long orderId, long newQuantity) {
+		Order order = orderbook.modifyOrder(orderId, newQuantity);
+		if (order == null) {
+			return false;
+		}
+		if (journal != null) {
+			journal.append(CommandType.MODIFY, orderId, order.getSide(), order.getType(), order.getPriceTicks(),
+					newQuantity, order.getTimestamp(), null);
+		}
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.MODIFIED, orderId, 0, order.getSide(),
+					order.getPriceTicks(), newQuantity, newQuantity, 0);
+		}
+		return true;
+	}
+	
+	/**
+	 * Process a batch of incoming orders, each exactly as processOrder would and strictly in array order:
+	 * 1. Process each order against the opposite side, including any stops it triggers, before the next order is looked at
+	 * 2. Write each order's Id into the caller's results buffer at the same index as the order
+	 * 3. If the engine is instrumented, read the clock once per order rather than twice, and update the resting book size once per batch
+	 * 
+	 * This processOrders method allocates nothing and has the same complexity as processOrder for each order
+	 * 
+	 * @param orders The orders to process, the matching engine owns each of them from this point
+	 * @param offset The index of the first order to process
+	 * @param length The number of orders to process
+	 * @param orderIds The buffer the assigned order Ids are written to, at the index of each order
+	 * @return The number of orders processed
+	 */
+	public int processOrders(Order[] orders, int offset, int length, long[] orderIds) {
+		Objects.checkFromIndexSize(offset, length, orders.length);
+		Objects.checkFromIndexSize(offset, length, orderIds.length);
+		long time = metrics != null ? System.nanoTime() : 0;
+		for (int i = offset; i < offset + length; i++) {
+			orderIds[i] = process(orders[i]);
+			if (metrics != null) {
+				time = recordBatched(EngineOperation.MATCH, time);
+			}
+		}
+		if (metrics != null) {
+			metrics.setRestingOrders(orderbook.getOrderCount());
+		}
+		return length;
+	}
+	
+	/**
+	 * Apply a batch of mixed add, process, modify and cancel commands, each exactly as the single command methods would
+	 * and strictly in array order (see processOrders for how the batch is amortised)
+	 * 
+	 * A command's result is the Id of the order it applied to, or 0 if a modify or cancel referred to an order that is not in the book.
+	 * The result of an uncross is the volume it executed, and of beginning an auction 0.
+	 * Commands that refer to an order by its client order Id are resolved against the book when their turn comes,
+	 * so they can refer to an order added earlier in the same batch.
+	 * 
+	 * @param commands The commands to apply, they are not modified and can be reused
+	 * @param offset The index of the first command to apply
+	 * @param length The number of commands to apply
+	 * @param results The buffer each command's result is written to, at the index of each command
+	 * @return The number of commands applied
+	 */
+	public int processCommands(OrderCommand[] commands, int offset, int length, long[] results) {
+		Objects.checkFromIndexSize(offset, length, commands.length);
+		Objects.checkFromIndexSize(offset, length, results.length);
+		long time = metrics != null ? System.nanoTime() : 0;
+		for (int i = offset; i < offset + length; i++) {
+			OrderCommand command = commands[i];
+			EngineOperation operation;
+			long result;
+			switch (command.getType()) {
+				case ADD:
+					result = add(command.getOrder());
+					operation = EngineOperation.ADD;
+					break;
+				case PROCESS:
+					result = process(command.getOrder());
+					operation = EngineOperation.MATCH;
+					break;
+				case MODIFY:
+					result = resolveOrderId(command);
+					if (result != 0 && !modify(result, command.getQuantity())) {
+						result = 0;
+					}
+					operation = EngineOperation.MODIFY;
+					break;
+				case CANCEL:
+					result = resolveOrderId(command);
+					if (result != 0 && !cancel(result)) {
+						result = 0;
+					}
+					operation = EngineOperation.CANCEL;
+					break;
+				case BEGIN_AUCTION:
+					beginAuction();
+					result = 0;
+					operation = null;
+					break;
+				default: // UNCROSS
+					result = uncross().getVolume();
+					operation = null;
+					break;
+			}
+			results[i] = result;
+			if (metrics != null) {
+				time = operation != null ? recordBatched(operation, time) : System.nanoTime();
+			}
+		}
+		if (metrics != null) {
+			metrics.setRestingOrders(orderbook.getOrderCount());
+		}
+		return length;
+	}
+	
+	/**
+	 * Find the order Id a modify or cancel command refers to, 0 if it refers to a client order Id that is not in the book
+	 */
+	private long resolveOrderId(OrderCommand command) {
+		if (command.getClientOrderId() == null) {
+			return command.getOrderId();
+		}
+		Order resting = orderbook.getOrder(command.getClientOrderId());
+		return resting == null ? 0 : resting.getId();
+	}
+	
+	/**
+	 * Record the latency of one operation of a batch, which ended now and started when the previous one ended
+	 * 
+	 * @return The time the operation ended, the start of the next operation
+	 */
+	private long recordBatched(EngineOperation operation, long start) {
+		long end = System.nanoTime();
+		metrics.recordLatency(operation, end - start);
+		return end;
+	}
+	
+	/**
+	 * Collect an incoming order during a call auction: a limit order rests in the book without matching,
+	 * and a market order is cancelled
+	 */
+	private void collectOrder(Order newOrder) {
+		if (newOrder.getType() == OrderType.MARKET) {
+			if (executionReports != null) {
+				executionReports.publish(ExecutionType.CANCELLED, newOrder.getId(), 0, newOrder.getSide(),
+						0, newOrder.getQuantity(), 0, 0);
+			}
+			newOrder.release();
+			return;
+		}
+		orderbook.addOrder(newOrder);
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.RESTED, newOrder.getId(), 0, newOrder.getSide(),
+					newOrder.getPriceTicks(), newOrder.getQuantity(), newOrder.getQuantity(), 0);
+		}
+	}
+	
+	/**
+	 * Sweep the parked stop orders triggered by the trades of the order being processed:
+	 * 1. Take the next triggered stop from the order book (see OrderBook.pollTriggeredStop), buy stops from the lowest
+	 *    trigger price then sell stops from the highest, in the order they were parked at each trigger price
+	 * 2. Turn it into a market order and sweep it, its trades widen the traded price range and can trigger more stops
+	 * 3. Stop when no parked stop is triggered by the range traded so far
+	 * 
+	 * The cascade is a loop rather than a recursion, and the order stops are swept in depends only on the book, so a replay is deterministic.
+	 * 
+	 * This triggerStops method is O(T log S) complexity plus the cost of sweeping, T being the number of stops triggered
+	 * and S the number of distinct trigger prices, untriggered stops are never scanned
+	 */
+	private void triggerStops() {
+		Order stop;
+		while ((stop = orderbook.pollTriggeredStop(lowTradePrice, highTradePrice)) != null) {
+			triggerStop(stop);
+		}
+	}
+	
+	/**
+	 * Turn a triggered stop order into a market order, publish that it was triggered and sweep it
+	 */
+	private void triggerStop(Order stop) {
+		stop.trigger();
+		if (executionReports != null) {
+			executionReports.publish(ExecutionType.TRIGGERED, stop.getId(), 0, stop.getSide(),
+					stop.getPriceTicks(), stop.getQuantity(), stop.getQuantity(), 0);
+		}
+		sweepOrder(stop);
+	}
+	
+	/**
+	 * Record the latency of an operation that started at start, and the resting book size after it
+	 */
+	private void record(EngineOperation operation, long start) {
+		metrics.recordLatency(operation, System.nanoTime() - start);
+		metrics.setRestingOrders(orderbook.getOrderCount());
+	}
+	
 	/**
 	 * Matches the incoming order with orders on the opposite side of the order book
 	 * 
-	 * 1. Iterate through orders on the opposite side of the order book
+	 * 1. Start at the cached best opposite price level, no iterator is created and no price is boxed
 	 * 2. Check if the price is acceptable for the incoming order
-	 * 3. Get the list of orders at this price-range
-	 * 4. Loop through all orders at this price range
-	 * 5. Match the buy and sell orders by their minimum quantity
-	 * 6. Remove any fully filled orders
-	 * 7. Break out of the while loop if matching is no longer possible
+	 * 3. Match the incoming order against the orders at this price level, publishing fills and releasing fully filled orders (see fillLevel)
+	 * 4. Remove the price level if no orders remain at it, the next best level then becomes the cached best level
+	 * 5. Publish the changed price level once it has been walked (see OrderBook.levelChanged)
+	 * 6. Break out of the while loop if matching is no longer possible
+	 * 7. Record the number of fills and price levels walked if the engine is instrumented
+	 * 
+	 * Prices and quantities are compared as ticks and lots, so the matching loop only uses primitive longs.
 	 * 
 	 * @param newOrder The order to be matched
-	 * @param oppositeOrders A TreeMap of the opposite side of the order book
 	 */
-	private void matchOrder(Order newOrder, TreeMap<Double, LinkedList<Order>> oppositeOrders) {
-        Iterator<Map.Entry<Double, LinkedList<Order>>> iterator = oppositeOrders.entrySet().iterator(); // Instantiate the opposite side order book iterator 
+	private void matchOrder(Order newOrder) {
+        long limitPrice = newOrder.getPriceTicks();
+        OrderSide oppositeSide = newOrder.getSide() == OrderSide.BUY ? OrderSide.SELL : OrderSide.BUY;
+        int fills = 0;
+        int levels = 0;
         
-        // Loop through the orders in the opposite side of the order book
-        while (iterator.hasNext() && newOrder.getQuantity() > 0) {
-            Map.Entry<Double, LinkedList<Order>> entry = iterator.next();
-            double price = entry.getKey();
+        // Loop through the price levels of the opposite side of the order book from the best price
+        PriceLevel level = orderbook.getBestLevel(oppositeSide);
+        while (level != null && newOrder.getQuantity() > 0) {
+            long price = level.getPrice();
 
             // Check if the price is acceptable for the incoming order
-            if ((newOrder.getSide() == OrderSide.BUY && newOrder.getPrice() >= price) ||
-                (newOrder.getSide() == OrderSide.SELL && newOrder.getPrice() <= price)) {
-
-            	// Get the list of orders at this price range
-                LinkedList<Order> orderList = entry.getValue(); 
-                // Create the iterator for this price range
-                Iterator<Order> orderIterator = orderList.iterator(); 
-
-                // Loop through all orders at this price range
-                while (orderIterator.hasNext() && newOrder.getQuantity() > 0) {
-                	// Get the order to be matched with
-                    Order order = orderIterator.next(); 
-                    // Get the minimum quantity
-                    double matchedQuantity = Math.min(newOrder.getQuantity(), order.getQuantity()); // 
-
-                    // Adjust the quantity of the respective orders
-                    newOrder.setQuantity(newOrder.getQuantity() - matchedQuantity);
-                    order.setQuantity(order.getQuantity() - matchedQuantity);
-
-                    // Remove the order if it was totally matched
-                    if (order.getQuantity() == 0) {
-                        orderIterator.remove();
-                    }
-                }
+            if ((newOrder.getSide() == OrderSide.BUY && limitPrice >= price) ||
+                (newOrder.getSide() == OrderSide.SELL && limitPrice <= price)) {
 
-                // If no orders remain at this price level, remove that price level from the map
-                if (orderList.isEmpty()) {
-                    iterator.remove();
-                }
+            	// Match against the orders at this price level
+                levels++;
+                fills += fillLevel(newOrder, level);
 
-                // If the incoming order has been matched, break out of the while loop
-                if (newOrder.getQuantity() == 0) {
-                    break;
+                // If no orders remain at this price level, remove that price level from its side
+                if (level.isEmpty()) {
+                    orderbook.removeLevel(level);
                 }
+                orderbook.levelChanged(level, false); // Also moves the cached best level on if this one was emptied
+                level = orderbook.getBestLevel(oppositeSide);
             } else {
             	break; // If outside of the acceptable price range, break out of the while loop as the order cannot be matched
             }
         }
 
-        // If there's any remaining quantity, add the new order back to the order book
+        if (metrics != null) {
+            metrics.recordMatch(fills, levels);
+        }
+
+        // If there's any remaining quantity, add the new order back to the order book, otherwise recycle it
         if (newOrder.getQuantity() > 0) {
             orderbook.addOrder(newOrder);
+            if (executionReports != null) {
+                executionReports.publish(ExecutionType.RESTED, newOrder.getId(), 0, newOrder.getSide(),
+                        limitPrice, newOrder.getQuantity(), newOrder.getQuantity(), 0);
+            }
+        } else {
+            newOrder.release();
         }
     }
+	
+	/**
+	 * Sweeps an incoming market order through the opposite side of the order book
+	 * 
+	 * 1. Start at the cached best opposite price level, no iterator is created
+	 * 2. Fill the orders at the level in priority order (see fillLevel)
+	 * 3. Remove the level if it is empty, the next best level then becomes the cached best level
+	 * 4. Prices are not checked per level, unless a price protection band is set, in which case the sweep stops
+	 *    at the first level further than the band from the best price when the order arrived
+	 * 5. Cancel any unfilled remainder instead of resting it, and release the order
+	 * 
+	 * This sweepOrder method is O(F + L) complexity, F being the number of fills and L the number of levels emptied,
+	 * as the emptied levels are the best levels and are removed in O(1)
+	 * 
+	 * @param newOrder The market order to be swept
+	 */
+	private void sweepOrder(Order newOrder) {
+		boolean buy = newOrder.getSide() == OrderSide.BUY;
+		OrderSide oppositeSide = buy ? OrderSide.SELL : OrderSide.BUY;
+		PriceLevel level = orderbook.getBestLevel(oppositeSide);
+		int fills = 0;
+		int levels = 0;
+		
+		// The furthest price the order may trade at, only used if a protection band is set
+		long bound = 0;
+		if (marketProtectionTicks > 0 && level != null) {
+			bound = buy ? level.getPrice() + marketProtectionTicks : level.getPrice() - marketProtectionTicks;
+		}
+		
+		while (level != null && newOrder.getQuantity() > 0) {
+			if (marketProtectionTicks > 0 && (buy ? level.getPrice() > bound : level.getPrice() < bound)) {
+				break; // The next level is outside the protection band
+			}
+			levels++;
+			fills += fillLevel(newOrder, level);
+			if (level.isEmpty()) {
+				orderbook.removeLevel(level);
+			}
+			orderbook.levelChanged(level, false); // Also moves the cached best level on if this one was emptied
+			level = orderbook.getBestLevel(oppositeSide);
+		}
+		
+		if (metrics != null) {
+			metrics.recordMatch(fills, levels);
+		}
+		
+		// A market order never rests, cancel any remaining quantity and recycle it
+		if (newOrder.getQuantity() > 0 && executionReports != null) {
+			executionReports.publish(ExecutionType.CANCELLED, newOrder.getId(), 0, newOrder.getSide(),
+					0, newOrder.getQuantity(), 0, 0);
+		}
+		newOrder.release();
+	}
+	
+	/**
+	 * Match an incoming order against the orders at one price level, in priority order
+	 * 
+	 * 1. Walk the intrusive queue of orders at the level
+	 * 2. Match the incoming order and each resting order by their minimum quantity
+	 * 3. Publish a fill at the level's price
+	 * 4. Unlink any fully filled order (from both the price level and the order index) and release it to its pool
+	 * 5. Record the level's price as the last trade price and widen the traded price range
+	 * 
+	 * The caller removes the level if it is left empty and publishes the level change.
+	 * 
+	 * @param newOrder The incoming order
+	 * @param level The price level to match against
+	 * @return The number of fills
+	 */
+	private int fillLevel(Order newOrder, PriceLevel level) {
+		int fills = 0;
+		long price = level.getPrice();
+		// Start at the highest priority order at this price range
+		Order order = level.getFirst();
+		
+		// Loop through all orders at this price range
+		while (order != null && newOrder.getQuantity() > 0) {
+			// Keep the next order before this one is possibly unlinked
+			Order nextOrder = order.getNext();
+			// Get the minimum quantity
+			long matchedQuantity = Math.min(newOrder.getQuantity(), order.getQuantity());
+			
+			// Adjust the quantity of the respective orders
+			level.match(newOrder, order, matchedQuantity); // Also reduces the level's total quantity
+			fills++;
+			
+			// Publish the fill at the maker's price
+			if (executionReports != null) {
+				executionReports.publish(ExecutionType.FILL, newOrder.getId(), order.getId(), newOrder.getSide(),
+						price, matchedQuantity, newOrder.getQuantity(), order.getQuantity());
+			}
+			
+			// Unlink the order if it was totally matched, drop it from the order index and recycle it
+			if (order.getQuantity() == 0) {
+				level.remove(order);
+				orderbook.unindexOrder(order);
+				order.release();
+			}
+			order = nextOrder;
+		}
+		if (fills > 0) {
+			orderbook.recordTrade(price);
+			lowTradePrice = Math.min(lowTradePrice, price);
+			highTradePrice = Math.max(highTradePrice, price);
+		}
+		return fills;
+	}
 }
 
 
@@ -1,97 +1,879 @@
 package com.orderbook.service;
 
+import com.orderbook.event.DepthListener;
+import com.orderbook.event.DepthUpdateType;
 import com.orderbook.model.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * The OrderBook class manages and maintains the book of both buy and sell orders.
- * Orders are stored in a TreeMap where the key is the price and the value is a LinkedList of orders at that price.
+ * Orders are stored in PriceLevel queues of the orders at each price, one PriceLevels per side finds them by their price in ticks
+ * through a primitive LevelIndex (see com.orderbook.level), so no price is boxed and no map entry is created.
+ * The levels are found in sorted arrays, or by their tick offset in a price ladder when the book is created with a ladder band.
  * Buy orders are sorted by prices from highest to lowest, and then by timestamp for priority.
  * Sell orders are sorted by prices from lowest to highest, and then by timestamp for priority.
+ * An index from the long order Id to the order is kept alongside the price levels so an order can be found without scanning the book.
+ * Order Ids are assigned by the order book from an increasing sequence when an order first enters it.
+ * Client order Ids are optional and are only mapped to order Ids at the edge, by the String overloads.
+ * Each price level keeps its total quantity and order count, so aggregated depth is read in O(levels),
+ * and an optional DepthListener is told about every price level that changes.
+ * The best bid and ask levels are cached and kept up to date as levels change, so top of book is read in O(1).
+ * Stop orders are parked in a separate PriceLevels per side ordered by trigger price, outside the depth and the top of book,
+ * so the stops a trade triggers are found from the front of the side rather than by scanning every parked stop.
+ * Quantity changes are split in two: reducing an order keeps its priority and its timestamp,
+ * while amending it (for a size increase) moves it to the back of its price level with a new timestamp.
+ * The orders and price levels are always heap objects, since they are handed to the callers. A very large book of limit and market orders
+ * that must keep its orders out of the heap is built with com.orderbook.offheap.OffHeapOrderBook instead of an OrderBook and MatchingEngine.
+ * The price levels and orders reached through getOrders, getLevel, getBestLevel, levels, stopLevels, orders, forEachOrder and dump are the live book and must only be
+ * read on the thread that owns it. Other threads read the optional DepthView, a sequence locked copy of the best levels.
  */
 public class OrderBook {
-	// TreeMap that stores the buy orders, sorted by price from highest to lowest. 
-	private final TreeMap<Double, LinkedList<Order>> buyOrders = new TreeMap<>(Collections.reverseOrder());
+	// The buy price levels, sorted by price from highest to lowest. 
+	private final PriceLevels buyOrders;
 	
-	// TreeMap that stores the sell orders, sorted by price from lowest to highest. 
-	private final TreeMap<Double, LinkedList<Order>> sellOrders = new TreeMap<>();
+	// The sell price levels, sorted by price from lowest to highest. 
+	private final PriceLevels sellOrders;
+	
+	// The parked buy stop orders, sorted by trigger price from lowest to highest (the first to trigger as prices rise).
+	private final PriceLevels buyStops = new PriceLevels(false, 0);
+	
+	// The parked sell stop orders, sorted by trigger price from highest to lowest (the first to trigger as prices fall).
+	private final PriceLevels sellStops = new PriceLevels(true, 0);
+	
+	// Index of every resting order by its Id, used for O(1) lookups on delete and modify.
+	private final OrderIndex orderIndex = new OrderIndex(1024);
+	
+	// HashMap from client order Id to order, only for resting orders that were given a client order Id.
+	private final HashMap<String, Order> clientOrderIndex = new HashMap<>();
+	
+	// The next order Id to be assigned, Ids increase monotonically and 0 means unassigned
+	private long nextOrderId = 1;
+	
+	// The tick size of the instrument traded in this order book, used to print prices
+	private final TickSize tickSize;
+	
+	// Listener for price level changes, may be null if nothing consumes depth deltas
+	private final DepthListener depthListener;
+	
+	// Copy of the best price levels for readers on other threads, null if the book was created without one
+	private final DepthView depthView;
+	
+	// The best price level of each side, null if that side is empty
+	private PriceLevel bestBid;
+	private PriceLevel bestAsk;
+	
+	// Incremented every time the best bid or ask price or quantity changes
+	private long bboVersion;
+	
+	// The price of the last trade in ticks, NO_PRICE until the first trade
+	private long lastTradePrice = NO_PRICE;
+	
+	// The price returned for the best bid or ask of an empty side, and for the spread when either side is empty
+	public static final long NO_PRICE = Long.MIN_VALUE;
+	
+	/**
+	 * Create an order book using the default tick size
+	 */
+	public OrderBook() {
+		this(TickSize.DEFAULT);
+	}
+	
+	/**
+	 * 
+	 * @param tickSize The tick size of the orders that will be added to this order book
+	 */
+	public OrderBook(TickSize tickSize) {
+		this(tickSize, null);
+	}
+	
+	/**
+	 * 
+	 * @param tickSize The tick size of the orders that will be added to this order book
+	 * @param depthListener The listener told about every price level change, or null
+	 */
+	public OrderBook(TickSize tickSize, DepthListener depthListener) {
+		this(tickSize, depthListener, 0);
+	}
+	
+	/**
+	 * 
+	 * @param tickSize The tick size of the orders that will be added to this order book
+	 * @param depthListener The listener told about every price level change, or null
+	 * @param depthViewLevels The number of price levels per side kept in the depth view for other threads, or 0 for no depth view
+	 */
+	public OrderBook(TickSize tickSize, DepthListener depthListener, int depthViewLevels) {
+		this(tickSize, depthListener, depthViewLevels, 0);
+	}
+	
+	/**
+	 * Create an order book whose resting price levels are found through a price ladder (see com.orderbook.level.PriceLadder):
+	 * a level in the band of ticks is found, added and removed by its tick offset, with no search.
+	 * The band re-centers on the prices in use, and a price it cannot hold falls back to sorted arrays.
+	 * Parked stop orders are always kept in sorted arrays.
+	 * 
+	 * @param tickSize The tick size of the orders that will be added to this order book
+	 * @param depthListener The listener told about every price level change, or null
+	 * @param depthViewLevels The number of price levels per side kept in the depth view for other threads, or 0 for no depth view
+	 * @param ladderTicks The width in ticks of each side's price ladder band, or 0 to find the price levels in sorted arrays
+	 */
+	public OrderBook(TickSize tickSize, DepthListener depthListener, int depthViewLevels, int ladderTicks) {
+		if (ladderTicks < 0) {
+			throw new IllegalArgumentException("Price ladder width must not be negative: " + ladderTicks);
+		}
+		this.buyOrders = new PriceLevels(true, ladderTicks);
+		this.sellOrders = new PriceLevels(false, ladderTicks);
+		this.tickSize = tickSize;
+		this.depthListener = depthListener;
+		this.depthView = depthViewLevels > 0 ? new DepthView(depthViewLevels) : null;
+	}
+	
+	public TickSize getTickSize() {
+		return tickSize;
+	}
+	
+	/**
+	 * @return The Id the next order to enter the book will be assigned
+	 */
+	public long getNextOrderId() {
+		return nextOrderId;
+	}
+	
+	/**
+	 * Assign the next order Id to an order that does not have one yet
+	 * 
+	 * This is used by addOrder and by the matching engine for incoming orders.
+	 * An order that already has an Id (e.g. one replayed from a journal) keeps it, and the sequence continues after it.
+	 * 
+	 * @param order
+	 * @return The order's Id
+	 */
+	long assignOrderId(Order order) {
+		if (order.getId() == 0) {
+			order.assignId(nextOrderId++);
+		} else if (order.getId() >= nextOrderId) {
+			nextOrderId = order.getId() + 1;
+		}
+		return order.getId();
+	}
 
 	/**
 	 * Add an order to the order book:
-	 * 1. Check if the order is a buy or sell order and add it to that TreeMap
-	 * 2. Check if a list of orders exists at this price or not
-	 * 3. Add the order to the list or make a new list at that price.
+	 * 1. Check if the order is a buy or sell order and add it to that side
+	 * 2. Check if a price level exists at this price or not
+	 * 3. Add the order to the back of the price level or make a new price level at that price.
+	 * 4. Assign the order an Id if it doesn't have one, and index the order by its Id
+	 * 5. Publish the new or updated price level to the depth listener
 	 * 
-	 * This addOrder method is O(log P) complexity due to the computeIfAbsent search, P being the number of price levels
+	 * This addOrder method is O(log P) complexity due to the price level search, P being the number of price levels
 	 * 
 	 * @param order
+	 * @throws IllegalArgumentException If the order is not a limit order, as only limit orders rest in the book
 	 */
 	public void addOrder(Order order) { // Adding an order is 
+		if (order.getType() != OrderType.LIMIT) {
+			throw new IllegalArgumentException("Only limit orders can rest in the order book: " + order);
+		}
 		// Determine if the order is a buy or sell order
-		TreeMap<Double, LinkedList<Order>> orders = order.getSide() == OrderSide.BUY ? buyOrders : sellOrders;
+		PriceLevels orders = order.getSide() == OrderSide.BUY ? buyOrders : sellOrders;
+		
+		// Get the price level (if any) of the order to be added, or create it
+		PriceLevel level = orders.get(order.getPriceTicks());
+		boolean created = level == null;
+		if (created) {
+			level = orders.add(order.getSide(), order.getPriceTicks()); // Reuses a level emptied earlier if there is one
+		}
+		level.add(order); // Link the order to the back of the queue, no list node is allocated
+		levelChanged(level, created);
+		
+		// Index the order so it can be found by its Id, and by its client order Id if it has one
+		orderIndex.put(assignOrderId(order), order);
+		if (order.getClientOrderId() != null) {
+			clientOrderIndex.put(order.getClientOrderId(), order);
+		}
+	}
+	
+	/**
+	 * Park a stop order until a trade reaches its trigger price:
+	 * 1. Check if the order is a buy or sell stop and select that side's stops
+	 * 2. Add the order to the back of the queue at its trigger price, creating the queue if needed
+	 * 3. Assign the order an Id if it doesn't have one, and index the order by its Id
+	 * 
+	 * Parked stop orders are not part of the depth or the top of book, but they are found, modified and deleted by Id like any other order.
+	 * 
+	 * This addStopOrder method is O(log S) complexity, S being the number of distinct trigger prices
+	 * 
+	 * @param order
+	 * @throws IllegalArgumentException If the order is not a stop order
+	 */
+	public void addStopOrder(Order order) {
+		if (order.getType() != OrderType.STOP) {
+			throw new IllegalArgumentException("Only stop orders can be parked: " + order);
+		}
+		PriceLevels stops = order.getSide() == OrderSide.BUY ? buyStops : sellStops;
+		PriceLevel level = stops.get(order.getPriceTicks());
+		if (level == null) {
+			level = stops.add(order.getSide(), order.getPriceTicks());
+		}
+		level.add(order);
 		
-		// Get the list of orders (if any) at the price level of the order to be added
-		orders.computeIfAbsent(order.getPrice(), k -> new LinkedList<>()).add(order);
+		orderIndex.put(assignOrderId(order), order);
+		if (order.getClientOrderId() != null) {
+			clientOrderIndex.put(order.getClientOrderId(), order);
+		}
+	}
+	
+	/**
+	 * Take the next parked stop order triggered by the trades between two prices out of the order book:
+	 * 1. Buy stops are triggered first, from the lowest trigger price, if the highest trade price reached their trigger price
+	 * 2. Then sell stops, from the highest trigger price, if the lowest trade price reached their trigger price
+	 * 3. Stops with the same trigger price are taken in the order they were parked
+	 * 4. The triggered stop is unlinked and unindexed, and its trigger price queue is removed if it is now empty
+	 * 
+	 * Only the first trigger price queue of each side is read, so untriggered stops are never looked at.
+	 * 
+	 * This pollTriggeredStop method is O(1) complexity, plus O(log S) when a trigger price queue is emptied
+	 * 
+	 * @param lowTradePrice The lowest trade price in ticks
+	 * @param highTradePrice The highest trade price in ticks
+	 * @return The triggered stop order, still of type STOP, or null if no parked stop is triggered
+	 */
+	public Order pollTriggeredStop(long lowTradePrice, long highTradePrice) {
+		PriceLevel level = buyStops.first();
+		PriceLevels stops = buyStops;
+		if (level == null || level.getPrice() > highTradePrice) {
+			level = sellStops.first();
+			stops = sellStops;
+			if (level == null || level.getPrice() < lowTradePrice) {
+				return null;
+			}
+		}
+		Order order = level.getFirst();
+		level.remove(order);
+		if (level.isEmpty()) {
+			stops.remove(level);
+		}
+		unindexOrder(order);
+		return order;
+	}
+	
+	/**
+	 * @return True if any stop orders are parked in the order book
+	 */
+	public boolean hasStopOrders() {
+		return !buyStops.isEmpty() || !sellStops.isEmpty();
+	}
+	
+	/**
+	 * @param side
+	 * @return The number of distinct trigger prices of the parked stop orders of one side
+	 */
+	public int getStopLevelCount(OrderSide side) {
+		return (side == OrderSide.BUY ? buyStops : sellStops).size();
+	}
+	
+	/**
+	 * Get a lazy stream of the trigger price queues of the parked stop orders of one side, first to trigger first
+	 * The stream must be consumed on the thread that owns the book, before the book next changes.
+	 * 
+	 * @param side
+	 * @return A stream of the live stop order queues
+	 */
+	public Stream<PriceLevel> stopLevels(OrderSide side) {
+		return (side == OrderSide.BUY ? buyStops : sellStops).stream();
+	}
+	
+	/**
+	 * @return The price of the last trade in ticks, or NO_PRICE if nothing has traded
+	 */
+	public long getLastTradePrice() {
+		return lastTradePrice;
+	}
+	
+	/**
+	 * Record the price of a trade, used by the matching engine once for each price level it fills orders at
+	 * 
+	 * @param price The trade price in ticks
+	 */
+	void recordTrade(long price) {
+		lastTradePrice = price;
 	}
 	
 	/**
 	 * Modify an order in the order book:
-	 * 1. Delete the existing order
-	 * 2. Create a new order with the new quantity (this resets the priority)
-	 * 3. Re-add the order back to the order book with a lowest priority due to modifying
+	 * 1. A smaller quantity reduces the order in place, it keeps its priority (see reduceOrder)
+	 * 2. A larger or equal quantity amends the order, it loses its priority and moves to the back of its price level (see amendOrder)
 	 * 
-	 * This modifyOrder function is O(n) complexity as it must complete a delete in it functionality
+	 * This modifyOrder method is O(1) complexity
 	 * 
 	 * @param orderId
 	 * @param newQuantity
-	 * @param price
+	 * @return The modified order, or null if it is not in the book
+	 * @throws IllegalArgumentException If the new quantity is not positive
 	 */
-	public void modifyOrder(String orderId, double newQuantity) {
-		Order order = deleteOrder(orderId);
-		if (order != null) {
-			order.setQuantity(newQuantity); //Set the new quantity of the order and reset the priority timestamp (See Order Class)
-			addOrder(order);
+	public Order modifyOrder(long orderId, long newQuantity) {
+		Order order = orderIndex.get(orderId);
+		if (order == null) {
+			return null;
+		}
+		return newQuantity < order.getQuantity() ? reduceOrder(orderId, newQuantity) : amendOrder(orderId, newQuantity);
+	}
+	
+	/**
+	 * Modify an order in the order book by its client order Id, see modifyOrder(long, long)
+	 * 
+	 * @param clientOrderId
+	 * @param newQuantity
+	 * @return The modified order, or null if it is not in the book
+	 */
+	public Order modifyOrder(String clientOrderId, long newQuantity) {
+		Order order = clientOrderIndex.get(clientOrderId);
+		return order == null ? null : modifyOrder(order.getId(), newQuantity);
+	}
+	
+	/**
+	 * Reduce the quantity of an order in place, the order keeps its place in the queue at its price level:
+	 * 1. Look up the order by its Id in the order index
+	 * 2. Take the difference off the order and its price level's total quantity, the same way a fill does (see PriceLevel.fill)
+	 * 3. Publish the updated price level to the depth listener, parked stop orders are not part of the depth
+	 * 
+	 * The order's timestamp is not changed and the clock is not read, nothing is unlinked or looked up in the price level index.
+	 * 
+	 * This reduceOrder method is O(1) complexity
+	 * 
+	 * @param orderId
+	 * @param newQuantity The new quantity, greater than 0 and at most the order's current quantity
+	 * @return The reduced order, or null if it is not in the book
+	 * @throws IllegalArgumentException If the new quantity is not positive or is larger than the order's quantity
+	 */
+	public Order reduceOrder(long orderId, long newQuantity) {
+		Order order = orderIndex.get(orderId);
+		if (order == null) {
+			return null;
 		}
+		if (newQuantity <= 0 || newQuantity > order.getQuantity()) {
+			throw new IllegalArgumentException("Cannot reduce the quantity of " + order + " to " + newQuantity);
+		}
+		PriceLevel level = order.getLevel();
+		level.fill(order, order.getQuantity() - newQuantity);
+		if (order.getType() != OrderType.STOP) {
+			levelChanged(level, false);
+		}
+		return order;
+	}
+	
+	/**
+	 * Reduce an order in the order book by its client order Id, see reduceOrder(long, long)
+	 * 
+	 * @param clientOrderId
+	 * @param newQuantity
+	 * @return The reduced order, or null if it is not in the book
+	 */
+	public Order reduceOrder(String clientOrderId, long newQuantity) {
+		Order order = clientOrderIndex.get(clientOrderId);
+		return order == null ? null : reduceOrder(order.getId(), newQuantity);
+	}
+	
+	/**
+	 * Amend the quantity of an order, used for size increases, the order loses its priority:
+	 * 1. Look up the order by its Id in the order index
+	 * 2. Amend the order through its price level (see PriceLevel.amend), which unlinks it, sets the new quantity and resets
+	 *    the priority timestamp, then links it back at the end of the same price level, with the lowest priority at its price
+	 * 3. Publish the updated price level to the depth listener, parked stop orders are not part of the depth
+	 * 
+	 * The price level never becomes empty, so unlike deleteOrder followed by addOrder neither the price level index nor the order indexes are touched.
+	 * 
+	 * This amendOrder method is O(1) complexity
+	 * 
+	 * @param orderId
+	 * @param newQuantity The new quantity, greater than 0
+	 * @return The amended order, or null if it is not in the book
+	 * @throws IllegalArgumentException If the new quantity is not positive
+	 */
+	public Order amendOrder(long orderId, long newQuantity) {
+		Order order = orderIndex.get(orderId);
+		if (order == null) {
+			return null;
+		}
+		if (newQuantity <= 0) {
+			throw new IllegalArgumentException("Cannot amend the quantity of " + order + " to " + newQuantity);
+		}
+		PriceLevel level = order.getLevel();
+		level.amend(order, newQuantity); //Set the new quantity of the order and reset the priority timestamp (See Order Class)
+		if (order.getType() != OrderType.STOP) {
+			levelChanged(level, false);
+		}
+		return order;
+	}
+	
+	/**
+	 * Amend an order in the order book by its client order Id, see amendOrder(long, long)
+	 * 
+	 * @param clientOrderId
+	 * @param newQuantity
+	 * @return The amended order, or null if it is not in the book
+	 */
+	public Order amendOrder(String clientOrderId, long newQuantity) {
+		Order order = clientOrderIndex.get(clientOrderId);
+		return order == null ? null : amendOrder(order.getId(), newQuantity);
 	}
 	
 	/**
 	 * Delete an order from the order book:
-	 * 1. Loop through buy and sell order collections
-	 * 2. Loop through each price level
-	 * 3. Use the iterator to safely remove the element (avoiding ConcurrentModificationException)
-	 * 4. If the price level has no more orders, remove that price level from the map
+	 * 1. Look up the order by its Id in the order index
+	 * 2. Unlink the order from its price level using the order's own links
+	 * 3. If the price level has no more orders, remove that price level from its side (the stops of its side for a parked stop order)
+	 * 4. Publish the updated or deleted price level to the depth listener, parked stop orders are not part of the depth
 	 * 5. Return the order if it was successfully deleted or null if it wasn't
 	 * 
-	 * This deleteOrder method is O(n) complexity because each orderId needs to be checked as it's a UUID
+	 * This deleteOrder method is O(1) complexity, plus O(log P) when the price level becomes empty, P being the number of price levels
 	 * 
 	 * @param orderId
 	 * @return The deleted order if success or null if failed
 	 */
-	public Order deleteOrder(String orderId) {
-	    for (TreeMap<Double, LinkedList<Order>> orders : Arrays.asList(buyOrders, sellOrders)) {
-	        for (Map.Entry<Double, LinkedList<Order>> priceLevel : orders.entrySet()) {
-	            LinkedList<Order> orderList = priceLevel.getValue();
-	            for (Iterator<Order> orderIterator = orderList.iterator(); orderIterator.hasNext(); ) {
-	                Order order = orderIterator.next();
-	                if (order.getId().equals(orderId)) {
-	                    orderIterator.remove(); // Remove the order from the list
-	                    // If the list is now empty, remove the price level
-	                    if (orderList.isEmpty()) {
-	                        orders.remove(priceLevel.getKey());
-	                    }
-	                    return order; // Return the deleted order
-	                }
-	            }
-	        }
-	    }
-	    return null; // If no order with the specified order Id was found, return null.
+	public Order deleteOrder(long orderId) {
+		Order order = orderIndex.remove(orderId);
+		if (order == null) {
+			return null; // If no order with the specified order Id was found, return null.
+		}
+		if (order.getClientOrderId() != null) {
+			clientOrderIndex.remove(order.getClientOrderId());
+		}
+		
+		PriceLevel level = order.getLevel();
+		level.remove(order); // Unlink the order from its price level
+		boolean stop = order.getType() == OrderType.STOP;
+		// If the price level is now empty, remove it from its side
+		if (level.isEmpty()) {
+			boolean buy = order.getSide() == OrderSide.BUY;
+			PriceLevels orders = stop ? (buy ? buyStops : sellStops) : (buy ? buyOrders : sellOrders);
+			orders.remove(level);
+		}
+		if (!stop) {
+			levelChanged(level, false);
+		}
+		return order; // Return the deleted order
+	}
+	
+	/**
+	 * Delete an order from the order book by its client order Id, see deleteOrder(long)
+	 * 
+	 * @param clientOrderId
+	 * @return The deleted order if success or null if failed
+	 */
+	public Order deleteOrder(String clientOrderId) {
+		Order order = clientOrderIndex.get(clientOrderId);
+		return order == null ? null : deleteOrder(order.getId());
+	}
+	
+	/**
+	 * Cancel an order in the order book:
+	 * 1. Delete the order from the order book
+	 * 2. Release the order back to its pool (see OrderPool), as the caller does not get the order back
+	 * 
+	 * This cancelOrder method has the same complexity as deleteOrder
+	 * 
+	 * @param orderId
+	 * @return True if the order was found and cancelled, false if it wasn't
+	 */
+	public boolean cancelOrder(long orderId) {
+		Order order = deleteOrder(orderId);
+		if (order == null) {
+			return false;
+		}
+		order.release(); // Recycle the order if it came from a pool
+		return true;
+	}
+	
+	/**
+	 * Cancel an order in the order book by its client order Id, see cancelOrder(long)
+	 * 
+	 * @param clientOrderId
+	 * @return True if the order was found and cancelled, false if it wasn't
+	 */
+	public boolean cancelOrder(String clientOrderId) {
+		Order order = clientOrderIndex.get(clientOrderId);
+		return order != null && cancelOrder(order.getId());
+	}
+	
+	/**
+	 * Remove an order from the order index only.
+	 * 
+	 * This is used by the matching engine when it unlinks a fully filled order directly from a price level.
+	 * 
+	 * @param order The order that has left the book
+	 */
+	void unindexOrder(Order order) {
+		orderIndex.remove(order.getId());
+		if (order.getClientOrderId() != null) {
+			clientOrderIndex.remove(order.getClientOrderId());
+		}
+	}
+	
+	/**
+	 * Prepare an empty order book to be bulk loaded from a snapshot:
+	 * 1. Size the order index once for every order that will be restored, so it never resizes while loading
+	 * 2. Continue the order Id sequence from where the snapshotted book was
+	 * 3. Restore the last trade price, which decides if an incoming stop order is triggered straight away
+	 * 
+	 * The levels and orders are then restored with restoreLevel (or restoreStopLevel) and restoreOrder, best price first and in priority order.
+	 * The depth listener is not told about restored levels, a feed handler reads getDepth once the book is restored.
+	 * The restore is finished with endRestore.
+	 * 
+	 * @param orderCount The number of orders that will be restored
+	 * @param nextOrderId The next order Id of the snapshotted book
+	 * @param lastTradePrice The last trade price of the snapshotted book, or NO_PRICE
+	 */
+	public void beginRestore(int orderCount, long nextOrderId, long lastTradePrice) {
+		if (!buyOrders.isEmpty() || !sellOrders.isEmpty() || hasStopOrders()) {
+			throw new IllegalStateException("Order book must be empty to be restored");
+		}
+		orderIndex.ensureCapacity(orderCount);
+		this.nextOrderId = Math.max(this.nextOrderId, nextOrderId);
+		this.lastTradePrice = lastTradePrice;
+	}
+	
+	/**
+	 * Finish bulk loading a book from a snapshot, the depth view (if any) is filled from the restored price levels
+	 * 
+	 * This endRestore method is O(L) complexity, L being the number of levels in the depth view
+	 */
+	public void endRestore() {
+		if (depthView != null) {
+			depthView.rebuild(buyOrders, sellOrders);
+		}
+	}
+	
+	/**
+	 * Create an empty price level restored from a snapshot
+	 * 
+	 * This restoreLevel method is O(log P) complexity, once per level rather than once per order
+	 * 
+	 * @param side The side of the price level
+	 * @param price The price of the level in ticks
+	 * @return The new price level, to restore its orders into
+	 */
+	public PriceLevel restoreLevel(OrderSide side, long price) {
+		PriceLevels orders = side == OrderSide.BUY ? buyOrders : sellOrders;
+		if (orders.get(price) != null) {
+			throw new IllegalStateException("Price level restored twice: " + price);
+		}
+		PriceLevel level = orders.add(side, price);
+		updateBestLevel(level, true);
+		return level;
+	}
+	
+	/**
+	 * Create an empty stop order queue restored from a snapshot, see restoreLevel
+	 * 
+	 * @param side The side of the stop orders
+	 * @param price The trigger price in ticks
+	 * @return The new queue, to restore its stop orders into
+	 */
+	public PriceLevel restoreStopLevel(OrderSide side, long price) {
+		PriceLevels stops = side == OrderSide.BUY ? buyStops : sellStops;
+		if (stops.get(price) != null) {
+			throw new IllegalStateException("Stop trigger price restored twice: " + price);
+		}
+		PriceLevel level = stops.add(side, price);
+		return level;
+	}
+	
+	/**
+	 * Link an order restored from a snapshot to the back of its price level and index it, without a price level search
+	 * 
+	 * This restoreOrder method is O(1) complexity
+	 * 
+	 * @param level The price level returned by restoreLevel
+	 * @param order The order, with its original Id
+	 */
+	public void restoreOrder(PriceLevel level, Order order) {
+		level.add(order);
+		orderIndex.put(assignOrderId(order), order);
+		if (order.getClientOrderId() != null) {
+			clientOrderIndex.put(order.getClientOrderId(), order);
+		}
+	}
+	
+	/**
+	 * Update the cached best bid and ask, the depth view (if any) and tell the depth listener (if any) about a price level that has changed
+	 * 
+	 * This is used by addOrder, deleteOrder and by the matching engine once for each price level it fills orders at.
+	 * An empty level must already have been removed from its side.
+	 * 
+	 * @param level The changed price level
+	 * @param created True if the level was created by this change
+	 */
+	void levelChanged(PriceLevel level, boolean created) {
+		updateBestLevel(level, created);
+		if (depthView != null) {
+			depthView.levelChanged(level, level.getSide() == OrderSide.BUY ? buyOrders : sellOrders);
+		}
+		if (depthListener != null) {
+			if (level.isEmpty()) {
+				depthListener.onDepthUpdate(DepthUpdateType.DELETE, level.getSide(), level.getPrice(), 0, 0);
+			} else {
+				depthListener.onDepthUpdate(created ? DepthUpdateType.NEW : DepthUpdateType.UPDATE, level.getSide(),
+						level.getPrice(), level.getTotalQuantity(), level.size());
+			}
+		}
+	}
+	
+	/**
+	 * Keep the cached best level of a side up to date after one of its levels changed:
+	 * 1. A new level becomes the best level if it has a better price
+	 * 2. If the best level itself changed, the BBO version is incremented, and if it is now empty the next best level is found
+	 * 3. A change to any other level leaves the best bid and ask as they are
+	 * 
+	 * This updateBestLevel method is O(1) complexity
+	 */
+	private void updateBestLevel(PriceLevel level, boolean created) {
+		boolean buy = level.getSide() == OrderSide.BUY;
+		PriceLevel best = buy ? bestBid : bestAsk;
+		if (created) {
+			if (best != null && (buy ? level.getPrice() < best.getPrice() : level.getPrice() > best.getPrice())) {
+				return; // The new level is behind the best level
+			}
+			best = level;
+		} else if (level != best) {
+			return; // Only the best level affects the top of book
+		} else if (level.isEmpty()) {
+			best = (buy ? buyOrders : sellOrders).first();
+		}
+		if (buy) {
+			bestBid = best;
+		} else {
+			bestAsk = best;
+		}
+		bboVersion++;
+	}
+	
+	/**
+	 * Getters for the cached top of book, each is O(1) complexity.
+	 * Prices are in ticks and are NO_PRICE when the side (or either side for the spread) is empty.
+	 */
+	public long getBestBid() {
+		return bestBid == null ? NO_PRICE : bestBid.getPrice();
+	}
+	
+	public long getBestBidQuantity() {
+		return bestBid == null ? 0 : bestBid.getTotalQuantity();
+	}
+	
+	public long getBestAsk() {
+		return bestAsk == null ? NO_PRICE : bestAsk.getPrice();
+	}
+	
+	public long getBestAskQuantity() {
+		return bestAsk == null ? 0 : bestAsk.getTotalQuantity();
+	}
+	
+	public long getSpread() {
+		return bestBid == null || bestAsk == null ? NO_PRICE : bestAsk.getPrice() - bestBid.getPrice();
+	}
+	
+	/**
+	 * @return The decimal price halfway between the best bid and ask, or NaN when either side is empty
+	 */
+	public double getMidPrice() {
+		return bestBid == null || bestAsk == null ? Double.NaN : tickSize.toPrice(bestBid.getPrice() + bestAsk.getPrice()) / 2;
+	}
+	
+	/**
+	 * Get the best price level of one side, used by the matching engine to walk the opposite side from its best price
+	 * 
+	 * This getBestLevel method is O(1) complexity, the best level of each side is cached
+	 * 
+	 * @param side
+	 * @return The best price level, or null if the side is empty
+	 */
+	public PriceLevel getBestLevel(OrderSide side) {
+		return side == OrderSide.BUY ? bestBid : bestAsk;
+	}
+	
+	/**
+	 * Get the price level at a price on one side of the order book
+	 * 
+	 * This getLevel method is O(log P) complexity, P being the number of price levels, and O(1) in a price ladder band
+	 * 
+	 * @param side
+	 * @param price The price in ticks
+	 * @return The price level, or null if there is no order at the price
+	 */
+	public PriceLevel getLevel(OrderSide side, long price) {
+		return (side == OrderSide.BUY ? buyOrders : sellOrders).get(price);
+	}
+	
+	/**
+	 * @param side
+	 * @return The number of price levels on one side of the order book
+	 */
+	public int getLevelCount(OrderSide side) {
+		return (side == OrderSide.BUY ? buyOrders : sellOrders).size();
+	}
+	
+	/**
+	 * Remove a price level the matching engine has emptied from its side, before levelChanged is called for it
+	 * 
+	 * This removeLevel method is O(1) complexity for the best level, which is the level the matching engine empties
+	 * 
+	 * @param level The empty price level
+	 */
+	void removeLevel(PriceLevel level) {
+		(level.getSide() == OrderSide.BUY ? buyOrders : sellOrders).remove(level);
+	}
+	
+	/**
+	 * Get the BBO version, which changes every time the best bid or ask price or quantity changes.
+	 * A poller can compare it with the version it last saw and skip reading the top of book when nothing has changed.
+	 * 
+	 * @return The BBO version
+	 */
+	public long getBboVersion() {
+		return bboVersion;
+	}
+	
+	/**
+	 * Compute the call auction equilibrium price of a crossed book, without changing the book:
+	 * 1. Only the crossed price levels can trade, the bids at or above the best ask and the asks at or below the best bid
+	 * 2. Sum the crossed bid levels' totals, which is the buy quantity willing to trade at the lowest crossed price
+	 * 3. Walk the crossed price levels of both sides together in one pass from the lowest price, adding each ask level's
+	 *    total to the cumulative sell quantity and taking each bid level's total off the cumulative buy quantity once it is passed
+	 * 4. At each price the executable volume is the minimum of the two, choose the price with the most volume,
+	 *    then the smallest surplus, then the closest to the reference price, then the lowest price
+	 * 
+	 * Only the running totals of each price level are read, the orders themselves are never walked.
+	 * 
+	 * This computeUncross method is O(C log P) complexity, C being the number of crossed price levels and P the number of price levels
+	 * 
+	 * @param referencePrice The price in ticks that breaks ties between equally good prices, e.g. the last trade price, or NO_PRICE
+	 * @return The equilibrium price, volume and surpluses, with a volume of 0 if the book is not crossed
+	 */
+	public AuctionResult computeUncross(long referencePrice) {
+		if (bestBid == null || bestAsk == null || bestBid.getPrice() < bestAsk.getPrice()) {
+			return new AuctionResult(NO_PRICE, 0, 0, 0);
+		}
+		long low = bestAsk.getPrice();
+		long high = bestBid.getPrice();
+		
+		// The buy quantity at or above the current price, starting with every crossed bid at the lowest crossed price
+		List<PriceLevel> crossedBids = new ArrayList<>();
+		long demand = 0;
+		for (PriceLevel level = bestBid; level != null && level.getPrice() >= low; level = buyOrders.next(level)) {
+			crossedBids.add(level);
+			demand += level.getTotalQuantity();
+		}
+		long supply = 0; // The sell quantity at or below the current price
+		
+		// Both walks go from the lowest price up, the bids are walked from highest so their crossed levels are walked back
+		int bids = crossedBids.size() - 1;
+		PriceLevel bid = crossedBids.get(bids);
+		PriceLevel ask = bestAsk;
+		
+		long bestPrice = NO_PRICE;
+		long bestVolume = 0;
+		long bestDemand = 0;
+		long bestSupply = 0;
+		while (bid != null || ask != null) {
+			long price = bid == null ? ask.getPrice() : ask == null ? bid.getPrice() : Math.min(bid.getPrice(), ask.getPrice());
+			if (ask != null && ask.getPrice() == price) {
+				supply += ask.getTotalQuantity();
+				ask = sellOrders.next(ask);
+				if (ask != null && ask.getPrice() > high) {
+					ask = null; // The asks above the best bid are not crossed
+				}
+			}
+			
+			long volume = Math.min(demand, supply);
+			if (volume > bestVolume || (volume == bestVolume && volume > 0
+					&& isBetterUncross(price, Math.abs(demand - supply), bestPrice, Math.abs(bestDemand - bestSupply), referencePrice))) {
+				bestPrice = price;
+				bestVolume = volume;
+				bestDemand = demand;
+				bestSupply = supply;
+			}
+			
+			if (bid != null && bid.getPrice() == price) {
+				demand -= bid.getTotalQuantity(); // These bids are not willing to trade at any higher price
+				bid = --bids < 0 ? null : crossedBids.get(bids);
+			}
+		}
+		return new AuctionResult(bestPrice, bestVolume, bestDemand - bestVolume, bestSupply - bestVolume);
+	}
+	
+	/**
+	 * Break a tie between two prices with the same executable volume, by their surplus and then by their distance to the reference price.
+	 * Prices are walked from the lowest, so an exact tie keeps the lower price.
+	 */
+	private static boolean isBetterUncross(long price, long surplus, long bestPrice, long bestSurplus, long referencePrice) {
+		if (surplus != bestSurplus) {
+			return surplus < bestSurplus;
+		}
+		return referencePrice != NO_PRICE && Math.abs(price - referencePrice) < Math.abs(bestPrice - referencePrice);
+	}
+	
+	/**
+	 * Get the aggregated depth of one side of the order book:
+	 * 1. Select the buy or sell side of the order book
+	 * 2. Walk the first n price levels from the best price, reading each level's running totals
+	 * 
+	 * This getDepth method is O(n log P) complexity, n being the number of levels asked for, and never walks the orders
+	 * 
+	 * @param side
+	 * @param levels The maximum number of price levels to return
+	 * @return The best price levels, best price first, with their total quantity and order count
+	 */
+	public List<DepthLevel> getDepth(OrderSide side, int levels) {
+		PriceLevels orders = side == OrderSide.BUY ? buyOrders : sellOrders;
+		
+		List<DepthLevel> depth = new ArrayList<>(Math.min(levels, orders.size()));
+		for (PriceLevel level = orders.first(); level != null && depth.size() < levels; level = orders.next(level)) {
+			depth.add(new DepthLevel(side, level.getPrice(), level.getTotalQuantity(), level.size()));
+		}
+		return depth;
+	}
+	
+	/**
+	 * Get the depth view, a copy of the best price levels that can be read from any thread without stopping the matching engine
+	 * 
+	 * @return The depth view, or null if the book was created without one
+	 */
+	public DepthView getDepthView() {
+		return depthView;
+	}
+	
+	/**
+	 * Get an order from the order book by its Id
+	 * 
+	 * This getOrder method is O(1) complexity due to the order index
+	 * 
+	 * @param orderId
+	 * @return The resting order or parked stop order, or null if it is not in the book
+	 */
+	public Order getOrder(long orderId) {
+		return orderIndex.get(orderId);
+	}
+	
+	/**
+	 * Get an order from the order book by its client order Id
+	 * 
+	 * @param clientOrderId
+	 * @return The resting order or null if it is not in the book
+	 */
+	public Order getOrder(String clientOrderId) {
+		return clientOrderIndex.get(clientOrderId);
+	}
+	
+	/**
+	 * @return The number of orders resting in the order book, on both sides, including parked stop orders
+	 */
+	public int getOrderCount() {
+		return orderIndex.size();
 	}
 	
 	/**
@@ -105,57 +887,137 @@ public class OrderBook {
 	 * @return A List of the order book for the specified side
 	 */
 	public List<Order> getOrders(OrderSide side){
-		TreeMap<Double, LinkedList<Order>> orders = side == OrderSide.BUY ? buyOrders : sellOrders;
+		return getOrders(side, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Get the orders of the best price levels of one side of the order book, in priority order
+	 * 
+	 * This getOrders method is O(n) complexity, n being the number of orders at the levels asked for, the levels behind them are never reached
+	 * 
+	 * @param side
+	 * @param maxLevels The maximum number of price levels to return the orders of
+	 * @return A List of the orders at the best price levels of the specified side
+	 */
+	public List<Order> getOrders(OrderSide side, int maxLevels) {
+		PriceLevels orders = side == OrderSide.BUY ? buyOrders : sellOrders;
 		
 		List<Order> result = new ArrayList<>(); // Instantiate an ArrayList to store all the orders
-		for (LinkedList<Order> orderList : orders.values()) {
-			result.addAll(orderList); // Add all orders to the list
+		int levels = 0;
+		for (PriceLevel level = orders.first(); level != null && levels++ < maxLevels; level = orders.next(level)) {
+			// Add all orders at this price level in priority order
+			for (Order order = level.getFirst(); order != null; order = order.getNext()) {
+				result.add(order);
+			}
 		}
 		return result; // Return the list of orders
 	}
 	
 	/**
-	 * Return the TreeMap of the orders for either side of the book
+	 * Get a lazy stream of the best price levels of one side of the order book, best price first.
+	 * Nothing is read until the stream is consumed, and only as many levels as the stream consumes are reached.
+	 * The stream must be consumed on the thread that owns the book, before the book next changes.
 	 * 
-	 * This method is used in the matching engine for efficient order matching
+	 * @param side
+	 * @param maxLevels The maximum number of price levels in the stream
+	 * @return A stream of the live price levels
+	 */
+	public Stream<PriceLevel> levels(OrderSide side, int maxLevels) {
+		return (side == OrderSide.BUY ? buyOrders : sellOrders).stream().limit(maxLevels);
+	}
+	
+	/**
+	 * Get a lazy stream of the orders at the best price levels of one side of the order book, in priority order (see levels).
+	 * Each level's orders are followed through their intrusive links, so no list of orders is built.
 	 * 
-	 * @param side (BUY/SELL)
-	 * @return A TreeMap of the order book for the specified side
+	 * @param side
+	 * @param maxLevels The maximum number of price levels whose orders are in the stream
+	 * @return A stream of the live orders
 	 */
-	public TreeMap<Double, LinkedList<Order>> getOrderMap(OrderSide side) {
-        return side == OrderSide.BUY ? (TreeMap<Double, LinkedList<Order>>) buyOrders : (TreeMap<Double, LinkedList<Order>>) sellOrders;
-    }
+	public Stream<Order> orders(OrderSide side, int maxLevels) {
+		return levels(side, maxLevels).flatMap(level -> Stream.iterate(level.getFirst(), Objects::nonNull, Order::getNext));
+	}
+	
+	/**
+	 * Walk the orders at the best price levels of one side of the order book in priority order, without allocating:
+	 * 1. Start at the cached best price level of the side
+	 * 2. Call the visitor for each order in the level's queue, following the orders' own links, and stop if it returns false
+	 * 3. Move to the next price level by its price through the level index, so no iterator is created and no price is boxed
+	 * 4. Stop once the number of levels asked for have been walked
+	 * 
+	 * The visitor must not change the book while it is walked.
+	 * 
+	 * This forEachOrder method is O(n + L log P) complexity, n being the number of orders visited, L the number of levels walked
+	 * and P the number of price levels
+	 * 
+	 * @param side
+	 * @param maxLevels The maximum number of price levels to walk
+	 * @param visitor The visitor called for each order
+	 * @return The number of orders visited
+	 */
+	public int forEachOrder(OrderSide side, int maxLevels, OrderVisitor visitor) {
+		PriceLevels orders = side == OrderSide.BUY ? buyOrders : sellOrders;
+		PriceLevel level = getBestLevel(side);
+		int visited = 0;
+		for (int levels = 0; level != null && levels < maxLevels; levels++) {
+			for (Order order = level.getFirst(); order != null; order = order.getNext()) {
+				visited++;
+				if (!visitor.visit(order)) {
+					return visited;
+				}
+			}
+			level = orders.next(level);
+		}
+		return visited;
+	}
+	
+	/**
+	 * Write the best price levels of both sides of the order book and their orders to an Appendable, in the same form as toString:
+	 * 1. Write each side's price levels best price first, and the orders at each level in priority order
+	 * 2. Prices and orders are written straight to the Appendable (see TickSize.appendPrice and Order.appendTo), without String.format
+	 * 
+	 * The book is streamed level by level, so a large book is never built up as one String unless the Appendable does that itself.
+	 * 
+	 * This dump method is O(n) complexity, n being the number of orders at the levels written
+	 * 
+	 * @param out Where the book is written, e.g. a Writer or a StringBuilder
+	 * @param maxLevels The maximum number of price levels written for each side
+	 * @throws IOException If the Appendable cannot be written to
+	 */
+	public void dump(Appendable out, int maxLevels) throws IOException {
+		out.append("OrderBook:\n");
+		dumpSide(out, "Buy Orders (Priority highest to lowest):\n", buyOrders, maxLevels);
+		dumpSide(out, "Sell Orders (Priority highest to lowest):\n", sellOrders, maxLevels);
+	}
+	
+	private void dumpSide(Appendable out, String title, PriceLevels orders, int maxLevels) throws IOException {
+		out.append(title);
+		if (orders.isEmpty()) {
+			out.append("  None\n");
+			return;
+		}
+		int levels = 0;
+		for (PriceLevel level = orders.first(); level != null && levels++ < maxLevels; level = orders.next(level)) {
+			out.append("  Price: ");
+			tickSize.appendPrice(level.getPrice(), out);
+			out.append('\n');
+			for (Order order = level.getFirst(); order != null; order = order.getNext()) {
+				out.append("    ");
+				order.appendTo(out);
+				out.append('\n');
+			}
+		}
+	}
 
 	@Override
 	public String toString() {
-	    StringBuilder sb = new StringBuilder();
-	    sb.append("OrderBook:\n");
-	    
-	    sb.append("Buy Orders (Priority highest to lowest):\n");
-	    if (buyOrders.isEmpty()) {
-	        sb.append("  None\n");
-	    } else {
-	        for (Map.Entry<Double, LinkedList<Order>> entry : buyOrders.entrySet()) {
-	            sb.append(String.format("  Price: %.2f\n", entry.getKey()));
-	            for (Order order : entry.getValue()) {
-	                sb.append("    ").append(order).append("\n");
-	            }
-	        }
-	    }
-	    
-	    sb.append("Sell Orders (Priority highest to lowest):\n");
-	    if (sellOrders.isEmpty()) {
-	        sb.append("  None\n");
-	    } else {
-	        for (Map.Entry<Double, LinkedList<Order>> entry : sellOrders.entrySet()) {
-	            sb.append(String.format("  Price: %.2f\n", entry.getKey()));
-	            for (Order order : entry.getValue()) {
-	                sb.append("    ").append(order).append("\n");
-	            }
-	        }
-	    }
-	    
-	    return sb.toString();
+		StringBuilder sb = new StringBuilder();
+		try {
+			dump(sb, Integer.MAX_VALUE);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // A StringBuilder never throws
+		}
+		return sb.toString();
 	}
 }	
 	
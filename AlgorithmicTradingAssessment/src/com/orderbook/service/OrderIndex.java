@@ -0,0 +1,144 @@
+package com.orderbook.service;
+
+import com.orderbook.model.Order;
+
+/**
+ * The OrderIndex class is a hash map from a primitive long order Id to the resting order.
+ * It uses open addressing with linear probing, so lookups do not box the Id and inserts do not allocate entries.
+ * Deletes shift the following entries back instead of leaving tombstones, so probe chains stay short under heavy cancelling.
+ * The table doubles when it is half full.
+ */
+final class OrderIndex {
+	private static final long EMPTY = 0; // Order Ids start at 1, so 0 marks an empty slot
+	
+	private long[] keys;
+	private Order[] values;
+	private int mask;
+	private int size;
+	
+	/**
+	 * 
+	 * @param expectedSize The number of orders the index should hold before it has to grow
+	 */
+	OrderIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		keys = new long[capacity];
+		values = new Order[capacity];
+		mask = capacity - 1;
+	}
+	
+	/**
+	 * Spread the Id bits so sequential Ids do not cluster in the table
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+	
+	/**
+	 * Get the order with the given Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 * @return The order or null if it is not in the index
+	 */
+	Order get(long id) {
+		for (int slot = hash(id) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (keys[slot] == id) {
+				return values[slot];
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Add or replace the order with the given Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 * @param order
+	 */
+	void put(long id, Order order) {
+		int slot = hash(id) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == id) {
+				values[slot] = order;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = id;
+		values[slot] = order;
+		if (++size > (mask + 1) >> 1) {
+			resize();
+		}
+	}
+	
+	/**
+	 * Remove the order with the given Id, O(1) expected complexity
+	 * 
+	 * @param id
+	 * @return The removed order or null if it was not in the index
+	 */
+	Order remove(long id) {
+		int slot = hash(id) & mask;
+		while (keys[slot] != id) {
+			if (keys[slot] == EMPTY) {
+				return null;
+			}
+			slot = (slot + 1) & mask;
+		}
+		Order removed = values[slot];
+		
+		// Shift back any following entries whose probe chain passes through the freed slot
+		int free = slot;
+		for (int next = (free + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				free = next;
+			}
+		}
+		keys[free] = EMPTY;
+		values[free] = null;
+		size--;
+		return removed;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Grow the table once so it can hold the expected number of orders without resizing again
+	 * 
+	 * @param expectedSize The number of orders the index should hold before it has to grow
+	 */
+	void ensureCapacity(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		if (capacity > keys.length) {
+			resize(capacity);
+		}
+	}
+	
+	private void resize() {
+		resize(keys.length << 1);
+	}
+	
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Order[] oldValues = values;
+		keys = new long[capacity];
+		values = new Order[capacity];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package com.orderbook.service;
+
+import com.orderbook.model.Order;
+
+/**
+ * Callback interface for walking the orders of one side of an order book in priority order, see OrderBook.forEachOrder.
+ * The visitor is called on the thread that owns the order book, and the orders must not be changed while they are visited.
+ * A visitor can be created once and reused, so walking the book allocates nothing.
+ */
+@FunctionalInterface
+public interface OrderVisitor {
+	
+	/**
+	 * Visit one resting order, its price level is order.getLevel()
+	 * 
+	 * @param order The order
+	 * @return True to carry on to the next order, false to stop the walk here
+	 */
+	boolean visit(Order order);
+}
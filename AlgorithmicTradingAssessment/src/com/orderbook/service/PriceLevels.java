@@ -0,0 +1,139 @@
+package com.orderbook.service;
+
+import com.orderbook.level.LevelIndex;
+import com.orderbook.level.LevelPrices;
+import com.orderbook.level.PriceLadder;
+import com.orderbook.level.SortedLevelIndex;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.PriceLevel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * The PriceLevels class holds the price levels of one side of an OrderBook (or one side's parked stops) and finds them by price.
+ * 
+ * 1. Each level is kept in a slot of an array, and its slot number is the int handle a LevelIndex finds it by
+ * 2. The slots of removed levels are kept on a free stack and reused, and both arrays double in size when they are full
+ * 3. A free slot keeps the level that was removed from it, which is reset to the new price when the slot is reused,
+ *    so a flow that keeps opening and clearing levels creates no PriceLevel once the side has reached its largest size
+ * 4. Prices are looked up and walked as primitives through the index, so no price is boxed and no map entry or iterator is created
+ * 5. The index is a SortedLevelIndex, or a PriceLadder when the side is created with a ladder band
+ * 
+ * The levels are ordered from the highest price when highestFirst is set, and from the lowest price otherwise.
+ */
+final class PriceLevels implements LevelPrices {
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private final LevelIndex index;
+	private PriceLevel[] slots = new PriceLevel[INITIAL_CAPACITY]; // The level in each slot, a free slot keeps its last level for reuse
+	private int[] free = new int[INITIAL_CAPACITY]; // The stack of free slots below used
+	private int freeCount;
+	private int used; // The number of slots ever handed out, the slots from here up have never been used
+	
+	/**
+	 * 
+	 * @param highestFirst True to order the levels from the highest price, as for bids and sell stops
+	 * @param ladderTicks The width in ticks of the price ladder band, or 0 to keep the levels in sorted arrays
+	 */
+	PriceLevels(boolean highestFirst, int ladderTicks) {
+		this.index = ladderTicks > 0 ? new PriceLadder(highestFirst, ladderTicks, INITIAL_CAPACITY, this)
+				: new SortedLevelIndex(highestFirst, INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * This get method has the complexity of the index's find, O(log P) for sorted arrays and O(1) in a ladder band
+	 * 
+	 * @param price The price in ticks
+	 * @return The level at the price, or null if there is none
+	 */
+	PriceLevel get(long price) {
+		return level(index.find(price));
+	}
+	
+	/**
+	 * Add an empty level at a price that has no level yet, in a free slot, reusing the level last removed from the slot if there is one
+	 * 
+	 * This add method has the complexity of the index's insert, plus O(P) when the slots grow
+	 * 
+	 * @param side The side of the order book the level belongs to
+	 * @param price The price in ticks
+	 * @return The new level
+	 */
+	PriceLevel add(OrderSide side, long price) {
+		int slot;
+		PriceLevel level;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+			level = slots[slot];
+			level.reset(side, price);
+		} else {
+			if (used == slots.length) {
+				slots = Arrays.copyOf(slots, used * 2);
+				free = Arrays.copyOf(free, used * 2);
+			}
+			slot = used++;
+			level = new PriceLevel(side, price);
+			slots[slot] = level;
+		}
+		index.insert(price, slot);
+		return level;
+	}
+	
+	/**
+	 * Remove an empty level that is held here, and free its slot
+	 * The level is kept in its slot for reuse, it is left as it is until the next level is added, so the caller can still publish it.
+	 * 
+	 * This remove method has the complexity of the index's remove, O(1) for the best level
+	 */
+	void remove(PriceLevel level) {
+		free[freeCount++] = index.remove(level.getPrice());
+	}
+	
+	/**
+	 * @return The first level, or null if there are none
+	 */
+	PriceLevel first() {
+		return level(index.best());
+	}
+	
+	/**
+	 * @param level A level held here
+	 * @return The level after it, or null if it is the last level
+	 */
+	PriceLevel next(PriceLevel level) {
+		return next(level.getPrice());
+	}
+	
+	/**
+	 * @param price A price in ticks, which need not have a level
+	 * @return The first level after the price, or null if there is none
+	 */
+	PriceLevel next(long price) {
+		return level(index.next(price));
+	}
+	
+	/**
+	 * @return A lazy stream of the levels, first level first
+	 */
+	Stream<PriceLevel> stream() {
+		return Stream.iterate(first(), Objects::nonNull, this::next);
+	}
+	
+	int size() {
+		return index.size();
+	}
+	
+	boolean isEmpty() {
+		return index.size() == 0;
+	}
+	
+	@Override
+	public long levelPrice(int level) {
+		return slots[level].getPrice();
+	}
+	
+	private PriceLevel level(int slot) {
+		return slot == LevelIndex.NONE ? null : slots[slot];
+	}
+}
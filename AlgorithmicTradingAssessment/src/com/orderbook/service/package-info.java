@@ -5,6 +5,8 @@
  * This package also includes the methods required for processing and matching orders (matchingEngine).
  * - {@link com.orderbook.service.OrderBook} is the class that manages the order book and handles the operations on orders.
  * - {@link com.orderbook.service.MatchingEngine} is the class that manages the matching engine and handles order processing and matching.
+ * - {@link com.orderbook.service.OrderVisitor} is the callback interface used to walk the best price levels of the book without allocating.
+ * - {@link com.orderbook.service.DepthView} is the sequence locked copy of the best price levels that other threads read without stopping the matching engine.
  * </p>
  */
 package com.orderbook.service;
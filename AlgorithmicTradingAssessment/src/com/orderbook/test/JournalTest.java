@@ -0,0 +1,258 @@
+package com.orderbook.test;
+
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.TickSize;
+import com.orderbook.persistence.CommandJournal;
+import com.orderbook.persistence.FlushPolicy;
+import com.orderbook.persistence.JournalReplayer;
+import com.orderbook.persistence.OrderBookSnapshot;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The JournalTest class has manual methods to validate the functionality of the command journal, its replay and order book snapshots.
+ * Each method prints "PASSED" or "FAILED" depending to indicate outcome of the test.
+ * JUnit would've been used for the unit tests but that would not have complied with the assessment instructions.
+ */
+public class JournalTest {
+
+    /**
+     * This function validates whether replaying a journal rebuilds the same order book.
+     * 
+     * 1. Journal a random mix of passive adds, crossing orders, modifies and cancels, small segments make the journal roll several times.
+     * 2. Replay the journal into a new matching engine.
+     * 3. Assert that both sides of both books hold the same orders (Id, price, quantity and timestamp) in the same priority order.
+     * 4. Assert that the next order Id of the replayed book continues after the journaled Ids.
+     * 5. Reopen the journal and assert that its sequence continues after the last record.
+     */
+    public static void testJournalReplay() throws IOException {
+        Path directory = Files.createTempDirectory("journal-test");
+        try {
+            OrderBook orderBook = new OrderBook();
+            CommandJournal journal = new CommandJournal(directory, 1 << 17, FlushPolicy.onRoll());
+            MatchingEngine matchingEngine = new MatchingEngine(orderBook, null, null, journal);
+            
+            Random random = new Random(42);
+            List<Long> orderIds = new ArrayList<>();
+            randomOrderFlow(matchingEngine, random, orderIds, 0, 20000);
+            long journaled = journal.getSequence();
+            journal.close();
+            
+            // Rebuild the book from the journal
+            OrderBook replayedBook = new OrderBook();
+            JournalReplayer replayer = new JournalReplayer(directory);
+            long replayed = replayer.replay(new MatchingEngine(replayedBook), new OrderPool(1024));
+            
+            boolean sameBooks = sameOrders(orderBook, replayedBook, OrderSide.BUY, true) && sameOrders(orderBook, replayedBook, OrderSide.SELL, true);
+            
+            // The next Id of both books must be the same
+            long nextId = new MatchingEngine(orderBook).addOrder(new Order(OrderSide.BUY, 1.0, 1));
+            long replayedNextId = new MatchingEngine(replayedBook).addOrder(new Order(OrderSide.BUY, 1.0, 1));
+            
+            CommandJournal reopened = new CommandJournal(directory, 1 << 17, FlushPolicy.onRoll());
+            long reopenedSequence = reopened.getSequence();
+            reopened.close();
+            
+            if (replayed == journaled && replayer.getLastSequence() == journaled && segmentCount(directory) > 2
+                    && sameBooks && replayedNextId == nextId && reopenedSequence == journaled) {
+                System.out.println("\n=================================");
+                System.out.println("1. Journal Replay Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("1. Journal Replay Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    /**
+     * This function validates whether replaying a journal restores the original order timestamps.
+     * 
+     * 1. Journal passive adds, modifies and cancels that never trade.
+     * 2. Replay the journal into a new matching engine.
+     * 3. Assert that every resting order has the same timestamp in both books, including the modified ones.
+     */
+    public static void testTimestampRestore() throws IOException {
+        Path directory = Files.createTempDirectory("journal-test");
+        try {
+            OrderBook orderBook = new OrderBook();
+            CommandJournal journal = new CommandJournal(directory, 1 << 17, FlushPolicy.everyRecords(100));
+            MatchingEngine matchingEngine = new MatchingEngine(orderBook, null, null, journal);
+            
+            for (int i = 0; i < 1000; i++) {
+                long orderId = matchingEngine.processOrder(new Order(OrderSide.BUY, 99.0 - (i % 10) * 0.01, 10));
+                matchingEngine.addOrder(new Order(OrderSide.SELL, 101.0 + (i % 10) * 0.01, 10));
+                if (i % 3 == 0) {
+                    matchingEngine.modifyOrder(orderId, 5);
+                } else if (i % 3 == 1) {
+                    matchingEngine.cancelOrder(orderId);
+                }
+            }
+            journal.close();
+            
+            OrderBook replayedBook = new OrderBook();
+            new JournalReplayer(directory).replay(new MatchingEngine(replayedBook), null);
+            
+            if (sameOrders(orderBook, replayedBook, OrderSide.BUY, true) && sameOrders(orderBook, replayedBook, OrderSide.SELL, true)) {
+                System.out.println("\n=================================");
+                System.out.println("2. Timestamp Restore Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("2. Timestamp Restore Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    /**
+     * This function validates whether a book restored from a snapshot, plus the journal tail, is the same as the live book.
+     * 
+     * 1. Journal a random order flow and take a snapshot part way through it.
+     * 2. Restore the snapshot into a new book straight away and assert that it is identical, including timestamps and its depth view.
+     * 3. Journal the rest of the order flow.
+     * 4. Restore the snapshot into another new book, replay only the journal after the snapshot and assert it matches the live book.
+     */
+    public static void testSnapshotRestore() throws IOException {
+        Path directory = Files.createTempDirectory("journal-test");
+        try {
+            OrderBook orderBook = new OrderBook();
+            CommandJournal journal = new CommandJournal(directory.resolve("journal"), 1 << 17, FlushPolicy.onRoll());
+            MatchingEngine matchingEngine = new MatchingEngine(orderBook, null, null, journal);
+            Random random = new Random(7);
+            List<Long> orderIds = new ArrayList<>();
+            
+            // Snapshot part way through the order flow and restore it straight away
+            randomOrderFlow(matchingEngine, random, orderIds, 0, 10000);
+            OrderBookSnapshot snapshot = new OrderBookSnapshot(directory.resolve("book.snapshot"));
+            snapshot.write(orderBook, journal.getSequence());
+            OrderBook snapshotBook = new OrderBook(TickSize.DEFAULT, null, 10);
+            long snapshotSequence = snapshot.restore(snapshotBook, null);
+            boolean snapshotCorrect = snapshotSequence == journal.getSequence()
+                    && sameOrders(orderBook, snapshotBook, OrderSide.BUY, true) && sameOrders(orderBook, snapshotBook, OrderSide.SELL, true)
+                    && snapshotBook.getNextOrderId() == orderBook.getNextOrderId()
+                    && OrderBookTest.sameLevels(orderBook.getDepth(OrderSide.BUY, 10), snapshotBook.getDepthView().getDepth(OrderSide.BUY))
+                    && OrderBookTest.sameLevels(orderBook.getDepth(OrderSide.SELL, 10), snapshotBook.getDepthView().getDepth(OrderSide.SELL));
+            
+            // Restore the snapshot again and replay only the journal written after it
+            randomOrderFlow(matchingEngine, random, orderIds, 10000, 10000);
+            journal.close();
+            OrderBook restoredBook = new OrderBook();
+            long tailSequence = snapshot.restore(restoredBook, new OrderPool(1024));
+            long tail = new JournalReplayer(directory.resolve("journal")).replay(new MatchingEngine(restoredBook), null, tailSequence);
+            
+            if (snapshotCorrect && tail == journal.getSequence() - snapshotSequence
+                    && sameOrders(orderBook, restoredBook, OrderSide.BUY, true) && sameOrders(orderBook, restoredBook, OrderSide.SELL, true)) {
+                System.out.println("\n=================================");
+                System.out.println("3. Snapshot Restore Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("3. Snapshot Restore Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+    
+    /**
+     * Process a random mix of resting orders with client order Ids, crossing limit and market orders, modifies and cancels
+     */
+    static void randomOrderFlow(MatchingEngine matchingEngine, Random random, List<Long> orderIds, int first, int count) {
+        for (int i = first; i < first + count; i++) {
+            // Run a short call auction every 500 messages
+            if (i % 500 == 400) {
+                matchingEngine.beginAuction();
+            } else if (i % 500 == 450) {
+                matchingEngine.uncross();
+            }
+            int action = random.nextInt(10);
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            double price = 100.0 + random.nextInt(20) * 0.01 * (side == OrderSide.BUY ? -1 : 1);
+            if (action < 5) {
+                orderIds.add(matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(50), "client-" + i)));
+            } else if (action < 6) {
+                // A crossing limit or market order that trades through several levels, or a stop order that may trigger later
+                int kind = random.nextInt(3);
+                matchingEngine.processOrder(kind == 0
+                        ? new Order(side, side == OrderSide.BUY ? 100.2 : 99.8, 1 + random.nextInt(200))
+                        : kind == 1 ? new Order(side, 1 + random.nextInt(200))
+                        : new Order(OrderType.STOP, side, 100.0 + (random.nextInt(40) - 20) * 0.01, 1 + random.nextInt(50), TickSize.DEFAULT, null));
+            } else if (action < 8 && !orderIds.isEmpty()) {
+                matchingEngine.modifyOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(50));
+            } else if (!orderIds.isEmpty()) {
+                matchingEngine.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+            }
+        }
+    }
+    
+    /**
+     * Compare one side of two order books order by order, in priority order, followed by their parked stop orders
+     */
+    static boolean sameOrders(OrderBook expected, OrderBook actual, OrderSide side, boolean compareTimestamps) {
+        List<Order> expectedOrders = ordersAndStops(expected, side);
+        List<Order> actualOrders = ordersAndStops(actual, side);
+        if (expectedOrders.size() != actualOrders.size()) {
+            return false;
+        }
+        for (int i = 0; i < expectedOrders.size(); i++) {
+            Order e = expectedOrders.get(i);
+            Order a = actualOrders.get(i);
+            if (e.getId() != a.getId() || e.getPriceTicks() != a.getPriceTicks() || e.getQuantity() != a.getQuantity()
+                    || !Objects.equals(e.getClientOrderId(), a.getClientOrderId())
+                    || (compareTimestamps && e.getTimestamp() != a.getTimestamp())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static List<Order> ordersAndStops(OrderBook orderBook, OrderSide side) {
+        List<Order> orders = orderBook.getOrders(side);
+        orderBook.stopLevels(side).flatMap(level -> Stream.iterate(level.getFirst(), Objects::nonNull, Order::getNext)).forEach(orders::add);
+        return orders;
+    }
+    
+    private static long segmentCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+    
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Run Journal tests and output the results
+        System.out.println("\n========================");
+        System.out.println("Running Journal Tests...");
+        System.out.println("========================\n");
+
+        JournalTest.testJournalReplay();
+        JournalTest.testTimestampRestore();
+        JournalTest.testSnapshotRestore();
+    }
+}
@@ -0,0 +1,119 @@
+package com.orderbook.test;
+
+import com.orderbook.engine.MatchingEngineIngress;
+import com.orderbook.engine.OrderCommand;
+import com.orderbook.engine.WaitStrategy;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderSide;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MatchingEngineIngressTest class has manual methods to validate the functionality of the matching engine ingress.
+ * Each method prints "PASSED" or "FAILED" depending to indicate outcome of the test.
+ * JUnit would've been used for the unit tests but that would not have complied with the assessment instructions.
+ */
+public class MatchingEngineIngressTest {
+
+    /**
+     * This function validates whether commands from several gateway threads are all applied with a given wait strategy.
+     * 
+     * 1. Start an ingress in front of a new matching engine.
+     * 2. Start three gateway threads that each submit resting buy orders, crossing sell orders and cancels.
+     * 3. Stop the ingress and assert that the order book holds exactly the orders that were neither filled nor cancelled.
+     * 
+     * Commands from one gateway thread are applied in the order that thread submitted them, so each cancel finds its order.
+     * 
+     * @param name The name of the wait strategy, used in the output
+     * @param waitStrategy The wait strategy to test
+     * @param testNumber The number printed with the test result
+     */
+    public static void testConcurrentCommands(String name, WaitStrategy waitStrategy, int testNumber) throws InterruptedException {
+        OrderBook orderBook = new OrderBook();
+        MatchingEngineIngress ingress = new MatchingEngineIngress(new MatchingEngine(orderBook), 1024, 64, waitStrategy, Thread::new);
+        ingress.start();
+
+        // Each gateway thread rests 3 buy orders per round, fills the one at 100 and cancels the one at 98 by client order Id
+        int rounds = 2000;
+        Thread[] gateways = new Thread[3];
+        for (int g = 0; g < gateways.length; g++) {
+            String prefix = "gateway-" + g + "-";
+            gateways[g] = new Thread(() -> {
+                for (int i = 0; i < rounds; i++) {
+                    ingress.submit(OrderCommand.process("", new Order(OrderSide.BUY, 100.0, 1)));
+                    ingress.submit(OrderCommand.process("", new Order(OrderSide.BUY, 98.0, 1, prefix + i)));
+                    ingress.submit(OrderCommand.add("", new Order(OrderSide.BUY, 99.0, 1)));
+                    ingress.submit(OrderCommand.process("", new Order(OrderSide.SELL, 100.0, 1)));
+                    ingress.submit(OrderCommand.cancel("", prefix + i));
+                }
+            });
+            gateways[g].start();
+        }
+        for (Thread gateway : gateways) {
+            gateway.join();
+        }
+        ingress.stop();
+
+        // Each round leaves only the buy order at 99 resting
+        int resting = orderBook.getOrders(OrderSide.BUY).size();
+        if (resting == rounds * gateways.length && orderBook.getLevelCount(OrderSide.BUY) == 1 && orderBook.getOrders(OrderSide.SELL).isEmpty()) {
+            System.out.println("\n=====================================================");
+            System.out.println(testNumber + ". Concurrent Commands Test (" + name + ") PASSED");
+            System.out.println("=====================================================\n");
+        } else {
+            System.out.println("\n=====================================================");
+            System.out.println(testNumber + ". Concurrent Commands Test (" + name + ") FAILED");
+            System.out.println("=====================================================\n");
+        }
+    }
+
+    /**
+     * This function validates that a command the matching engine refuses does not stop the matcher thread.
+     * 
+     * 1. Start an ingress with a rejected command handler in front of a new matching engine, and rest a buy order.
+     * 2. Submit a modify to a quantity of 0 and an add of a market order, which the order book refuses, each followed by a good command.
+     * 3. Stop the ingress and assert that both good commands were applied and both bad ones were counted and reported.
+     */
+    public static void testRejectedCommands() throws InterruptedException {
+        OrderBook orderBook = new OrderBook();
+        List<OrderCommand> rejected = new ArrayList<>();
+        MatchingEngineIngress ingress = new MatchingEngineIngress(new MatchingEngine(orderBook), 16, 4, WaitStrategy.yielding(), Thread::new,
+                (command, error) -> rejected.add(command));
+        ingress.start();
+        
+        Order resting = new Order(OrderSide.BUY, 100.0, 10);
+        ingress.submit(OrderCommand.add("", resting));
+        OrderCommand badModify = OrderCommand.modify("", 1, 0);
+        OrderCommand badAdd = OrderCommand.add("", new Order(OrderSide.SELL, 5));
+        ingress.submit(badModify);
+        ingress.submit(OrderCommand.modify("", 1, 4));
+        ingress.submit(badAdd);
+        ingress.submit(OrderCommand.add("", new Order(OrderSide.SELL, 101.0, 3)));
+        ingress.stop();
+        
+        if (ingress.getRejectedCount() == 2 && rejected.equals(List.of(badModify, badAdd))
+                && resting.getQuantity() == 4 && orderBook.getBestAsk() == 10100 && orderBook.getOrderCount() == 2) {
+            System.out.println("\n=====================================================");
+            System.out.println("4. Rejected Commands Test PASSED");
+            System.out.println("=====================================================\n");
+        } else {
+            System.out.println("\n=====================================================");
+            System.out.println("4. Rejected Commands Test FAILED");
+            System.out.println("=====================================================\n");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Run MatchingEngineIngress tests and output the results
+        System.out.println("\n======================================");
+        System.out.println("Running MatchingEngineIngress Tests...");
+        System.out.println("======================================\n");
+
+        MatchingEngineIngressTest.testConcurrentCommands("busy spin", WaitStrategy.busySpin(), 1);
+        MatchingEngineIngressTest.testConcurrentCommands("yielding", WaitStrategy.yielding(), 2);
+        MatchingEngineIngressTest.testConcurrentCommands("parking", WaitStrategy.parking(1000), 3);
+        MatchingEngineIngressTest.testRejectedCommands();
+    }
+}
@@ -1,9 +1,32 @@
 package com.orderbook.test;
 
+import com.orderbook.codec.CancelOrderMessage;
+import com.orderbook.codec.MessageHeader;
+import com.orderbook.codec.ModifyOrderMessage;
+import com.orderbook.codec.NewOrderMessage;
+import com.orderbook.codec.OrderEntryDecoder;
+import com.orderbook.engine.OrderCommand;
+import com.orderbook.event.ExecutionReportConsumer;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.metrics.EngineMetrics;
+import com.orderbook.metrics.EngineOperation;
+import com.orderbook.metrics.HistogramSnapshot;
+import com.orderbook.model.AuctionResult;
 import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
 import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.PriceLevel;
+import com.orderbook.model.TickSize;
 import com.orderbook.service.MatchingEngine;
 import com.orderbook.service.OrderBook;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 /**
  * The MatchingEngineTest class has manual methods to validate the functionality of the matching engine.
@@ -133,6 +156,547 @@ public class MatchingEngineTest {
         }
     }
 
+    /**
+     * This function checks whether fully filled pooled orders are returned to their pool, and emptied price levels are reused.
+     * 
+     * 1. Acquire a sell order from a pool and add it to the order book.
+     * 2. Acquire a buy order from the same pool that fully fills the sell order, and process it.
+     * 3. Assert that both orders are back in the pool and no new orders were created.
+     * 4. Add a sell order at another price, and assert that it rests in the price level emptied by the fill.
+     * 
+     * A new order book is used so the pooled orders can only match each other.
+     */
+    public static void testPooledOrderRecycling() {
+        OrderPool pool = new OrderPool(2);
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        
+        // Add a pooled sell order to the empty order book
+        orderBook.addOrder(pool.acquire(OrderSide.SELL, 200.0, 10)); // Sell order at 200 for 10 units
+        PriceLevel emptiedLevel = orderBook.getBestLevel(OrderSide.SELL);
+        
+        // Process a pooled buy order that fully fills the sell order
+        matchingEngine.processOrder(pool.acquire(OrderSide.BUY, 200.0, 10)); // Buy order at 200 for 10 units
+        boolean ordersRecycled = pool.getAvailable() == 2 && pool.getCreated() == 2;
+        
+        // Open a level at another price, which takes the slot and the level the fill emptied
+        orderBook.addOrder(pool.acquire(OrderSide.SELL, 201.0, 5)); // Sell order at 201 for 5 units
+        PriceLevel reusedLevel = orderBook.getBestLevel(OrderSide.SELL);
+        
+        // Check that both orders were recycled, the pool did not grow and the level was reused at its new price
+        if (ordersRecycled && reusedLevel == emptiedLevel && reusedLevel.getPrice() == 20100 && reusedLevel.getTotalQuantity() == 5) {
+            System.out.println("\n=================================");
+            System.out.println("5. Pooled Order Recycling Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("5. Pooled Order Recycling Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+
+    /**
+     * This function checks whether the MatchingEngine publishes the correct execution reports.
+     * 
+     * 1. Process a sell order on an empty order book, which is accepted and rests.
+     * 2. Process a buy order that partially fills the sell order, which is accepted and filled.
+     * 3. Cancel the rest of the sell order.
+     * 4. Assert that a consumer reads the reports in order, with the maker and taker Ids on the fill.
+     * 
+     * A new order book is used so only the reports of this test are published.
+     */
+    public static void testExecutionReports() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(16);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, executionReports);
+        
+        // Rest a sell order, partially fill it and cancel the remainder
+        long sellOrderId = matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 10)); // Sell order at 100 for 10 units
+        long buyOrderId = matchingEngine.processOrder(new Order(OrderSide.BUY, 100.0, 4));    // Buy order at 100 for 4 units
+        matchingEngine.cancelOrder(sellOrderId);
+        
+        // Read the reports and compare them to the expected sequence
+        ExecutionType[] expected = { ExecutionType.ACCEPTED, ExecutionType.RESTED, ExecutionType.ACCEPTED, ExecutionType.FILL, ExecutionType.CANCELLED };
+        ExecutionType[] received = new ExecutionType[expected.length];
+        boolean[] fillCorrect = { false };
+        int count = consumer.poll(report -> {
+            received[(int) report.getSequence()] = report.getType();
+            if (report.getType() == ExecutionType.FILL) {
+                fillCorrect[0] = report.getTakerOrderId() == buyOrderId && report.getMakerOrderId() == sellOrderId
+                        && report.getQuantity() == 4 && report.getMakerLeavesQuantity() == 6;
+            }
+        });
+        
+        if (count == expected.length && Arrays.equals(expected, received) && fillCorrect[0]) {
+            System.out.println("\n=================================");
+            System.out.println("6. Execution Report Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("6. Execution Report Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+
+    /**
+     * This function validates whether the MatchingEngine records its metrics.
+     * 
+     * 1. Rest three sell orders at two price levels.
+     * 2. Process a buy order that fills against all three, walking both price levels.
+     * 3. Modify and cancel a resting order.
+     * 4. Assert that the counters, the resting book size and the latency histograms are correct.
+     * 
+     * A new order book is used so only the operations of this test are recorded.
+     */
+    public static void testEngineMetrics() {
+        EngineMetrics metrics = new EngineMetrics();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, null, metrics);
+        
+        matchingEngine.addOrder(new Order(OrderSide.SELL, 100.0, 5));  // Sell order at 100 for 5 units
+        matchingEngine.addOrder(new Order(OrderSide.SELL, 100.0, 5));  // Sell order at 100 for 5 units
+        matchingEngine.addOrder(new Order(OrderSide.SELL, 101.0, 10)); // Sell order at 101 for 10 units
+        long restingId = matchingEngine.processOrder(new Order(OrderSide.SELL, 102.0, 10)); // Sell order at 102 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 101.0, 12)); // Buy order at 101 for 12 units, 3 fills over 2 levels
+        matchingEngine.modifyOrder(restingId, 4);
+        matchingEngine.cancelOrder(restingId);
+        
+        HistogramSnapshot matchLatency = metrics.getMatchLatency();
+        boolean countersCorrect = metrics.getMatchCount() == 2 && metrics.getFillCount() == 3
+                && metrics.getLevelsWalked() == 2 && metrics.getMaxLevelsWalked() == 2 && metrics.getRestingOrders() == 1;
+        boolean latenciesCorrect = metrics.getLatency(EngineOperation.ADD).getCount() == 3 && matchLatency.getCount() == 2
+                && metrics.getModifyLatency().getCount() == 1 && metrics.getCancelLatency().getCount() == 1
+                && matchLatency.getP50() <= matchLatency.getP99() && matchLatency.getP99() == matchLatency.getMax();
+        
+        if (countersCorrect && latenciesCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("7. Engine Metrics Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("7. Engine Metrics Test FAILED");
+            System.out.println("=================================\n");
+        }
+        System.out.println(metrics);
+    }
+
+    /**
+     * This function validates whether the MatchingEngine correctly sweeps market orders.
+     * 
+     * 1. Rest sell orders at 100, 101 and 105.
+     * 2. Process a market buy order that sweeps the levels at 100 and 101 and part of 105.
+     * 3. Set a price protection band of 2 ticks, add a sell order at 108 and process a market buy order larger than the book.
+     * 4. Assert that the second order stops at the band, its remainder is cancelled rather than rested and the order at 108 is untouched.
+     * 
+     * A new order book is used so only the orders of this test are swept.
+     */
+    public static void testMarketOrders() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(64);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, executionReports);
+        
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 5));  // Sell order at 100 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 101.0, 5));  // Sell order at 101 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 105.0, 10)); // Sell order at 105 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 12));         // Market buy order for 12 units
+        boolean sweepCorrect = orderBook.getBestAsk() == 10500 && orderBook.getBestAskQuantity() == 8 && orderBook.getLevelCount(OrderSide.SELL) == 1;
+        
+        // The band is measured from the best ask of 105 when the order arrives, so the order at 108 is out of reach
+        matchingEngine.setMarketProtection(2);
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 108.0, 10)); // Sell order at 108 for 10 units
+        long marketOrderId = matchingEngine.processOrder(new Order(OrderSide.BUY, 20)); // Market buy order for 20 units
+        
+        int[] fills = { 0 };
+        long[] cancelled = { 0 };
+        consumer.poll(report -> {
+            if (report.getType() == ExecutionType.FILL) {
+                fills[0]++;
+            } else if (report.getType() == ExecutionType.CANCELLED && report.getOrderId() == marketOrderId) {
+                cancelled[0] = report.getQuantity();
+            }
+        });
+        boolean bandCorrect = orderBook.getBestAsk() == 10800 && orderBook.getBestAskQuantity() == 10
+                && orderBook.getOrders(OrderSide.BUY).isEmpty() && orderBook.getOrder(marketOrderId) == null
+                && fills[0] == 4 && cancelled[0] == 12;
+        
+        if (sweepCorrect && bandCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("8. Market Order Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("8. Market Order Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+
+    /**
+     * Test stop orders:
+     * Stop orders are parked until a trade reaches their trigger price, and then swept as market orders in trigger price order.
+     * A triggered stop's own trades can trigger further stops, and a stop that is already through the last trade price is swept straight away.
+     */
+    public static void testStopOrders() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(64);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, executionReports);
+        
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 5));  // Sell order at 100 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 101.0, 5));  // Sell order at 101 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 102.0, 5));  // Sell order at 102 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 103.0, 10)); // Sell order at 103 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 99.0, 10));   // Buy order at 99 for 10 units
+        
+        long stopA = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.BUY, 101.0, 5, TickSize.DEFAULT, null)); // Buy stop at 101
+        long stopB = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.BUY, 102.0, 5, TickSize.DEFAULT, null)); // Buy stop at 102
+        long stopC = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.SELL, 98.0, 1, TickSize.DEFAULT, null)); // Sell stop at 98
+        long stopD = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.BUY, 110.0, 5, TickSize.DEFAULT, null)); // Buy stop at 110
+        boolean parkedCorrect = orderBook.getBestAsk() == 10000 && orderBook.getOrder(stopA) != null
+                && orderBook.getStopLevelCount(OrderSide.BUY) == 3 && orderBook.getStopLevelCount(OrderSide.SELL) == 1;
+        
+        // A trade at 100 is below every buy stop, then a trade at 101 triggers stop A, whose trades at 102 trigger stop B
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 100.0, 5));
+        boolean untriggeredCorrect = orderBook.getStopLevelCount(OrderSide.BUY) == 3;
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 101.0, 2));
+        boolean cascadeCorrect = orderBook.getBestAsk() == 10300 && orderBook.getBestAskQuantity() == 8
+                && orderBook.getOrder(stopA) == null && orderBook.getOrder(stopB) == null
+                && orderBook.getOrder(stopC) != null && orderBook.getOrder(stopD) != null && orderBook.getLastTradePrice() == 10300;
+        
+        // A parked stop is cancelled like any other order, and a stop already through the last trade price is swept straight away
+        boolean cancelCorrect = matchingEngine.cancelOrder(stopD) && orderBook.getStopLevelCount(OrderSide.BUY) == 0;
+        long stopE = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.BUY, 102.0, 1, TickSize.DEFAULT, null)); // Buy stop at 102
+        boolean immediateCorrect = orderBook.getBestAskQuantity() == 7 && orderBook.getOrder(stopE) == null;
+        
+        List<Long> triggered = new ArrayList<>();
+        consumer.poll(report -> {
+            if (report.getType() == ExecutionType.TRIGGERED) {
+                triggered.add(report.getOrderId());
+            }
+        });
+        boolean reportsCorrect = triggered.equals(List.of(stopA, stopB, stopE));
+        
+        if (parkedCorrect && untriggeredCorrect && cascadeCorrect && cancelCorrect && immediateCorrect && reportsCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("9. Stop Order Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("9. Stop Order Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+
+    /**
+     * Test batch processing:
+     * A batch of orders, and a batch of mixed commands, must leave the book exactly as the same messages applied one at a time,
+     * with each message's result written to the caller's buffer at its own index.
+     */
+    public static void testBatchProcessing() {
+        OrderBook singleBook = new OrderBook();
+        MatchingEngine singleEngine = new MatchingEngine(singleBook);
+        OrderBook batchBook = new OrderBook();
+        MatchingEngine batchEngine = new MatchingEngine(batchBook, null, new EngineMetrics());
+        
+        // The same crossing flow, one order at a time and in one batch
+        Order[] orders = new Order[200];
+        long[] singleIds = new long[orders.length];
+        for (int i = 0; i < orders.length; i++) {
+            OrderSide side = i % 2 == 0 ? OrderSide.BUY : OrderSide.SELL;
+            double price = 100.0 + ((i * 7) % 11 - 5) * 0.01;
+            orders[i] = new Order(side, price, 1 + (i * 13) % 20, "batch-" + i);
+            singleIds[i] = singleEngine.processOrder(new Order(side, price, 1 + (i * 13) % 20, "batch-" + i));
+        }
+        long[] batchIds = new long[orders.length];
+        int processed = batchEngine.processOrders(orders, 0, orders.length, batchIds);
+        boolean ordersCorrect = processed == orders.length && Arrays.equals(singleIds, batchIds) && sameBook(singleBook, batchBook);
+        
+        // A mixed batch that refers to an order added earlier in the same batch, and to orders that are not in the book
+        OrderCommand[] commands = {
+            OrderCommand.add("TEST", new Order(OrderSide.BUY, 90.0, 10, "mixed-1")),
+            OrderCommand.modify("TEST", "mixed-1", 25),
+            OrderCommand.process("TEST", new Order(OrderSide.SELL, 90.0, 5)),
+            OrderCommand.cancel("TEST", "mixed-2"),
+            OrderCommand.cancel("TEST", 999_999),
+            OrderCommand.cancel("TEST", "mixed-1")
+        };
+        long[] results = new long[commands.length];
+        batchEngine.processCommands(commands, 0, commands.length, results);
+        long mixedId = results[0];
+        boolean commandsCorrect = mixedId != 0 && results[1] == mixedId && results[2] != 0 && results[3] == 0
+                && results[4] == 0 && results[5] == mixedId && batchBook.getOrder(mixedId) == null
+                && batchEngine.getMetrics().getLatency(EngineOperation.CANCEL).getCount() == 3;
+        
+        if (ordersCorrect && commandsCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("10. Batch Processing Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("10. Batch Processing Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    /**
+     * Test the call auction uncross:
+     * Orders collected during an auction rest without matching, and the uncross executes the most volume at one price,
+     * filling each side in priority order. Random books are checked against a brute force search of every price.
+     */
+    public static void testAuctionUncross() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(64);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, executionReports);
+        
+        matchingEngine.beginAuction();
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 102.0, 10));  // Buy order at 102 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 101.0, 10));  // Buy order at 101 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 100.0, 10));  // Buy order at 100 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 99.0, 10));  // Sell order at 99 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 15)); // Sell order at 100 for 15 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 101.0, 10)); // Sell order at 101 for 10 units
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 5));         // Market sell order, cancelled during the auction
+        boolean collectedCorrect = orderBook.getBestBid() == 10200 && orderBook.getBestAsk() == 9900 && orderBook.getOrderCount() == 6;
+        
+        // 25 units trade at 100, the most of any price, leaving 5 units bid at 100 and the ask at 101 untouched
+        AuctionResult result = matchingEngine.uncross();
+        boolean uncrossCorrect = result.getPrice() == 10000 && result.getVolume() == 25 && result.getBuySurplus() == 5 && result.getSellSurplus() == 0
+                && !matchingEngine.isAuction() && orderBook.getLastTradePrice() == 10000
+                && orderBook.getBestBid() == 10000 && orderBook.getBestBidQuantity() == 5
+                && orderBook.getBestAsk() == 10100 && orderBook.getBestAskQuantity() == 10;
+        
+        long[] filled = { 0, 0 };
+        consumer.poll(report -> {
+            if (report.getType() == ExecutionType.FILL) {
+                filled[report.getSide() == OrderSide.BUY ? 0 : 1] += report.getQuantity();
+            }
+        });
+        boolean reportsCorrect = filled[0] == 25 && filled[1] == 25;
+        
+        // Random crossed books must reach the volume of a brute force search over every price
+        Random random = new Random(18);
+        boolean randomCorrect = true;
+        for (int round = 0; round < 200 && randomCorrect; round++) {
+            OrderBook randomBook = new OrderBook();
+            MatchingEngine randomEngine = new MatchingEngine(randomBook);
+            randomEngine.beginAuction();
+            long[] buyQuantity = new long[21];
+            long[] sellQuantity = new long[21];
+            for (int i = 0; i < 40; i++) {
+                OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+                int tick = random.nextInt(21);
+                long quantity = 1 + random.nextInt(20);
+                (side == OrderSide.BUY ? buyQuantity : sellQuantity)[tick] += quantity;
+                randomEngine.processOrder(new Order(side, 90.0 + tick * 0.01, quantity));
+            }
+            long bestVolume = 0;
+            for (int tick = 0; tick < 21; tick++) {
+                long demand = 0;
+                long supply = 0;
+                for (int other = 0; other < 21; other++) {
+                    demand += other >= tick ? buyQuantity[other] : 0;
+                    supply += other <= tick ? sellQuantity[other] : 0;
+                }
+                bestVolume = Math.max(bestVolume, Math.min(demand, supply));
+            }
+            long bought = randomBook.getOrders(OrderSide.BUY).stream().mapToLong(Order::getQuantity).sum();
+            long totalBuy = Arrays.stream(buyQuantity).sum();
+            AuctionResult randomResult = randomEngine.uncross();
+            long remaining = randomBook.getOrders(OrderSide.BUY).stream().mapToLong(Order::getQuantity).sum();
+            randomCorrect = randomResult.getVolume() == bestVolume && bought == totalBuy && totalBuy - remaining == bestVolume
+                    && (randomBook.getBestBid() == OrderBook.NO_PRICE || randomBook.getBestAsk() == OrderBook.NO_PRICE
+                            || randomBook.getBestBid() < randomBook.getBestAsk());
+        }
+        
+        if (collectedCorrect && uncrossCorrect && reportsCorrect && randomCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("11. Auction Uncross Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("11. Auction Uncross Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+
+    /**
+     * Test binary order entry:
+     * New, modify and cancel messages written through the flyweights are read back in place and applied to the matching engine,
+     * with new orders taken from the order pool.
+     */
+    public static void testBinaryOrderEntry() {
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        OrderPool pool = new OrderPool(16);
+        OrderEntryDecoder decoder = new OrderEntryDecoder(matchingEngine, pool);
+        
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024).order(ByteOrder.LITTLE_ENDIAN);
+        MessageHeader header = new MessageHeader();
+        NewOrderMessage newOrder = new NewOrderMessage();
+        int offset = 0;
+        offset = encodeNewOrder(buffer, offset, header, newOrder, OrderSide.SELL, 10000, 10, "bin-1"); // Sell order at 100 for 10 units
+        offset = encodeNewOrder(buffer, offset, header, newOrder, OrderSide.SELL, 10100, 5, null);     // Sell order at 101 for 5 units
+        offset = encodeNewOrder(buffer, offset, header, newOrder, OrderSide.BUY, 10000, 4, null);      // Buy order at 100 for 4 units
+        ModifyOrderMessage modifyOrder = new ModifyOrderMessage().wrapAndApplyHeader(buffer, offset, header);
+        modifyOrder.setOrderId(1);
+        modifyOrder.setQuantity(20);
+        offset += MessageHeader.ENCODED_LENGTH + ModifyOrderMessage.BLOCK_LENGTH;
+        CancelOrderMessage cancelOrder = new CancelOrderMessage().wrapAndApplyHeader(buffer, offset, header);
+        cancelOrder.setOrderId(2);
+        offset += MessageHeader.ENCODED_LENGTH + CancelOrderMessage.BLOCK_LENGTH;
+        int lastMessage = offset;
+        cancelOrder.wrapAndApplyHeader(buffer, offset, header).setOrderId(99);
+        offset += MessageHeader.ENCODED_LENGTH + CancelOrderMessage.BLOCK_LENGTH;
+        
+        // The flyweights read back what was written, in place
+        newOrder.wrap(buffer, MessageHeader.ENCODED_LENGTH);
+        boolean codecCorrect = header.wrap(buffer, 0).getTemplateId() == NewOrderMessage.TEMPLATE_ID
+                && newOrder.getSide() == OrderSide.SELL && newOrder.getOrderType() == OrderType.LIMIT && newOrder.getPrice() == 10000
+                && newOrder.getQuantity() == 10 && "bin-1".equals(newOrder.getClientOrderId());
+        
+        int applied = decoder.onMessages(buffer, 0, lastMessage);
+        long missing = decoder.onMessage(buffer, lastMessage);
+        Order resting = orderBook.getOrder("bin-1");
+        boolean engineCorrect = applied == 5 && missing == 0 && resting != null && resting.getId() == 1 && resting.getQuantity() == 20
+                && orderBook.getBestAsk() == 10000 && orderBook.getOrder(2) == null && orderBook.getLevelCount(OrderSide.SELL) == 1
+                && resting.isPooled() && pool.getCreated() == 16;
+        
+        // Malformed messages are rejected before anything is applied or taken from the pool
+        int rejected = 0;
+        int available = pool.getAvailable();
+        ByteBuffer malformed = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        encodeNewOrder(malformed, 0, header, newOrder, OrderSide.BUY, 10000, 1, null);
+        malformed.put(MessageHeader.ENCODED_LENGTH + 16, (byte) 7); // An unknown side
+        rejected += rejects(decoder, malformed, 0, MessageHeader.ENCODED_LENGTH + NewOrderMessage.BLOCK_LENGTH);
+        encodeNewOrder(malformed, 0, header, newOrder, OrderSide.BUY, 10000, 1, null);
+        malformed.put(MessageHeader.ENCODED_LENGTH + 17, (byte) -1); // An unknown order type
+        rejected += rejects(decoder, malformed, 0, MessageHeader.ENCODED_LENGTH + NewOrderMessage.BLOCK_LENGTH);
+        encodeNewOrder(malformed, 0, header, newOrder, OrderSide.BUY, 10000, 1, null);
+        malformed.putShort(6, (short) (MessageHeader.SCHEMA_VERSION + 1)); // A newer schema version
+        rejected += rejects(decoder, malformed, 0, MessageHeader.ENCODED_LENGTH + NewOrderMessage.BLOCK_LENGTH);
+        encodeNewOrder(malformed, 0, header, newOrder, OrderSide.BUY, 10000, 1, null);
+        header.wrap(malformed, 0).setBlockLength(8); // A body shorter than the new order template
+        rejected += rejects(decoder, malformed, 0, MessageHeader.ENCODED_LENGTH + 8);
+        encodeNewOrder(malformed, 0, header, newOrder, OrderSide.BUY, 10000, 1, null);
+        rejected += rejects(decoder, malformed, 0, MessageHeader.ENCODED_LENGTH + 20); // A range that ends inside the body
+        header.setBlockLength(1000); // A body that runs past the end of the buffer
+        rejected += rejects(decoder, malformed, 0, malformed.capacity());
+        engineCorrect &= rejected == 6 && orderBook.getOrderCount() == 1 && orderBook.getBestBid() == OrderBook.NO_PRICE
+                && pool.getAvailable() == available;
+        
+        if (codecCorrect && engineCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("12. Binary Order Entry Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("12. Binary Order Entry Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    /**
+     * @return 1 if the decoder rejected the range of messages with an IllegalArgumentException, 0 if it applied them
+     */
+    private static int rejects(OrderEntryDecoder decoder, ByteBuffer buffer, int offset, int length) {
+        try {
+            decoder.onMessages(buffer, offset, length);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            return 1;
+        }
+    }
+    
+    /**
+     * Write a new limit order message at an offset and return the offset after it
+     */
+    private static int encodeNewOrder(ByteBuffer buffer, int offset, MessageHeader header, NewOrderMessage message,
+            OrderSide side, long price, long quantity, String clientOrderId) {
+        message.wrapAndApplyHeader(buffer, offset, header);
+        message.setSide(side);
+        message.setOrderType(OrderType.LIMIT);
+        message.setPrice(price);
+        message.setQuantity(quantity);
+        message.setClientOrderId(clientOrderId);
+        return offset + MessageHeader.ENCODED_LENGTH + NewOrderMessage.BLOCK_LENGTH;
+    }
+
+    /**
+     * Compare both sides of two order books by order Id, price and quantity, in priority order
+     */
+    private static boolean sameBook(OrderBook expected, OrderBook actual) {
+        for (OrderSide side : OrderSide.values()) {
+            List<Order> expectedOrders = expected.getOrders(side);
+            List<Order> actualOrders = actual.getOrders(side);
+            if (expectedOrders.size() != actualOrders.size()) {
+                return false;
+            }
+            for (int i = 0; i < expectedOrders.size(); i++) {
+                Order e = expectedOrders.get(i);
+                Order a = actualOrders.get(i);
+                if (e.getId() != a.getId() || e.getPriceTicks() != a.getPriceTicks() || e.getQuantity() != a.getQuantity()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test a stop order during an auction:
+     * A stop that is already through the last trade price when it arrives during an auction must be parked, not swept
+     * against the crossed book. The uncross must then sweep it once the auction has traded.
+     */
+    public static void testAuctionStopOrder() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(64);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, executionReports);
+        
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 5));  // Sell order at 100 for 5 units
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 100.0, 5));   // Buy order at 100 for 5 units, the last trade is at 100
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 103.0, 10)); // Sell order at 103 for 10 units
+        
+        matchingEngine.beginAuction();
+        matchingEngine.processOrder(new Order(OrderSide.BUY, 104.0, 2)); // Buy order at 104 for 2 units, crossing the book
+        long stop = matchingEngine.processOrder(new Order(OrderType.STOP, OrderSide.BUY, 99.0, 5, TickSize.DEFAULT, null)); // Buy stop at 99
+        boolean parkedCorrect = orderBook.getOrder(stop) != null && orderBook.getStopLevelCount(OrderSide.BUY) == 1
+                && orderBook.getBestAskQuantity() == 10 && orderBook.getBestBid() == 10400 && orderBook.getLastTradePrice() == 10000;
+        
+        List<ExecutionType> collected = new ArrayList<>();
+        consumer.poll(report -> {
+            if (report.getOrderId() == stop) {
+                collected.add(report.getType());
+            }
+        });
+        boolean collectedCorrect = collected.equals(List.of(ExecutionType.ACCEPTED, ExecutionType.RESTED));
+        
+        // 2 units trade at 103 in the uncross, then the stop is swept for 5 more units at 103
+        AuctionResult result = matchingEngine.uncross();
+        boolean uncrossCorrect = result.getVolume() == 2 && result.getPrice() == 10300 && orderBook.getOrder(stop) == null
+                && !orderBook.hasStopOrders() && orderBook.getBestAskQuantity() == 3 && orderBook.getLastTradePrice() == 10300;
+        
+        List<ExecutionType> swept = new ArrayList<>();
+        consumer.poll(report -> {
+            if (report.getOrderId() == stop) {
+                swept.add(report.getType());
+            }
+        });
+        boolean sweptCorrect = swept.equals(List.of(ExecutionType.TRIGGERED, ExecutionType.FILL));
+        
+        if (parkedCorrect && collectedCorrect && uncrossCorrect && sweptCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("13. Auction Stop Order Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("13. Auction Stop Order Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
     public static void main(String[] args) {
         OrderBook orderBook = new OrderBook();
         MatchingEngine matchingEngine = new MatchingEngine(orderBook);
@@ -169,5 +733,32 @@ public class MatchingEngineTest {
         MatchingEngineTest.testUnmatchedOrder(orderBook, matchingEngine);
         System.out.println("Order book after Unmatched Order Test:");
         System.out.println(orderBook);
+
+        // Run the pooled order recycling test on its own order book
+        MatchingEngineTest.testPooledOrderRecycling();
+
+        // Run the execution report test on its own order book
+        MatchingEngineTest.testExecutionReports();
+
+        // Run the engine metrics test on its own order book
+        MatchingEngineTest.testEngineMetrics();
+
+        // Run the market order test on its own order book
+        MatchingEngineTest.testMarketOrders();
+        
+        // Run the stop order test on its own order book
+        MatchingEngineTest.testStopOrders();
+        
+        // Run the batch processing test on its own order books
+        MatchingEngineTest.testBatchProcessing();
+        
+        // Run the auction uncross test on its own order books
+        MatchingEngineTest.testAuctionUncross();
+        
+        // Run the binary order entry test on its own order book
+        MatchingEngineTest.testBinaryOrderEntry();
+        
+        // Run the auction stop order test on its own order book
+        MatchingEngineTest.testAuctionStopOrder();
     }
 }
@@ -0,0 +1,279 @@
+package com.orderbook.test;
+
+import com.orderbook.event.DepthListener;
+import com.orderbook.event.ExecutionReportConsumer;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.model.DepthLevel;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.TickSize;
+import com.orderbook.offheap.OffHeapOrderBook;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The OffHeapOrderBookTest class has manual methods to validate the functionality of the off-heap order book.
+ * Each method prints "PASSED" or "FAILED" depending to indicate outcome of the test.
+ * JUnit would've been used for the unit tests but that would not have complied with the assessment instructions.
+ */
+public class OffHeapOrderBookTest {
+
+    /**
+     * This function validates whether the off-heap book trades exactly like the heap order book and matching engine.
+     * 
+     * 1. Send the same random mix of passive and crossing limit orders, market orders, modifies and cancels to both books.
+     * 2. Record the execution reports and depth updates each book publishes.
+     * 3. Assert that both books published the same reports and depth updates, in the same order.
+     * 4. Assert that both books end with the same depth and the same order Ids, in priority order, on each side.
+     */
+    public static void testSameAsHeapBook() {
+        if (sameAsHeapBook(0)) {
+            System.out.println("\n=================================");
+            System.out.println("1. Same As Heap Book Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("1. Same As Heap Book Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    /**
+     * Run the same random order flow through the heap and off-heap books, see testSameAsHeapBook
+     * 
+     * @param ladderTicks The width of the off-heap book's price ladder band, or 0 for sorted price levels
+     * @return True if both books published the same events and ended with the same book
+     */
+    private static boolean sameAsHeapBook(int ladderTicks) {
+        List<String> heapEvents = new ArrayList<>();
+        List<String> offHeapEvents = new ArrayList<>();
+        ExecutionReportRingBuffer heapReports = new ExecutionReportRingBuffer(1024);
+        ExecutionReportConsumer heapConsumer = heapReports.newConsumer();
+        ExecutionReportRingBuffer offHeapReports = new ExecutionReportRingBuffer(1024);
+        ExecutionReportConsumer offHeapConsumer = offHeapReports.newConsumer();
+        DepthListener heapDepth = (type, side, price, quantity, count) -> heapEvents.add(type + " " + side + " " + price + " " + quantity + " " + count);
+        DepthListener offHeapDepth = (type, side, price, quantity, count) -> offHeapEvents.add(type + " " + side + " " + price + " " + quantity + " " + count);
+        
+        OrderBook orderBook = new OrderBook(TickSize.DEFAULT, heapDepth);
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook, heapReports);
+        OffHeapOrderBook offHeapBook = new OffHeapOrderBook(4096, 256, ladderTicks, offHeapReports, offHeapDepth);
+        
+        Random random = new Random(24);
+        List<Long> orderIds = new ArrayList<>();
+        boolean sameIds = true;
+        for (int i = 0; i < 20000; i++) {
+            int action = random.nextInt(10);
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            long quantity = 1 + random.nextInt(50);
+            if (action < 6 || orderIds.isEmpty()) {
+                // A passive order, a crossing order or sometimes a market order
+                long price = 10000 + random.nextInt(30) * (side == OrderSide.BUY ? -1 : 1) + (action == 4 ? (side == OrderSide.BUY ? 15 : -15) : 0);
+                long heapId;
+                long offHeapId;
+                if (action == 5) {
+                    heapId = matchingEngine.processOrder(new Order(side, quantity));
+                    offHeapId = offHeapBook.processMarketOrder(side, quantity);
+                } else {
+                    heapId = matchingEngine.processOrder(new Order(side, price / 100.0, quantity));
+                    offHeapId = offHeapBook.processOrder(side, price, quantity);
+                    orderIds.add(heapId);
+                }
+                sameIds &= heapId == offHeapId;
+            } else if (action < 8) {
+                long orderId = orderIds.get(random.nextInt(orderIds.size()));
+                sameIds &= matchingEngine.modifyOrder(orderId, quantity) == offHeapBook.modifyOrder(orderId, quantity);
+            } else {
+                long orderId = orderIds.remove(random.nextInt(orderIds.size()));
+                sameIds &= matchingEngine.cancelOrder(orderId) == offHeapBook.cancelOrder(orderId);
+            }
+            heapConsumer.poll(report -> heapEvents.add(report.toString()));
+            offHeapConsumer.poll(report -> offHeapEvents.add(report.toString()));
+        }
+        
+        boolean sameBooks = orderBook.getOrderCount() == offHeapBook.getOrderCount()
+                && orderBook.getBestBid() == offHeapBook.getBestBid() && orderBook.getBestAsk() == offHeapBook.getBestAsk()
+                && orderBook.getLastTradePrice() == offHeapBook.getLastTradePrice();
+        for (OrderSide side : OrderSide.values()) {
+            sameBooks &= OrderBookTest.sameLevels(orderBook.getDepth(side, Integer.MAX_VALUE), offHeapBook.getDepth(side, Integer.MAX_VALUE));
+            List<Order> orders = orderBook.getOrders(side);
+            long[] ids = new long[orders.size() + 1];
+            sameBooks &= offHeapBook.copyOrderIds(side, ids) == orders.size();
+            for (int i = 0; i < orders.size(); i++) {
+                sameBooks &= orders.get(i).getId() == ids[i]
+                        && orders.get(i).getQuantity() == offHeapBook.getOrderQuantity(ids[i]);
+            }
+        }
+        System.out.println(offHeapBook + " after " + heapEvents.size() + " events");
+        return sameIds && sameBooks && heapEvents.equals(offHeapEvents) && orderBook.getOrderCount() > 0;
+    }
+    
+    /**
+     * This function validates whether a full off-heap book rejects new orders and is left as it was.
+     * 
+     * 1. Create a book with room for 2 orders and 3 price levels, and fill it with 2 bids at different prices.
+     * 2. Assert that a third order at a new price is rejected, and that the price level made for it is removed again.
+     * 3. Cancel a bid and assert that its slots are reused by a new order.
+     * 4. Assert that a crossing order which fills completely is accepted even though the book is full.
+     */
+    public static void testCapacity() {
+        OffHeapOrderBook offHeapBook = new OffHeapOrderBook(2, 3);
+        long first = offHeapBook.addOrder(OrderSide.BUY, 10000, 10);
+        offHeapBook.addOrder(OrderSide.BUY, 9999, 20);
+        
+        boolean rejected = false;
+        try {
+            offHeapBook.addOrder(OrderSide.SELL, 10005, 30);
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        boolean unchanged = offHeapBook.getOrderCount() == 2 && offHeapBook.getDepth(OrderSide.SELL, 5).isEmpty()
+                && offHeapBook.getBestAsk() == OrderBook.NO_PRICE;
+        
+        offHeapBook.cancelOrder(first);
+        long reused = offHeapBook.addOrder(OrderSide.SELL, 10005, 30);
+        boolean reusedCorrect = offHeapBook.getOrderQuantity(reused) == 30 && offHeapBook.getBestAsk() == 10005;
+        
+        offHeapBook.processOrder(OrderSide.SELL, 9999, 5);
+        List<DepthLevel> bids = offHeapBook.getDepth(OrderSide.BUY, 5);
+        boolean crossCorrect = offHeapBook.getOrderCount() == 2 && bids.size() == 1 && bids.get(0).getQuantity() == 15
+                && offHeapBook.getLastTradePrice() == 9999;
+        
+        if (rejected && unchanged && reusedCorrect && crossCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("2. Capacity Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("2. Capacity Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    /**
+     * This function validates whether the price ladder finds price levels inside, outside and across its band.
+     * 
+     * 1. Create a book with an 8 tick ladder and add bids 2 ticks apart, so the band re-centers to hold them.
+     * 2. Add bids too far away for the band, above and below it, which fall back to the levels outside the band.
+     * 3. Assert that the depth walks the levels inside and outside the band in price order, and that cancelling the best level finds the next one.
+     * 4. Empty the band and assert that it re-centers on the next bid and brings in the bids outside it that it now covers.
+     * 5. Run the random order flow of testSameAsHeapBook with a narrow ladder, which keeps moving and falling back, and with a wide ladder.
+     */
+    public static void testPriceLadder() {
+        OffHeapOrderBook offHeapBook = new OffHeapOrderBook(64, 64, 8, null, null);
+        long first = offHeapBook.addOrder(OrderSide.BUY, 10000, 10);
+        offHeapBook.addOrder(OrderSide.BUY, 10002, 20);
+        offHeapBook.addOrder(OrderSide.BUY, 9998, 30);
+        long high = offHeapBook.addOrder(OrderSide.BUY, 10050, 40);
+        offHeapBook.addOrder(OrderSide.BUY, 9950, 50);
+        offHeapBook.addOrder(OrderSide.BUY, 9951, 60);
+        
+        boolean fallbackCorrect = prices(offHeapBook.getDepth(OrderSide.BUY, 10)).equals(List.of(10050L, 10002L, 10000L, 9998L, 9951L, 9950L))
+                && offHeapBook.getBestBid() == 10050 && offHeapBook.getBestBidQuantity() == 40;
+        offHeapBook.cancelOrder(high);
+        fallbackCorrect &= offHeapBook.getBestBid() == 10002 && prices(offHeapBook.getDepth(OrderSide.BUY, 2)).equals(List.of(10002L, 10000L));
+        
+        // Empty the band, the next bid re-centers it and brings in the two bids below it
+        offHeapBook.cancelOrder(first);
+        offHeapBook.cancelOrder(first + 1);
+        offHeapBook.cancelOrder(first + 2);
+        offHeapBook.addOrder(OrderSide.BUY, 9952, 70);
+        offHeapBook.addOrder(OrderSide.BUY, 9960, 80);
+        long[] ids = new long[8];
+        boolean recenterCorrect = prices(offHeapBook.getDepth(OrderSide.BUY, 10)).equals(List.of(9960L, 9952L, 9951L, 9950L))
+                && offHeapBook.copyOrderIds(OrderSide.BUY, ids) == 4 && ids[0] == first + 7 && ids[3] == first + 4;
+        
+        // Sweep the bids, the ladder is walked from the best level down through the band and outside it
+        offHeapBook.processMarketOrder(OrderSide.SELL, 1000);
+        recenterCorrect &= offHeapBook.getOrderCount() == 0 && offHeapBook.getBestBid() == OrderBook.NO_PRICE && offHeapBook.getLastTradePrice() == 9950;
+        
+        boolean flowCorrect = sameAsHeapBook(16) && sameAsHeapBook(256);
+        
+        if (fallbackCorrect && recenterCorrect && flowCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("3. Price Ladder Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("3. Price Ladder Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    /**
+     * This function validates whether an order the book has no room to rest is cancelled rather than thrown out after it was accepted.
+     * 
+     * 1. Create a book with room for 3 orders and 2 price levels, and fill both levels with a bid each.
+     * 2. Process a bid at a new price, which has no free level, and a bid at a resting price, which rests and uses the last order slot.
+     * 3. Process a bid with no free order slot, then an offer that fills the best bid and rests its remainder in the slots the fill freed.
+     * 4. Assert that every order got its reports, with the orders that could not rest cancelled for their whole remainder, and the book as expected.
+     */
+    public static void testFullBookRemainder() {
+        ExecutionReportRingBuffer executionReports = new ExecutionReportRingBuffer(16);
+        ExecutionReportConsumer consumer = executionReports.newConsumer();
+        OffHeapOrderBook offHeapBook = new OffHeapOrderBook(3, 2, executionReports, null);
+        offHeapBook.addOrder(OrderSide.BUY, 10000, 10);
+        offHeapBook.addOrder(OrderSide.BUY, 9999, 10);
+        
+        boolean threw = false;
+        long noLevelId = 0;
+        long noOrderId = 0;
+        try {
+            noLevelId = offHeapBook.processOrder(OrderSide.BUY, 9998, 5); // No free level slot
+            offHeapBook.processOrder(OrderSide.BUY, 9999, 5); // Rests in the level at 9999
+            noOrderId = offHeapBook.processOrder(OrderSide.BUY, 10000, 5); // No free order slot
+            offHeapBook.processOrder(OrderSide.SELL, 10000, 15); // Fills the bid at 10000 and rests 5
+        } catch (IllegalStateException e) {
+            threw = true;
+        }
+        
+        ExecutionType[] expected = { ExecutionType.ACCEPTED, ExecutionType.CANCELLED, ExecutionType.ACCEPTED, ExecutionType.RESTED,
+                ExecutionType.ACCEPTED, ExecutionType.CANCELLED, ExecutionType.ACCEPTED, ExecutionType.FILL, ExecutionType.RESTED };
+        List<ExecutionType> received = new ArrayList<>();
+        List<Long> cancelledIds = new ArrayList<>();
+        boolean[] cancelledCorrect = { true };
+        consumer.poll(report -> {
+            received.add(report.getType());
+            if (report.getType() == ExecutionType.CANCELLED) {
+                cancelledIds.add(report.getOrderId());
+                cancelledCorrect[0] &= report.getQuantity() == 5 && report.getLeavesQuantity() == 0;
+            }
+        });
+        
+        boolean bookCorrect = offHeapBook.getOrderCount() == 3 && offHeapBook.getBestBid() == 9999 && offHeapBook.getBestBidQuantity() == 15
+                && offHeapBook.getBestAsk() == 10000 && offHeapBook.getLastTradePrice() == 10000;
+        
+        if (!threw && received.equals(List.of(expected)) && cancelledIds.equals(List.of(noLevelId, noOrderId)) && cancelledCorrect[0] && bookCorrect) {
+            System.out.println("\n=================================");
+            System.out.println("4. Full Book Remainder Test PASSED");
+            System.out.println("=================================\n");
+        } else {
+            System.out.println("\n=================================");
+            System.out.println("4. Full Book Remainder Test FAILED");
+            System.out.println("=================================\n");
+        }
+    }
+    
+    private static List<Long> prices(List<DepthLevel> depth) {
+        List<Long> prices = new ArrayList<>();
+        for (DepthLevel level : depth) {
+            prices.add(level.getPrice());
+        }
+        return prices;
+    }
+    
+    public static void main(String[] args) {
+        // Run off-heap order book tests and output the results
+        System.out.println("\n==================================");
+        System.out.println("Running Off-Heap Order Book Tests...");
+        System.out.println("==================================\n");
+        
+        OffHeapOrderBookTest.testSameAsHeapBook();
+        OffHeapOrderBookTest.testCapacity();
+        OffHeapOrderBookTest.testPriceLadder();
+        OffHeapOrderBookTest.testFullBookRemainder();
+    }
+}
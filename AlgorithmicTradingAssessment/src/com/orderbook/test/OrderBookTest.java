@@ -1,7 +1,17 @@
 package com.orderbook.test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import com.orderbook.event.DepthUpdateType;
 import com.orderbook.model.*;
 import com.orderbook.service.*;
 
@@ -61,15 +71,15 @@ public class OrderBookTest {
 	 */
     public static void testModifyOrder(OrderBook orderBook, Order order) {
         // Check the initial quantity of the order
-        double initialQuantity = order.getQuantity();
+        long initialQuantity = order.getQuantity();
 
         // Modify the quantity
-        double newQuantity = initialQuantity + 10;  // Example of increasing the quantity by 10
+        long newQuantity = initialQuantity + 10;  // Example of increasing the quantity by 10
         orderBook.modifyOrder(order.getId(), newQuantity);
 
         // Assert that the order's quantity has been updated
         if (orderBook.getOrders(order.getSide()).stream()
-                .anyMatch(o -> o.getId().equals(order.getId()) && o.getQuantity() == newQuantity)) {
+                .anyMatch(o -> o.getId() == order.getId() && o.getQuantity() == newQuantity)) {
             System.out.println("\n===============================");
             System.out.println("2. Modify order test PASSED");
             System.out.println("===============================\n");
@@ -91,7 +101,7 @@ public class OrderBookTest {
         orderBook.deleteOrder(order.getId());
 
         // Verify that the order has been deleted from the order book
-        if (orderBook.getOrders(order.getSide()).stream().noneMatch(o -> o.getId().equals(order.getId()))) {
+        if (orderBook.getOrders(order.getSide()).stream().noneMatch(o -> o.getId() == order.getId())) {
             System.out.println("\n===============================");
             System.out.println("3. Delete order test PASSED");
             System.out.println("===============================\n");
@@ -125,7 +135,7 @@ public class OrderBookTest {
                 .collect(Collectors.toCollection(LinkedList::new));
 
         // Check the is not already last in the list
-        if (ordersAtPriceLevel.getLast().getId().equals(order.getId())) {
+        if (ordersAtPriceLevel.getLast().getId() == order.getId()) {
             System.out.println("\n=========================================================================================");
             System.out.println("4. Order priority modification test inconclusive. Order is already last in priority. ");
             System.out.println("=========================================================================================\n");
@@ -141,7 +151,7 @@ public class OrderBookTest {
                 .collect(Collectors.toCollection(LinkedList::new));
 
         // Assert that the modified order is now the the lowest priority at that price level
-        if (ordersAtPriceLevel.getLast().getId().equals(order.getId())) {
+        if (ordersAtPriceLevel.getLast().getId() == order.getId()) {
             System.out.println("\n================================================================================");
             System.out.println("4. Order priority test PASSED: Order is last in the list at its price level.");
             System.out.println("================================================================================\n");
@@ -152,7 +162,496 @@ public class OrderBookTest {
         }
     }
     
-    public static void main(String[] args) {
+    /**
+     * This function validates whether prices that round to the same tick share a single price level.
+     * 
+     * 1. Add two buy orders whose decimal prices differ only by floating point noise
+     * 2. Assert that both orders have the same price in ticks
+     * 3. Assert that only one price level was created for them
+     * 
+     * @param orderBook The order book where the testTickPriceLevels functionality is being tested
+     */
+    public static void testTickPriceLevels(OrderBook orderBook) {
+        // Get the initial number of buy price levels
+        int initialLevels = orderBook.getLevelCount(OrderSide.BUY);
+        
+        // Add two orders at prices that are the same to the nearest tick
+        Order firstOrder = new Order(OrderSide.BUY, 98.9, 5);
+        Order secondOrder = new Order(OrderSide.BUY, 98.90000001, 5);
+        orderBook.addOrder(firstOrder);
+        orderBook.addOrder(secondOrder);
+        
+        // Assert that both orders share one price level
+        if (firstOrder.getPriceTicks() == secondOrder.getPriceTicks()
+                && orderBook.getLevelCount(OrderSide.BUY) == initialLevels + 1) {
+            System.out.println("\n===============================");
+            System.out.println("5. Tick price level test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("5. Tick price level test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates whether an order can be found and cancelled by its client order Id.
+     * 
+     * 1. Add a sell order with a client order Id
+     * 2. Assert that the order can be found by both its client order Id and its assigned order Id
+     * 3. Cancel the order by its client order Id and assert that it is no longer in the order book
+     * 
+     * @param orderBook The order book where the testClientOrderId functionality is being tested
+     */
+    public static void testClientOrderId(OrderBook orderBook) {
+        // Add an order with a client order Id
+        Order order = new Order(OrderSide.SELL, 106.0, 7, "client-order-1");
+        orderBook.addOrder(order);
+        
+        // Find the order by both of its Ids, then cancel it by its client order Id
+        boolean found = orderBook.getOrder("client-order-1") == order && orderBook.getOrder(order.getId()) == order;
+        boolean cancelled = orderBook.cancelOrder("client-order-1");
+        
+        // Assert that the order is no longer in the order book
+        if (found && cancelled && orderBook.getOrder("client-order-1") == null && orderBook.getOrder(order.getId()) == null) {
+            System.out.println("\n===============================");
+            System.out.println("6. Client order Id test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("6. Client order Id test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates the aggregated depth and the depth deltas of an order book.
+     * 
+     * 1. Create an order book with a depth listener that keeps its own copy of every price level from the deltas alone
+     * 2. Add, modify, cancel and match random orders through a matching engine
+     * 3. Assert that the level totals equal the sum of the orders at each price, and that getDepth returns them best price first
+     * 4. Assert that the copy built from the deltas is identical to the order book's depth
+     * 
+     * A new order book is used as the depth listener must be given when the book is created.
+     */
+    public static void testDepth() {
+        Map<OrderSide, Map<Long, long[]>> deltaDepth = new HashMap<>();
+        deltaDepth.put(OrderSide.BUY, new HashMap<>());
+        deltaDepth.put(OrderSide.SELL, new HashMap<>());
+        boolean[] deltasValid = { true };
+        OrderBook orderBook = new OrderBook(TickSize.DEFAULT, (type, side, price, totalQuantity, orderCount) -> {
+            Map<Long, long[]> levels = deltaDepth.get(side);
+            // A NEW level must not exist yet, and an UPDATE or DELETE level must
+            deltasValid[0] &= (type == DepthUpdateType.NEW) != levels.containsKey(price);
+            if (type == DepthUpdateType.DELETE) {
+                levels.remove(price);
+            } else {
+                levels.put(price, new long[] { totalQuantity, orderCount });
+            }
+        });
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        
+        Random random = new Random(11);
+        LinkedList<Long> orderIds = new LinkedList<>();
+        for (int i = 0; i < 5000; i++) {
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            // Mostly passive prices, with an occasional order that crosses the spread
+            int ticks = random.nextInt(8) == 0 ? random.nextInt(10) - 5 : 1 + random.nextInt(10);
+            double price = 100.0 + (side == OrderSide.BUY ? -ticks : ticks) * 0.01;
+            int action = random.nextInt(4);
+            if (action == 0 || orderIds.isEmpty()) {
+                orderIds.add(matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(20))));
+            } else if (action == 1) {
+                matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(20)));
+            } else if (action == 2) {
+                orderBook.modifyOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(20));
+            } else {
+                orderBook.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+            }
+        }
+        
+        boolean depthCorrect = deltasValid[0];
+        for (OrderSide side : OrderSide.values()) {
+            List<DepthLevel> depth = orderBook.getDepth(side, Integer.MAX_VALUE);
+            depthCorrect &= depth.size() == orderBook.getLevelCount(side) && depth.size() == deltaDepth.get(side).size();
+            for (int i = 0; i < depth.size(); i++) {
+                DepthLevel level = depth.get(i);
+                PriceLevel priceLevel = orderBook.getLevel(side, level.getPrice());
+                long sum = 0;
+                for (Order order = priceLevel.getFirst(); order != null; order = order.getNext()) {
+                    sum += order.getQuantity();
+                }
+                long[] copy = deltaDepth.get(side).get(level.getPrice());
+                depthCorrect &= sum == level.getQuantity() && priceLevel.size() == level.getOrderCount()
+                        && copy != null && copy[0] == level.getQuantity() && copy[1] == level.getOrderCount()
+                        && (i == 0 || (side == OrderSide.BUY ? depth.get(i - 1).getPrice() > level.getPrice() : depth.get(i - 1).getPrice() < level.getPrice()));
+            }
+        }
+        depthCorrect &= orderBook.getDepth(OrderSide.BUY, 3).size() == Math.min(3, orderBook.getLevelCount(OrderSide.BUY));
+        
+        if (depthCorrect) {
+            System.out.println("\n===============================");
+            System.out.println("7. Depth test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("7. Depth test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+
+    /**
+     * This function validates the cached best bid and offer of an order book.
+     * 
+     * 1. Add, modify, cancel and match random orders through a matching engine
+     * 2. After every operation, assert that the cached best bid and ask (price and quantity) match the first level of each side
+     * 3. Assert that the BBO version changed every time the best bid or ask changed
+     * 4. Assert the spread and mid price of the final book
+     * 
+     * A new order book is used so the top of book starts empty.
+     */
+    public static void testBestBidOffer() {
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        boolean bboCorrect = orderBook.getBestBid() == OrderBook.NO_PRICE && orderBook.getSpread() == OrderBook.NO_PRICE
+                && Double.isNaN(orderBook.getMidPrice());
+        
+        Random random = new Random(5);
+        LinkedList<Long> orderIds = new LinkedList<>();
+        long[] previous = { OrderBook.NO_PRICE, 0, OrderBook.NO_PRICE, 0 };
+        long previousVersion = orderBook.getBboVersion();
+        for (int i = 0; i < 5000 && bboCorrect; i++) {
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            int ticks = random.nextInt(8) == 0 ? random.nextInt(10) - 5 : 1 + random.nextInt(10);
+            double price = 100.0 + (side == OrderSide.BUY ? -ticks : ticks) * 0.01;
+            int action = random.nextInt(3);
+            if (action == 0 || orderIds.isEmpty()) {
+                orderIds.add(matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(20))));
+            } else if (action == 1) {
+                orderBook.modifyOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(20));
+            } else {
+                orderBook.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+            }
+            
+            long[] current = { orderBook.getBestBid(), orderBook.getBestBidQuantity(), orderBook.getBestAsk(), orderBook.getBestAskQuantity() };
+            long[] expected = { OrderBook.NO_PRICE, 0, OrderBook.NO_PRICE, 0 };
+            PriceLevel bid = orderBook.levels(OrderSide.BUY, 1).findFirst().orElse(null);
+            if (bid != null) {
+                expected[0] = bid.getPrice();
+                expected[1] = bid.getTotalQuantity();
+            }
+            PriceLevel ask = orderBook.levels(OrderSide.SELL, 1).findFirst().orElse(null);
+            if (ask != null) {
+                expected[2] = ask.getPrice();
+                expected[3] = ask.getTotalQuantity();
+            }
+            bboCorrect = Arrays.equals(current, expected)
+                    && (Arrays.equals(current, previous) || orderBook.getBboVersion() != previousVersion);
+            previous = current;
+            previousVersion = orderBook.getBboVersion();
+        }
+        bboCorrect &= orderBook.getSpread() == orderBook.getBestAsk() - orderBook.getBestBid()
+                && Math.abs(orderBook.getMidPrice() - (orderBook.getBestBid() + orderBook.getBestAsk()) * 0.005) < 1e-9;
+        
+        if (bboCorrect) {
+            System.out.println("\n===============================");
+            System.out.println("8. Best bid and offer test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("8. Best bid and offer test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates the split between reducing an order, which keeps its priority, and amending it, which resets it.
+     * 
+     * 1. Rest three buy orders at the same price and partially fill the first one with a crossing sell order
+     * 2. Assert that the partially filled order is still first and kept its timestamp
+     * 3. Reduce the second order and assert that it kept its place, its timestamp and that the level's total quantity went down
+     * 4. Amend the first order up and assert that it moved to the back of the level with a new timestamp
+     * 5. Assert that reducing an order to a larger quantity is rejected, and that modifyOrder picks the matching path
+     * 
+     * A new order book is used so the price level holds only the orders of this test.
+     */
+    public static void testReduceAndAmend() {
+        OrderBook orderBook = new OrderBook();
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        Order first = new Order(OrderSide.BUY, 100.0, 10);
+        Order second = new Order(OrderSide.BUY, 100.0, 10);
+        Order third = new Order(OrderSide.BUY, 100.0, 10);
+        matchingEngine.addOrder(first);
+        matchingEngine.addOrder(second);
+        matchingEngine.addOrder(third);
+        PriceLevel level = orderBook.getLevel(OrderSide.BUY, first.getPriceTicks());
+        
+        // A partial fill keeps the maker's priority
+        long firstTimestamp = first.getTimestamp();
+        matchingEngine.processOrder(new Order(OrderSide.SELL, 100.0, 4));
+        boolean fillCorrect = level.getFirst() == first && first.getQuantity() == 6 && first.getTimestamp() == firstTimestamp;
+        
+        // A reduction keeps the order in place
+        long secondTimestamp = second.getTimestamp();
+        orderBook.reduceOrder(second.getId(), 3);
+        boolean reduceCorrect = first.getNext() == second && second.getQuantity() == 3 && second.getTimestamp() == secondTimestamp
+                && level.getTotalQuantity() == 19 && level.size() == 3;
+        
+        // An amendment moves the order to the back of the level
+        orderBook.amendOrder(first.getId(), 12);
+        boolean amendCorrect = level.getFirst() == second && level.getLast() == first && first.getQuantity() == 12
+                && first.getTimestamp() != firstTimestamp && level.getTotalQuantity() == 25 && level.size() == 3
+                && orderBook.getOrder(first.getId()) == first;
+        
+        // A reduction cannot increase the quantity, and modifyOrder reduces or amends depending on the new quantity
+        boolean rejected = false;
+        try {
+            orderBook.reduceOrder(second.getId(), 4);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        orderBook.modifyOrder(third.getId(), 5);
+        boolean modifyCorrect = level.getFirst() == second && second.getNext() == third && third.getQuantity() == 5;
+        orderBook.modifyOrder(second.getId(), 8);
+        modifyCorrect &= level.getFirst() == third && level.getLast() == second && level.getTotalQuantity() == 25;
+        
+        if (fillCorrect && reduceCorrect && amendCorrect && rejected && modifyCorrect && orderBook.reduceOrder(-1, 1) == null) {
+            System.out.println("\n===============================");
+            System.out.println("9. Reduce and amend test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("9. Reduce and amend test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates the depth view that other threads read without stopping the matching engine.
+     * 
+     * 1. Start a reader thread that keeps copying both sides of a 5 level depth view
+     * 2. Add, modify, cancel and match random orders through a matching engine on this thread
+     * 3. After every operation, assert that the view holds the same levels as getDepth for the first 5 levels
+     * 4. Assert that every copy the reader made was consistent, with strictly ordered prices and positive quantities and order counts
+     * 5. Assert that the version does not move for a change to a level behind the view
+     * 
+     * A new order book is used as the depth view must be asked for when the book is created.
+     */
+    public static void testDepthView() throws InterruptedException {
+        OrderBook orderBook = new OrderBook(TickSize.DEFAULT, null, 5);
+        MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+        DepthView depthView = orderBook.getDepthView();
+        
+        // A reader thread checks every copy it makes while the book changes under it
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean readsConsistent = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        Thread reader = new Thread(() -> {
+            long[] prices = new long[5];
+            long[] quantities = new long[5];
+            int[] orderCounts = new int[5];
+            while (running.get()) {
+                for (OrderSide side : OrderSide.values()) {
+                    int size = depthView.read(side, prices, quantities, orderCounts);
+                    for (int i = 0; i < size; i++) {
+                        if (quantities[i] <= 0 || orderCounts[i] <= 0
+                                || (i > 0 && (side == OrderSide.BUY ? prices[i - 1] <= prices[i] : prices[i - 1] >= prices[i]))) {
+                            readsConsistent.set(false);
+                        }
+                    }
+                }
+                reads.incrementAndGet();
+            }
+        });
+        reader.start();
+        
+        Random random = new Random(13);
+        LinkedList<Long> orderIds = new LinkedList<>();
+        boolean viewCorrect = true;
+        for (int i = 0; i < 20000; i++) {
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            int ticks = random.nextInt(8) == 0 ? random.nextInt(10) - 5 : 1 + random.nextInt(15);
+            double price = 100.0 + (side == OrderSide.BUY ? -ticks : ticks) * 0.01;
+            int action = random.nextInt(4);
+            if (action == 0 || orderIds.isEmpty()) {
+                orderIds.add(matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(20))));
+            } else if (action == 1) {
+                matchingEngine.processOrder(new Order(side, price, 1 + random.nextInt(20)));
+            } else if (action == 2) {
+                matchingEngine.modifyOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(20));
+            } else {
+                matchingEngine.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+            }
+            for (OrderSide s : OrderSide.values()) {
+                viewCorrect &= sameLevels(orderBook.getDepth(s, 5), depthView.getDepth(s));
+            }
+        }
+        running.set(false);
+        reader.join();
+        
+        // A change behind the view does not move its version
+        long version = depthView.getVersion();
+        orderBook.addOrder(new Order(OrderSide.BUY, 1.0, 1));
+        boolean versionCorrect = orderBook.getLevelCount(OrderSide.BUY) <= 5 || depthView.getVersion() == version;
+        
+        if (viewCorrect && readsConsistent.get() && reads.get() > 0 && versionCorrect) {
+            System.out.println("\n===============================");
+            System.out.println("10. Depth view test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("10. Depth view test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates the depth limited iteration, the visitor and the streamed dump of an order book.
+     * 
+     * 1. Build a random book with several orders at most price levels
+     * 2. Assert that the lazy order stream, the visitor and getOrders return the same orders of the best 3 levels, in priority order
+     * 3. Assert that the level stream only reaches as many levels as it consumes, and that a visitor can stop the walk early
+     * 4. Assert that an order is written the same way String.format wrote it, and that a dump of every level is the same as toString
+     * 
+     * A new order book is used so the levels hold only the orders of this test.
+     */
+    public static void testLazyIteration() throws IOException {
+        OrderBook orderBook = new OrderBook();
+        Random random = new Random(17);
+        for (int i = 0; i < 500; i++) {
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            double price = 100.0 + (1 + random.nextInt(30)) * 0.01 * (side == OrderSide.BUY ? -1 : 1);
+            orderBook.addOrder(new Order(side, price, 1 + random.nextInt(20), random.nextInt(4) == 0 ? "client-" + i : null));
+        }
+        
+        boolean iterationCorrect = true;
+        for (OrderSide side : OrderSide.values()) {
+            List<Order> expected = orderBook.getOrders(side).subList(0, (int) orderBook.levels(side, 3)
+                    .mapToLong(PriceLevel::size).sum());
+            List<Order> visited = new ArrayList<>();
+            int count = orderBook.forEachOrder(side, 3, visited::add);
+            iterationCorrect &= expected.equals(orderBook.orders(side, 3).collect(Collectors.toList()))
+                    && expected.equals(visited) && count == expected.size() && expected.equals(orderBook.getOrders(side, 3));
+        }
+        
+        // Only the levels that are consumed are reached, and a visitor can stop part way through a level
+        int[] reached = { 0 };
+        Order first = orderBook.orders(OrderSide.BUY, Integer.MAX_VALUE).findFirst().orElse(null);
+        orderBook.levels(OrderSide.SELL, Integer.MAX_VALUE).peek(level -> reached[0]++).findFirst();
+        boolean lazy = reached[0] == 1 && first == orderBook.getOrders(OrderSide.BUY).get(0)
+                && orderBook.forEachOrder(OrderSide.SELL, Integer.MAX_VALUE, order -> false) == 1;
+        
+        // An order and the whole book are written the same way as before, without String.format
+        Order order = orderBook.orders(OrderSide.SELL, Integer.MAX_VALUE).filter(o -> o.getClientOrderId() != null).findFirst().get();
+        String formatted = String.format("Order{id=%d, clientOrderId='%s', side=%s, price=%.2f, quantity=%d, timestamp=%d}",
+                order.getId(), order.getClientOrderId(), order.getSide(), order.getPrice(), order.getQuantity(), order.getTimestamp());
+        StringBuilder dump = new StringBuilder();
+        orderBook.dump(dump, Integer.MAX_VALUE);
+        StringBuilder topDump = new StringBuilder();
+        orderBook.dump(topDump, 2);
+        boolean dumpCorrect = formatted.equals(order.toString())
+                && dump.toString().equals(orderBook.toString()) && topDump.toString().split("Price:", -1).length == 5;
+        
+        if (iterationCorrect && lazy && dumpCorrect) {
+            System.out.println("\n===============================");
+            System.out.println("11. Lazy iteration test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("11. Lazy iteration test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * This function validates an order book whose price levels are found through a price ladder against one that keeps them in sorted arrays.
+     * 
+     * 1. Send the same random flow of limit and market orders, modifies and cancels through a matching engine on each book
+     * 2. Let the mid price drift and sometimes jump, so the narrow ladder band re-centers and holds some levels outside it
+     * 3. After every operation, assert that both books have the same top of book and the same number of price levels
+     * 4. Assert that both books end with the same depth and the same orders, in priority order, on each side
+     * 
+     * New order books are used so the levels hold only the orders of this test.
+     */
+    public static void testPriceLadder() {
+        OrderBook sortedBook = new OrderBook(TickSize.DEFAULT, null, 0);
+        OrderBook ladderBook = new OrderBook(TickSize.DEFAULT, null, 0, 32);
+        MatchingEngine sortedEngine = new MatchingEngine(sortedBook);
+        MatchingEngine ladderEngine = new MatchingEngine(ladderBook);
+        
+        Random random = new Random(23);
+        List<Long> orderIds = new ArrayList<>();
+        long mid = 10000;
+        boolean ladderCorrect = true;
+        for (int i = 0; i < 20000 && ladderCorrect; i++) {
+            mid += random.nextInt(100) == 0 ? random.nextInt(201) - 100 : random.nextInt(3) - 1;
+            OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+            int action = random.nextInt(10);
+            if (action < 6 || orderIds.isEmpty()) {
+                long ticks = mid + (side == OrderSide.BUY ? -1 : 1) * (random.nextInt(40) - 4);
+                long quantity = 1 + random.nextInt(20);
+                long sortedId = sortedEngine.processOrder(new Order(side, ticks * 0.01, quantity));
+                long ladderId = ladderEngine.processOrder(new Order(side, ticks * 0.01, quantity));
+                ladderCorrect = sortedId == ladderId;
+                orderIds.add(sortedId);
+            } else if (action == 6) {
+                long quantity = 1 + random.nextInt(40);
+                ladderCorrect = sortedEngine.processOrder(new Order(side, quantity)) == ladderEngine.processOrder(new Order(side, quantity));
+            } else if (action == 7) {
+                long orderId = orderIds.get(random.nextInt(orderIds.size()));
+                long quantity = 1 + random.nextInt(20);
+                ladderCorrect = sortedEngine.modifyOrder(orderId, quantity) == ladderEngine.modifyOrder(orderId, quantity);
+            } else {
+                long orderId = orderIds.remove(random.nextInt(orderIds.size()));
+                ladderCorrect = sortedEngine.cancelOrder(orderId) == ladderEngine.cancelOrder(orderId);
+            }
+            ladderCorrect &= sortedBook.getBestBid() == ladderBook.getBestBid() && sortedBook.getBestAsk() == ladderBook.getBestAsk()
+                    && sortedBook.getBestBidQuantity() == ladderBook.getBestBidQuantity()
+                    && sortedBook.getBestAskQuantity() == ladderBook.getBestAskQuantity()
+                    && sortedBook.getLevelCount(OrderSide.BUY) == ladderBook.getLevelCount(OrderSide.BUY)
+                    && sortedBook.getLevelCount(OrderSide.SELL) == ladderBook.getLevelCount(OrderSide.SELL);
+        }
+        
+        for (OrderSide side : OrderSide.values()) {
+            ladderCorrect &= sameLevels(sortedBook.getDepth(side, Integer.MAX_VALUE), ladderBook.getDepth(side, Integer.MAX_VALUE));
+            List<Order> sortedOrders = sortedBook.getOrders(side);
+            List<Order> ladderOrders = ladderBook.getOrders(side);
+            ladderCorrect &= sortedOrders.size() == ladderOrders.size();
+            for (int i = 0; i < sortedOrders.size() && ladderCorrect; i++) {
+                ladderCorrect = sortedOrders.get(i).getId() == ladderOrders.get(i).getId()
+                        && sortedOrders.get(i).getQuantity() == ladderOrders.get(i).getQuantity();
+            }
+        }
+        
+        if (ladderCorrect && sortedBook.getLevelCount(OrderSide.BUY) > 32) {
+            System.out.println("\n===============================");
+            System.out.println("12. Price ladder test PASSED");
+            System.out.println("===============================\n");
+        } else {
+            System.out.println("\n===============================");
+            System.out.println("12. Price ladder test FAILED");
+            System.out.println("===============================\n");
+        }
+    }
+    
+    /**
+     * Compare two lists of depth levels by price, quantity and order count
+     */
+    static boolean sameLevels(List<DepthLevel> expected, List<DepthLevel> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            DepthLevel e = expected.get(i);
+            DepthLevel a = actual.get(i);
+            if (e.getPrice() != a.getPrice() || e.getQuantity() != a.getQuantity() || e.getOrderCount() != a.getOrderCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
         OrderBook orderBook = new OrderBook();
 
         // Create some orders to use in tests
@@ -203,6 +702,38 @@ public class OrderBookTest {
         OrderBookTest.testOrderPriority(orderBook, buyOrder1);
         System.out.println("Order book after Order Priority Test:");
         System.out.println(orderBook);
+
+        // Run the tick price level test
+        System.out.println("\nOrder book before Tick Price Level Test:");
+        System.out.println(orderBook);
+        OrderBookTest.testTickPriceLevels(orderBook);
+        System.out.println("Order book after Tick Price Level Test:");
+        System.out.println(orderBook);
+
+        // Run the client order Id test
+        System.out.println("\nOrder book before Client Order Id Test:");
+        System.out.println(orderBook);
+        OrderBookTest.testClientOrderId(orderBook);
+        System.out.println("Order book after Client Order Id Test:");
+        System.out.println(orderBook);
+
+        // Run the depth test on its own order book
+        OrderBookTest.testDepth();
+
+        // Run the best bid and offer test on its own order book
+        OrderBookTest.testBestBidOffer();
+
+        // Run the reduce and amend test on its own order book
+        OrderBookTest.testReduceAndAmend();
+
+        // Run the depth view test on its own order book
+        OrderBookTest.testDepthView();
+
+        // Run the lazy iteration test on its own order book
+        OrderBookTest.testLazyIteration();
+
+        // Run the price ladder test on its own order books
+        OrderBookTest.testPriceLadder();
     }
     
 }
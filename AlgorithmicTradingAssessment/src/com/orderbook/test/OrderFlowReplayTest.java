@@ -0,0 +1,312 @@
+package com.orderbook.test;
+
+import com.orderbook.codec.CancelOrderMessage;
+import com.orderbook.codec.MessageHeader;
+import com.orderbook.codec.ModifyOrderMessage;
+import com.orderbook.codec.NewOrderMessage;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.OrderType;
+import com.orderbook.model.TickSize;
+import com.orderbook.replay.OrderFlowReplayer;
+import com.orderbook.replay.ReplayReport;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The OrderFlowReplayTest class has manual methods to validate the functionality of the order flow replay driver.
+ * Each method prints "PASSED" or "FAILED" depending to indicate outcome of the test.
+ * JUnit would've been used for the unit tests but that would not have complied with the assessment instructions.
+ */
+public class OrderFlowReplayTest {
+
+    /**
+     * This function validates whether replaying a recorded order flow builds the same order book as applying it directly.
+     * 
+     * 1. Generate a random mix of limit and market orders, modifies and cancels, and apply it directly to a matching engine.
+     * 2. Record the same flow as a CSV file (with a header and Windows line breaks) and as a binary file.
+     * 3. Replay both files with a small chunk size, so messages are cut off at the end of most chunks.
+     * 4. Assert that every message was replayed and both replayed books hold the same orders as the direct book.
+     */
+    public static void testReplayFormats() throws IOException {
+        Path csv = Files.createTempFile("order-flow", ".csv");
+        Path binary = Files.createTempFile("order-flow", ".bin");
+        try {
+            OrderBook orderBook = new OrderBook();
+            MatchingEngine matchingEngine = new MatchingEngine(orderBook);
+            StringBuilder lines = new StringBuilder("timestamp,action,orderId,side,price,quantity\r\n");
+            ByteBuffer records = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            
+            Random random = new Random(20);
+            List<Long> orderIds = new ArrayList<>();
+            long nextOrderId = 1;
+            int messages = 5000;
+            for (int i = 0; i < messages; i++) {
+                long timestamp = 1_000_000L * i;
+                int action = random.nextInt(10);
+                OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+                long quantity = 1 + random.nextInt(50);
+                if (action < 6 || orderIds.isEmpty()) {
+                    // A passive or crossing limit order, or sometimes a market order
+                    boolean market = action == 5;
+                    long price = 10000 + random.nextInt(30) * (side == OrderSide.BUY ? -1 : 1) + (action == 4 ? (side == OrderSide.BUY ? 15 : -15) : 0);
+                    long orderId = nextOrderId++;
+                    Order order = market ? new Order(side, quantity) : new Order(side, price / 100.0, quantity);
+                    order.assignId(orderId);
+                    matchingEngine.processOrder(order);
+                    if (!market) {
+                        orderIds.add(orderId);
+                    }
+                    lines.append(timestamp).append(market ? ",M," : ",N,").append(orderId).append(side == OrderSide.BUY ? ",B," : ",S,")
+                            .append(market ? "" : String.format("%d.%02d", price / 100, price % 100)).append(',').append(quantity).append("\r\n");
+                    writeNewOrder(records, timestamp, side, market ? OrderType.MARKET : OrderType.LIMIT, price, quantity);
+                } else if (action < 8) {
+                    long orderId = orderIds.get(random.nextInt(orderIds.size()));
+                    matchingEngine.modifyOrder(orderId, quantity);
+                    lines.append(timestamp).append(",U,").append(orderId).append(",,,").append(quantity).append("\r\n");
+                    ModifyOrderMessage modify = new ModifyOrderMessage().wrapAndApplyHeader(records, records.position() + 8, new MessageHeader());
+                    modify.setOrderId(orderId);
+                    modify.setQuantity(quantity);
+                    records.putLong(timestamp).position(records.position() + MessageHeader.ENCODED_LENGTH + ModifyOrderMessage.BLOCK_LENGTH);
+                } else {
+                    long orderId = orderIds.remove(random.nextInt(orderIds.size()));
+                    matchingEngine.cancelOrder(orderId);
+                    lines.append(timestamp).append(",C,").append(orderId).append(",,,\r\n");
+                    CancelOrderMessage cancel = new CancelOrderMessage().wrapAndApplyHeader(records, records.position() + 8, new MessageHeader());
+                    cancel.setOrderId(orderId);
+                    records.putLong(timestamp).position(records.position() + MessageHeader.ENCODED_LENGTH + CancelOrderMessage.BLOCK_LENGTH);
+                }
+            }
+            Files.write(csv, lines.toString().getBytes(StandardCharsets.US_ASCII));
+            try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+                records.flip();
+                channel.write(records);
+            }
+            
+            OrderBook csvBook = new OrderBook();
+            ReplayReport csvReport = new OrderFlowReplayer(new MatchingEngine(csvBook), new OrderPool(1024), 4096).replay(csv, 0);
+            OrderBook binaryBook = new OrderBook();
+            ReplayReport binaryReport = new OrderFlowReplayer(new MatchingEngine(binaryBook), new OrderPool(1024), 4096).replay(binary, 0);
+            System.out.println("CSV " + csvReport);
+            System.out.println("Binary " + binaryReport);
+            
+            boolean csvCorrect = csvReport.getMessages() == messages && csvReport.getLatency().getCount() == messages
+                    && JournalTest.sameOrders(orderBook, csvBook, OrderSide.BUY, false) && JournalTest.sameOrders(orderBook, csvBook, OrderSide.SELL, false);
+            boolean binaryCorrect = binaryReport.getMessages() == messages
+                    && JournalTest.sameOrders(orderBook, binaryBook, OrderSide.BUY, false) && JournalTest.sameOrders(orderBook, binaryBook, OrderSide.SELL, false);
+            
+            if (csvCorrect && binaryCorrect && !orderBook.getOrders(OrderSide.BUY).isEmpty()) {
+                System.out.println("\n=================================");
+                System.out.println("1. Replay Formats Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("1. Replay Formats Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(binary);
+        }
+    }
+    
+    /**
+     * This function validates whether a replay at the recorded pace takes as long as the recorded flow.
+     * 
+     * 1. Record 5 orders 10ms apart, 40ms from the first to the last.
+     * 2. Replay them at the recorded pace and at twice the recorded pace.
+     * 3. Assert that each replay took at least as long as the paced recording.
+     */
+    public static void testPacedReplay() throws IOException {
+        Path csv = Files.createTempFile("paced-flow", ".csv");
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < 5; i++) {
+                lines.append(10_000_000L * i).append(",N,,B,").append(99 - i).append(".50,10\n");
+            }
+            Files.write(csv, lines.toString().getBytes(StandardCharsets.US_ASCII));
+            
+            OrderBook orderBook = new OrderBook();
+            ReplayReport recordedPace = new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(16)).replay(csv, 1);
+            ReplayReport doublePace = new OrderFlowReplayer(new MatchingEngine(new OrderBook()), new OrderPool(16)).replay(csv, 2);
+            
+            boolean pacedCorrect = recordedPace.getElapsedNanos() >= 40_000_000L && doublePace.getElapsedNanos() >= 20_000_000L
+                    && orderBook.getOrderCount() == 5 && orderBook.getBestBid() == TickSize.DEFAULT.toTicks(99.5);
+            
+            if (pacedCorrect) {
+                System.out.println("\n=================================");
+                System.out.println("2. Paced Replay Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("2. Paced Replay Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+    
+    /**
+     * This function validates whether a CSV price with too many digits for the parser is rejected rather than misread.
+     * 
+     * 1. Replay a price with 18 digits, the most the parser holds, and assert that it is read exactly.
+     * 2. Replay a price with 19 decimals and one with 20 integer digits.
+     * 3. Assert that each is rejected as a malformed price, with the byte it was found at.
+     */
+    public static void testMalformedPrice() throws IOException {
+        Path csv = Files.createTempFile("malformed-flow", ".csv");
+        try {
+            Files.write(csv, "0,N,,B,100.250000000000000,10\n".getBytes(StandardCharsets.US_ASCII));
+            OrderBook orderBook = new OrderBook();
+            new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(16)).replay(csv, 0);
+            boolean limitCorrect = orderBook.getBestBid() == TickSize.DEFAULT.toTicks(100.25);
+            
+            String[] prices = { "0.0000000000000000001", "12345678901234567890" };
+            int[] bytes = { 26, 25 }; // Where the 19th digit of each price is in its line
+            int rejected = 0;
+            for (int i = 0; i < prices.length; i++) {
+                Files.write(csv, ("0,N,,B," + prices[i] + ",10\n").getBytes(StandardCharsets.US_ASCII));
+                try {
+                    new OrderFlowReplayer(new MatchingEngine(new OrderBook()), new OrderPool(16)).replay(csv, 0);
+                } catch (IllegalArgumentException e) {
+                    rejected += e.getMessage().equals("Malformed price in order flow at byte " + bytes[i]) ? 1 : 0;
+                }
+            }
+            
+            if (limitCorrect && rejected == prices.length) {
+                System.out.println("\n=================================");
+                System.out.println("3. Malformed Price Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("3. Malformed Price Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+    
+    /**
+     * This function validates whether a CSV side or whole number that the parser cannot read exactly is rejected rather than misread.
+     * 
+     * 1. Replay new orders with an unknown, empty and two character side, which used to be replayed as sell orders.
+     * 2. Replay a quantity and a timestamp of 19 digits, which used to wrap around.
+     * 3. Assert that each is rejected as malformed, with the byte it was found at, and that nothing reached the order book.
+     */
+    public static void testMalformedFields() throws IOException {
+        Path csv = Files.createTempFile("malformed-flow", ".csv");
+        try {
+            String[] lines = { "0,N,,X,100,10", "0,N,,,100,10", "0,N,,BB,100,10", "0,N,,B,100,1234567890123456789", "1234567890123456789,N,,B,100,10" };
+            String[] errors = { "Malformed side in order flow at byte 5", "Malformed side in order flow at byte 5", "Malformed side in order flow at byte 5",
+                    "Malformed number in order flow at byte 29", "Malformed number in order flow at byte 18" };
+            int rejected = 0;
+            for (int i = 0; i < lines.length; i++) {
+                Files.write(csv, (lines[i] + "\n").getBytes(StandardCharsets.US_ASCII));
+                OrderBook orderBook = new OrderBook();
+                try {
+                    new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(16)).replay(csv, 0);
+                } catch (IllegalArgumentException e) {
+                    rejected += e.getMessage().equals(errors[i]) && orderBook.getOrderCount() == 0 ? 1 : 0;
+                }
+            }
+            
+            if (rejected == lines.length) {
+                System.out.println("\n=================================");
+                System.out.println("4. Malformed Fields Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("4. Malformed Fields Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+    
+    /**
+     * This function validates whether a new order whose Id is already in the book is rejected rather than hiding the resting order.
+     * 
+     * 1. Replay two new orders with the same explicit Id.
+     * 2. Replay a new order with an explicit Id the order book already assigned to an earlier order without one.
+     * 3. Assert that the second order of each is rejected and that the first is still resting and can be found by its Id.
+     * 4. Assert that an explicit Id is accepted again once the order that had it has been cancelled.
+     */
+    public static void testDuplicateOrderId() throws IOException {
+        Path csv = Files.createTempFile("duplicate-flow", ".csv");
+        try {
+            String[] flows = { "0,N,7,B,99.00,10\n0,N,7,B,98.00,5\n", "0,N,,B,99.00,10\n0,N,1,B,98.00,5\n" };
+            long[] ids = { 7, 1 };
+            int[] bytes = { 17, 16 }; // Where the second line of each flow starts
+            int rejected = 0;
+            for (int i = 0; i < flows.length; i++) {
+                Files.write(csv, flows[i].getBytes(StandardCharsets.US_ASCII));
+                OrderBook orderBook = new OrderBook();
+                try {
+                    new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(16)).replay(csv, 0);
+                } catch (IllegalArgumentException e) {
+                    Order resting = orderBook.getOrder(ids[i]);
+                    rejected += e.getMessage().equals("Order Id " + ids[i] + " is already in the book, in line at byte " + bytes[i])
+                            && resting != null && resting.getPriceTicks() == 9900 && orderBook.getOrderCount() == 1 ? 1 : 0;
+                }
+            }
+            
+            Files.write(csv, "0,N,7,B,99.00,10\n0,C,7,,,\n0,N,7,B,98.00,5\n".getBytes(StandardCharsets.US_ASCII));
+            OrderBook orderBook = new OrderBook();
+            new OrderFlowReplayer(new MatchingEngine(orderBook), new OrderPool(16)).replay(csv, 0);
+            boolean reuseCorrect = orderBook.getOrderCount() == 1 && orderBook.getOrder(7).getPriceTicks() == 9800;
+            
+            if (rejected == flows.length && reuseCorrect) {
+                System.out.println("\n=================================");
+                System.out.println("5. Duplicate Order Id Test PASSED");
+                System.out.println("=================================\n");
+            } else {
+                System.out.println("\n=================================");
+                System.out.println("5. Duplicate Order Id Test FAILED");
+                System.out.println("=================================\n");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+    
+    /**
+     * Write a recorded timestamp and a new order message
+     */
+    private static void writeNewOrder(ByteBuffer records, long timestamp, OrderSide side, OrderType type, long price, long quantity) {
+        NewOrderMessage message = new NewOrderMessage().wrapAndApplyHeader(records, records.position() + 8, new MessageHeader());
+        message.setSide(side);
+        message.setOrderType(type);
+        message.setPrice(price);
+        message.setQuantity(quantity);
+        message.setClientOrderId(null);
+        records.putLong(timestamp).position(records.position() + MessageHeader.ENCODED_LENGTH + NewOrderMessage.BLOCK_LENGTH);
+    }
+    
+    public static void main(String[] args) throws IOException {
+        // Run order flow replay tests and output the results
+        System.out.println("\n==================================");
+        System.out.println("Running Order Flow Replay Tests...");
+        System.out.println("==================================\n");
+
+        OrderFlowReplayTest.testReplayFormats();
+        OrderFlowReplayTest.testPacedReplay();
+        OrderFlowReplayTest.testMalformedPrice();
+        OrderFlowReplayTest.testMalformedFields();
+        OrderFlowReplayTest.testDuplicateOrderId();
+    }
+}
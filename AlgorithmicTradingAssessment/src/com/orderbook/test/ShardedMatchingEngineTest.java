@@ -0,0 +1,115 @@
+package com.orderbook.test;
+
+import com.orderbook.engine.OrderCommand;
+import com.orderbook.engine.ShardedMatchingEngine;
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.OrderBook;
+
+/**
+ * The ShardedMatchingEngineTest class has manual methods to validate the functionality of the multi-instrument engine.
+ * Each method prints "PASSED" or "FAILED" depending to indicate outcome of the test.
+ * JUnit would've been used for the unit tests but that would not have complied with the assessment instructions.
+ */
+public class ShardedMatchingEngineTest {
+
+    /**
+     * This function validates whether commands are routed to the order book of their own instrument.
+     * 
+     * 1. Add two instruments that are assigned to different shards.
+     * 2. Submit orders for both instruments, including a cancel by client order Id.
+     * 3. Shut the engine down and assert that each order book only has its own orders.
+     * 4. Assert that an instrument a partitioner puts on a shard that does not exist is refused when it is added.
+     */
+    public static void testInstrumentRouting() throws InterruptedException {
+        // Assign AAA to shard 0 and BBB to shard 1
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(2, (symbol, shardCount) -> symbol.equals("AAA") ? 0 : 1, Thread::new);
+        engine.addInstrument("AAA");
+        engine.addInstrument("BBB", new TickSize(0.05), null);
+        engine.start();
+
+        // Submit orders for both instruments
+        engine.submit(OrderCommand.process("AAA", new Order(OrderSide.BUY, 100.0, 10)));
+        engine.submit(OrderCommand.process("BBB", new Order(OrderSide.SELL, 50.0, 5, new TickSize(0.05))));
+        engine.submit(OrderCommand.process("BBB", new Order(OrderSide.SELL, 50.5, 5, new TickSize(0.05), "bbb-1")));
+        engine.submit(OrderCommand.cancel("BBB", "bbb-1"));
+        engine.shutdown();
+
+        // Check that each order book only holds its own orders
+        OrderBook aaa = engine.getOrderBook("AAA");
+        OrderBook bbb = engine.getOrderBook("BBB");
+        
+        // A partitioner that returns a shard outside the engine is caught when the instrument is added, not on submit
+        ShardedMatchingEngine badPartitioner = new ShardedMatchingEngine(2, (symbol, shardCount) -> shardCount, Thread::new);
+        boolean refused;
+        try {
+            badPartitioner.addInstrument("DDD");
+            refused = false;
+        } catch (IllegalArgumentException e) {
+            refused = badPartitioner.getShard("DDD") == -1;
+        }
+        
+        if (refused && engine.getShard("AAA") == 0 && engine.getShard("BBB") == 1
+                && aaa.getOrders(OrderSide.BUY).size() == 1 && aaa.getOrders(OrderSide.SELL).isEmpty()
+                && bbb.getOrders(OrderSide.SELL).size() == 1 && bbb.getOrders(OrderSide.BUY).isEmpty()) {
+            System.out.println("\n===================================");
+            System.out.println("1. Instrument Routing Test PASSED");
+            System.out.println("===================================\n");
+        } else {
+            System.out.println("\n===================================");
+            System.out.println("1. Instrument Routing Test FAILED");
+            System.out.println("===================================\n");
+        }
+    }
+
+    /**
+     * This function validates whether commands submitted from several gateway threads are all applied.
+     * 
+     * 1. Start two gateway threads that each submit crossing buy and sell orders for the same instrument.
+     * 2. Shut the engine down once both gateway threads have finished.
+     * 3. Assert that every order was matched, leaving the order book empty.
+     */
+    public static void testConcurrentSubmission() throws InterruptedException {
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(1);
+        engine.addInstrument("CCC");
+        engine.start();
+
+        // Each gateway thread submits pairs of orders that fully match each other
+        Runnable gateway = () -> {
+            for (int i = 0; i < 10000; i++) {
+                engine.submit(OrderCommand.process("CCC", new Order(OrderSide.BUY, 100.0, 1)));
+                engine.submit(OrderCommand.process("CCC", new Order(OrderSide.SELL, 100.0, 1)));
+            }
+        };
+        Thread first = new Thread(gateway);
+        Thread second = new Thread(gateway);
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        engine.shutdown();
+
+        // Every buy order has been matched by a sell order
+        OrderBook ccc = engine.getOrderBook("CCC");
+        if (ccc.getOrders(OrderSide.BUY).isEmpty() && ccc.getOrders(OrderSide.SELL).isEmpty()) {
+            System.out.println("\n=========================================");
+            System.out.println("2. Concurrent Submission Test PASSED");
+            System.out.println("=========================================\n");
+        } else {
+            System.out.println("\n=========================================");
+            System.out.println("2. Concurrent Submission Test FAILED");
+            System.out.println("=========================================\n");
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // Run ShardedMatchingEngine tests and output the results
+        System.out.println("\n======================================");
+        System.out.println("Running ShardedMatchingEngine Tests...");
+        System.out.println("======================================\n");
+
+        ShardedMatchingEngineTest.testInstrumentRouting();
+        ShardedMatchingEngineTest.testConcurrentSubmission();
+    }
+}
@@ -6,6 +6,11 @@
  * This package also includes all tests for the matching engine functionality, such as matching buy, sell and partially filled orders.
  * - {@link com.orderbook.test.OrderBookTest} is a class that implements the order book tests.
  * - {@link com.orderbook.test.MatchingEngineTest} is a class that implements the matching engine tests.
+ * - {@link com.orderbook.test.ShardedMatchingEngineTest} is a class that implements the multi-instrument engine tests.
+ * - {@link com.orderbook.test.MatchingEngineIngressTest} is a class that implements the multi-producer ingress tests.
+ * - {@link com.orderbook.test.JournalTest} is a class that implements the command journal and replay tests.
+ * - {@link com.orderbook.test.OrderFlowReplayTest} is a class that implements the order flow replay driver tests.
+ * - {@link com.orderbook.test.OffHeapOrderBookTest} is a class that implements the off-heap order book tests.
  * </p>
  */
 package com.orderbook.test;
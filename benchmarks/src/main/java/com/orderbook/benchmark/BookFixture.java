@@ -0,0 +1,123 @@
+package com.orderbook.benchmark;
+
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderPool;
+import com.orderbook.model.OrderSide;
+import com.orderbook.model.TickSize;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The BookFixture class builds a populated order book shared by the order book and matching engine benchmarks.
+ * 
+ * 1. Both sides of the book get bookSize resting orders spread over levels price levels by the price distribution
+ * 2. Bids are placed below and asks above a fixed mid price, so the book starts one tick either side of the mid
+ * 3. Random prices, quantities and order slots are precomputed, so the benchmarks don't measure the random number generator
+ * 4. The Ids of the resting orders are kept in slots so benchmarks can cancel and modify random resting orders
+ */
+@State(Scope.Thread)
+public abstract class BookFixture {
+	static final long MID_TICKS = 10_000; // A mid price of 100.00
+	private static final int RANDOMS = 1 << 16;
+	
+	@Param({"1000", "100000"})
+	public int bookSize; // The number of resting orders on each side
+	
+	@Param({"10", "1000"})
+	public int levels; // The number of price levels each side is spread over
+	
+	@Param({"UNIFORM", "NEAR_TOUCH"})
+	public PriceDistribution distribution;
+	
+	protected final TickSize tickSize = TickSize.DEFAULT;
+	protected OrderBook book;
+	protected MatchingEngine engine;
+	protected OrderPool pool;
+	
+	// Ids of the resting orders, slots below bookSize are bids and the rest are asks
+	protected long[] restingIds;
+	
+	private int[] offsets;
+	private long[] quantities;
+	private int[] slots;
+	private int cursor;
+	
+	@Setup(Level.Trial)
+	public void setUpBook() {
+		Random random = new Random(42);
+		offsets = new int[RANDOMS];
+		quantities = new long[RANDOMS];
+		slots = new int[RANDOMS];
+		for (int i = 0; i < RANDOMS; i++) {
+			offsets[i] = distribution.offset(random, levels);
+			quantities[i] = 1 + random.nextInt(100);
+			slots[i] = random.nextInt(2 * bookSize);
+		}
+		
+		pool = new OrderPool(4 * bookSize, tickSize);
+		book = new OrderBook(tickSize);
+		engine = createEngine(book);
+		restingIds = new long[2 * bookSize];
+		for (int slot = 0; slot < restingIds.length; slot++) {
+			restingIds[slot] = addPassive(sideOf(slot));
+		}
+	}
+	
+	/**
+	 * Create the matching engine for the book, benchmarks override this to attach an execution report stream
+	 */
+	protected MatchingEngine createEngine(OrderBook book) {
+		return new MatchingEngine(book);
+	}
+	
+	/**
+	 * Advance to the next precomputed random index
+	 */
+	protected final int next() {
+		return cursor++ & (RANDOMS - 1);
+	}
+	
+	protected final long quantity(int random) {
+		return quantities[random];
+	}
+	
+	protected final int slot(int random) {
+		return slots[random];
+	}
+	
+	protected final OrderSide sideOf(int slot) {
+		return slot < bookSize ? OrderSide.BUY : OrderSide.SELL;
+	}
+	
+	/**
+	 * Get a passive price in ticks, which never crosses the mid price
+	 */
+	protected final long passivePrice(OrderSide side, int random) {
+		return side == OrderSide.BUY ? MID_TICKS - 1 - offsets[random] : MID_TICKS + 1 + offsets[random];
+	}
+	
+	/**
+	 * Acquire a pooled order at a random passive price and quantity, without adding it to the book
+	 */
+	protected final Order newPassiveOrder(OrderSide side) {
+		int random = next();
+		return pool.acquire(side, tickSize.toPrice(passivePrice(side, random)), quantities[random]);
+	}
+	
+	/**
+	 * Add a pooled order at a random passive price and quantity to the book
+	 * 
+	 * @return The Id of the new resting order
+	 */
+	protected final long addPassive(OrderSide side) {
+		Order order = newPassiveOrder(side);
+		book.addOrder(order);
+		return order.getId();
+	}
+}
@@ -0,0 +1,94 @@
+package com.orderbook.benchmark;
+
+import com.orderbook.event.ExecutionReport;
+import com.orderbook.event.ExecutionReportConsumer;
+import com.orderbook.event.ExecutionReportHandler;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.model.OrderSide;
+import com.orderbook.service.MatchingEngine;
+import com.orderbook.service.OrderBook;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of MatchingEngine.processOrder workloads on a populated book (see BookFixture).
+ * 
+ * aggressiveTaker sends marketable orders that alternate between buying and selling. Any unfilled remainder is cancelled,
+ * and every fully filled maker is replaced at its price from the execution reports, so the book keeps its depth.
+ * cancelHeavy sends 9 cancel and replace pairs for every marketable order, like a market maker heavy message flow.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingEngineBenchmark extends BookFixture {
+	@Param({"100", "2000"})
+	public long takerQuantity;
+	
+	private ExecutionReportConsumer executionReports;
+	
+	// Replace every fully filled maker with a new order at the same price
+	private final ExecutionReportHandler replenish = this::replenish;
+	
+	// Read the execution reports without acting on them, so the ring buffer never fills up
+	private final ExecutionReportHandler ignore = report -> { };
+	
+	@Override
+	protected MatchingEngine createEngine(OrderBook book) {
+		ExecutionReportRingBuffer ringBuffer = new ExecutionReportRingBuffer(1 << 16);
+		executionReports = ringBuffer.newConsumer();
+		return new MatchingEngine(book, ringBuffer);
+	}
+	
+	private void replenish(ExecutionReport report) {
+		if (report.getType() == ExecutionType.FILL && report.getMakerLeavesQuantity() == 0) {
+			OrderSide makerSide = report.getSide() == OrderSide.BUY ? OrderSide.SELL : OrderSide.BUY;
+			book.addOrder(pool.acquire(makerSide, tickSize.toPrice(report.getPrice()), quantity(next())));
+		}
+	}
+	
+	/**
+	 * Send one marketable order that may sweep every level on the opposite side, and cancel any remainder
+	 */
+	private long take(int random) {
+		OrderSide side = (random & 1) == 0 ? OrderSide.BUY : OrderSide.SELL;
+		long limit = side == OrderSide.BUY ? MID_TICKS + levels : MID_TICKS - levels;
+		long orderId = engine.processOrder(pool.acquire(side, tickSize.toPrice(limit), takerQuantity));
+		engine.cancelOrder(orderId); // Does nothing if the order was fully filled
+		return orderId;
+	}
+	
+	@Benchmark
+	public long aggressiveTaker() {
+		long orderId = take(next());
+		executionReports.poll(replenish);
+		return orderId;
+	}
+	
+	/**
+	 * 9 cancel and replace pairs on random resting orders followed by one marketable order.
+	 * Slots whose order was filled by a marketable order are refilled by their next replace, which keeps the book's depth.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public long cancelHeavy() {
+		for (int i = 0; i < 9; i++) {
+			int slot = slot(next());
+			engine.cancelOrder(restingIds[slot]);
+			restingIds[slot] = addPassive(sideOf(slot));
+		}
+		long orderId = take(next());
+		executionReports.poll(ignore);
+		return orderId;
+	}
+}
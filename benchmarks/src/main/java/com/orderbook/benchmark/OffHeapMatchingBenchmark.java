@@ -0,0 +1,109 @@
+package com.orderbook.benchmark;
+
+import com.orderbook.event.ExecutionReport;
+import com.orderbook.event.ExecutionReportConsumer;
+import com.orderbook.event.ExecutionReportHandler;
+import com.orderbook.event.ExecutionReportRingBuffer;
+import com.orderbook.event.ExecutionType;
+import com.orderbook.model.OrderSide;
+import com.orderbook.offheap.OffHeapOrderBook;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The MatchingEngineBenchmark workloads run against an OffHeapOrderBook, so the off-heap book can be compared with the OrderBook and MatchingEngine.
+ * 
+ * The off-heap book is populated with the same random prices and quantities as the heap book of BookFixture,
+ * which is built but left untouched. Its Ids are kept in their own slots.
+ * The price levels are found either in sorted arrays or through a price ladder, whose band holds every benchmark price.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OffHeapMatchingBenchmark extends BookFixture {
+	@Param({"100", "2000"})
+	public long takerQuantity;
+	
+	@Param({"0", "4096"})
+	public int ladderTicks; // The width of the price ladder band, 0 to find price levels in sorted arrays
+	
+	private OffHeapOrderBook offHeapBook;
+	private ExecutionReportConsumer executionReports;
+	private long[] offHeapIds;
+	
+	// Replace every fully filled maker with a new order at the same price
+	private final ExecutionReportHandler replenish = this::replenish;
+	
+	// Read the execution reports without acting on them, so the ring buffer never fills up
+	private final ExecutionReportHandler ignore = report -> { };
+	
+	@Setup(Level.Trial)
+	public void setUpOffHeapBook() {
+		ExecutionReportRingBuffer ringBuffer = new ExecutionReportRingBuffer(1 << 16);
+		executionReports = ringBuffer.newConsumer();
+		// Room for the replenished makers of a sweep on top of the resting orders
+		offHeapBook = new OffHeapOrderBook(4 * bookSize, 2 * levels + 2, ladderTicks, ringBuffer, null);
+		offHeapIds = new long[2 * bookSize];
+		for (int slot = 0; slot < offHeapIds.length; slot++) {
+			offHeapIds[slot] = addOffHeap(sideOf(slot));
+		}
+	}
+	
+	private long addOffHeap(OrderSide side) {
+		int random = next();
+		return offHeapBook.addOrder(side, passivePrice(side, random), quantity(random));
+	}
+	
+	private void replenish(ExecutionReport report) {
+		if (report.getType() == ExecutionType.FILL && report.getMakerLeavesQuantity() == 0) {
+			OrderSide makerSide = report.getSide() == OrderSide.BUY ? OrderSide.SELL : OrderSide.BUY;
+			offHeapBook.addOrder(makerSide, report.getPrice(), quantity(next()));
+		}
+	}
+	
+	/**
+	 * Send one marketable order that may sweep every level on the opposite side, and cancel any remainder
+	 */
+	private long take(int random) {
+		OrderSide side = (random & 1) == 0 ? OrderSide.BUY : OrderSide.SELL;
+		long limit = side == OrderSide.BUY ? MID_TICKS + levels : MID_TICKS - levels;
+		long orderId = offHeapBook.processOrder(side, limit, takerQuantity);
+		offHeapBook.cancelOrder(orderId); // Does nothing if the order was fully filled
+		return orderId;
+	}
+	
+	@Benchmark
+	public long aggressiveTaker() {
+		long orderId = take(next());
+		executionReports.poll(replenish);
+		return orderId;
+	}
+	
+	/**
+	 * 9 cancel and replace pairs on random resting orders followed by one marketable order, see MatchingEngineBenchmark.cancelHeavy
+	 */
+	@Benchmark
+	@OperationsPerInvocation(10)
+	public long cancelHeavy() {
+		for (int i = 0; i < 9; i++) {
+			int slot = slot(next());
+			offHeapBook.cancelOrder(offHeapIds[slot]);
+			offHeapIds[slot] = addOffHeap(sideOf(slot));
+		}
+		long orderId = take(next());
+		executionReports.poll(ignore);
+		return orderId;
+	}
+}
@@ -0,0 +1,144 @@
+package com.orderbook.benchmark;
+
+import com.orderbook.model.Order;
+import com.orderbook.model.OrderSide;
+import com.orderbook.service.OrderVisitor;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the OrderBook operations on a populated book (see BookFixture).
+ * 
+ * addOrder and deleteOrder are measured over batches of orders, so the book can be put back to its starting depth
+ * outside of the measured time without the per-invocation setup cost dominating the result.
+ * modifyOrder, getOrders and the top of book walks run directly against the steady-state book.
+ * Each benchmark uses a single state object, so the batch setup always works on the book being measured.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+	static final int BATCH = 1000;
+	
+	/**
+	 * The steady-state book used by modifyOrder, getOrders and the top of book walks
+	 */
+	@State(Scope.Thread)
+	public static class Book extends BookFixture {
+		long visitedQuantity;
+		final OrderVisitor visitor = order -> {
+			visitedQuantity += order.getQuantity();
+			return true;
+		};
+	}
+	
+	/**
+	 * A book with a batch of passive orders acquired before, and cancelled after, each addOrder invocation
+	 */
+	@State(Scope.Thread)
+	public static class AddBatch extends BookFixture {
+		final Order[] orders = new Order[BATCH];
+		final long[] ids = new long[BATCH];
+		
+		@Setup(Level.Invocation)
+		public void acquire() {
+			for (int i = 0; i < BATCH; i++) {
+				orders[i] = newPassiveOrder((i & 1) == 0 ? OrderSide.BUY : OrderSide.SELL);
+			}
+		}
+		
+		@TearDown(Level.Invocation)
+		public void cancel() {
+			for (int i = 0; i < BATCH; i++) {
+				book.cancelOrder(ids[i]);
+			}
+		}
+	}
+	
+	/**
+	 * A book with a batch of passive orders added before, and released after, each deleteOrder invocation
+	 */
+	@State(Scope.Thread)
+	public static class DeleteBatch extends BookFixture {
+		final long[] ids = new long[BATCH];
+		final Order[] deleted = new Order[BATCH];
+		
+		@Setup(Level.Invocation)
+		public void add() {
+			for (int i = 0; i < BATCH; i++) {
+				ids[i] = addPassive((i & 1) == 0 ? OrderSide.BUY : OrderSide.SELL);
+			}
+		}
+		
+		@TearDown(Level.Invocation)
+		public void release() {
+			for (int i = 0; i < BATCH; i++) {
+				deleted[i].release();
+			}
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void addOrder(AddBatch batch) {
+		for (int i = 0; i < BATCH; i++) {
+			batch.book.addOrder(batch.orders[i]);
+			batch.ids[i] = batch.orders[i].getId();
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void deleteOrder(DeleteBatch batch) {
+		for (int i = 0; i < BATCH; i++) {
+			batch.deleted[i] = batch.book.deleteOrder(batch.ids[i]);
+		}
+	}
+	
+	/**
+	 * Modify a random resting order to a random quantity, which reduces it in place or moves it to the back of its price level
+	 */
+	@Benchmark
+	public void modifyOrder(Book book) {
+		int random = book.next();
+		book.book.modifyOrder(book.restingIds[book.slot(random)], book.quantity(random));
+	}
+	
+	@Benchmark
+	public void getOrders(Book book, Blackhole blackhole) {
+		List<Order> orders = book.book.getOrders(OrderSide.BUY);
+		blackhole.consume(orders);
+	}
+	
+	/**
+	 * Walk the orders of the best 5 buy levels with a reused visitor, which costs the same whatever the size of the book
+	 */
+	@Benchmark
+	public int forEachOrderTop5(Book book) {
+		return book.book.forEachOrder(OrderSide.BUY, 5, book.visitor);
+	}
+	
+	/**
+	 * Sum the quantity of the orders at the best 5 buy levels through the lazy order stream
+	 */
+	@Benchmark
+	public long streamOrdersTop5(Book book) {
+		return book.book.orders(OrderSide.BUY, 5).mapToLong(Order::getQuantity).sum();
+	}
+}
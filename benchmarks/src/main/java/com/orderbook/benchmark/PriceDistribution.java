@@ -0,0 +1,32 @@
+package com.orderbook.benchmark;
+
+import java.util.Random;
+
+/**
+ * Enum that represents how the prices of passive benchmark orders are spread over the price levels of a book.
+ * UNIFORM spreads orders evenly over every level.
+ * NEAR_TOUCH puts most orders close to the best price, with an exponentially thinning tail, as seen in real books.
+ */
+public enum PriceDistribution {
+	UNIFORM {
+		@Override
+		int offset(Random random, int levels) {
+			return random.nextInt(levels);
+		}
+	},
+	NEAR_TOUCH {
+		@Override
+		int offset(Random random, int levels) {
+			double mean = Math.max(1.0, levels / 20.0);
+			return (int) Math.min(levels - 1, -Math.log(1.0 - random.nextDouble()) * mean);
+		}
+	};
+	
+	/**
+	 * 
+	 * @param random The random number generator
+	 * @param levels The number of price levels on one side of the book
+	 * @return The distance in ticks from the best possible price, from 0 to levels - 1
+	 */
+	abstract int offset(Random random, int levels);
+}
@@ -0,0 +1,12 @@
+/**
+ * This package contains the JMH benchmarks of the order book and matching engine hot paths.
+ * <p>
+ * The benchmarks run against a pre-populated book whose depth, number of price levels and price distribution are JMH parameters.
+ * - {@link com.orderbook.benchmark.BookFixture} is the populated order book and the pre-generated random inputs shared by the benchmarks.
+ * - {@link com.orderbook.benchmark.PriceDistribution} decides how far from the touch resting orders are placed.
+ * - {@link com.orderbook.benchmark.OrderBookBenchmark} measures adding, deleting, modifying and listing orders.
+ * - {@link com.orderbook.benchmark.MatchingEngineBenchmark} measures aggressive taker and cancel-heavy workloads through the matching engine.
+ * - {@link com.orderbook.benchmark.OffHeapMatchingBenchmark} measures the same workloads against the off-heap order book.
+ * </p>
+ */
+package com.orderbook.benchmark;